@@ -143,6 +143,16 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
     private int pendingOutputStreamOffsetCount;
     private @Nullable VideoFrameMetadataListener frameMetadataListener;
 
+    // Cumulative stats since the renderer was created, written on the playback thread and read on any thread.
+    private volatile int totalRenderedFrameCount;
+    private volatile int totalDroppedFrameCount;
+    private volatile int totalSkippedFrameCount;
+    private volatile int maxConsecutiveDroppedFrameCount;
+    private volatile int outputFormatChangeCount;
+    private volatile int dummySurfaceUseCount;
+    private volatile @Nullable String codecName;
+    private volatile long codecInitializationDurationMs = C.TIME_UNSET;
+
     /**
      * @param context A context.
      * @param mediaCodecSelector A decoder selector.
@@ -245,6 +255,52 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
         clearReportedVideoSize();
     }
 
+    /** Returns the number of frames rendered to the surface since the renderer was created. */
+    public int getTotalRenderedFrameCount() {
+        return totalRenderedFrameCount;
+    }
+
+    /** Returns the number of late frames dropped since the renderer was created. */
+    public int getTotalDroppedFrameCount() {
+        return totalDroppedFrameCount;
+    }
+
+    /** Returns the number of frames skipped (decode-only or rendered to the dummy surface) since the renderer was created. */
+    public int getTotalSkippedFrameCount() {
+        return totalSkippedFrameCount;
+    }
+
+    /** Returns the max number of frames dropped in a row since the renderer was created. */
+    public int getMaxConsecutiveDroppedFrameCount() {
+        return maxConsecutiveDroppedFrameCount;
+    }
+
+    /** Returns the number of times the codec output format changed since the renderer was created. */
+    public int getOutputFormatChangeCount() {
+        return outputFormatChangeCount;
+    }
+
+    /** Returns the number of times the renderer switched to a {@link DummySurface}. */
+    public int getDummySurfaceUseCount() {
+        return dummySurfaceUseCount;
+    }
+
+    /** Returns whether the renderer currently outputs to a {@link DummySurface}. */
+    public boolean isUsingDummySurface() {
+        Surface surface = this.surface;
+        return surface != null && surface == dummySurface;
+    }
+
+    /** Returns the name of the last initialized codec, or null if no codec was initialized. */
+    public @Nullable String getCodecName() {
+        return codecName;
+    }
+
+    /** Returns the initialization duration of the last initialized codec, or {@link C#TIME_UNSET}. */
+    public long getCodecInitializationDurationMs() {
+        return codecInitializationDurationMs;
+    }
+
     @Override
     protected int supportsFormat(MediaCodecSelector mediaCodecSelector,
                                  DrmSessionManager<FrameworkMediaCrypto> drmSessionManager, Format format)
@@ -419,6 +475,9 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
         // We only need to update the codec if the surface has changed.
         if (this.surface != surface) {
             this.surface = surface;
+            if (surface != null && surface == dummySurface) {
+                dummySurfaceUseCount++;
+            }
             @State int state = getState();
             if (state == STATE_ENABLED || state == STATE_STARTED) {
                 MediaCodec codec = getCodec();
@@ -484,6 +543,7 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
                 dummySurface = DummySurface.newInstanceV17(context, codecInfo.secure);
             }
             surface = dummySurface;
+            dummySurfaceUseCount++;
         }
         codec.configure(mediaFormat, surface, crypto, 0);
         if (Util.SDK_INT >= 23 && tunneling) {
@@ -549,6 +609,8 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
     protected void onCodecInitialized(String name, long initializedTimestampMs,
                                       long initializationDurationMs) {
         eventDispatcher.decoderInitialized(name, initializedTimestampMs, initializationDurationMs);
+        codecName = name;
+        codecInitializationDurationMs = initializationDurationMs;
         codecNeedsSetOutputSurfaceWorkaround = codecNeedsSetOutputSurfaceWorkaround(name);
     }
 
@@ -579,6 +641,7 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
 
     @Override
     protected void onOutputFormatChanged(MediaCodec codec, MediaFormat outputFormat) {
+        outputFormatChangeCount++;
         boolean hasCrop = outputFormat.containsKey(KEY_CROP_RIGHT)
                 && outputFormat.containsKey(KEY_CROP_LEFT) && outputFormat.containsKey(KEY_CROP_BOTTOM)
                 && outputFormat.containsKey(KEY_CROP_TOP);
@@ -826,6 +889,7 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
         codec.releaseOutputBuffer(index, false);
         TraceUtil.endSection();
         decoderCounters.skippedOutputBufferCount++;
+        totalSkippedFrameCount++;
     }
 
     /**
@@ -878,6 +942,10 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
         decoderCounters.droppedBufferCount += droppedBufferCount;
         droppedFrames += droppedBufferCount;
         consecutiveDroppedFrameCount += droppedBufferCount;
+        totalDroppedFrameCount += droppedBufferCount;
+        if (consecutiveDroppedFrameCount > maxConsecutiveDroppedFrameCount) {
+            maxConsecutiveDroppedFrameCount = consecutiveDroppedFrameCount;
+        }
         decoderCounters.maxConsecutiveDroppedBufferCount = Math.max(consecutiveDroppedFrameCount,
                 decoderCounters.maxConsecutiveDroppedBufferCount);
         if (maxDroppedFramesToNotify > 0 && droppedFrames >= maxDroppedFramesToNotify) {
@@ -900,6 +968,7 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
         TraceUtil.endSection();
         lastRenderTimeUs = SystemClock.elapsedRealtime() * 1000;
         decoderCounters.renderedOutputBufferCount++;
+        totalRenderedFrameCount++;
         consecutiveDroppedFrameCount = 0;
         maybeNotifyRenderedFirstFrame();
     }
@@ -922,6 +991,7 @@ public class CustomVideoCodecRenderer extends MediaCodecRenderer {
         TraceUtil.endSection();
         lastRenderTimeUs = SystemClock.elapsedRealtime() * 1000;
         decoderCounters.renderedOutputBufferCount++;
+        totalRenderedFrameCount++;
         consecutiveDroppedFrameCount = 0;
         maybeNotifyRenderedFirstFrame();
     }
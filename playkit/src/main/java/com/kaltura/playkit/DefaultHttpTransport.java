@@ -0,0 +1,96 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit;
+
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * {@link PKHttpTransport} over HttpURLConnection (HTTP/1.1), with configurable timeouts.
+ * Connections are kept alive and reused for the same host, so consecutive segment, manifest and license
+ * requests share a TCP connection and a TLS session: responses are read to the end and the connection
+ * is not disconnected unless the request failed or the response was abandoned.
+ */
+public class DefaultHttpTransport implements PKHttpTransport {
+
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    public DefaultHttpTransport() {
+        this(DefaultHttpDataSource.DEFAULT_CONNECT_TIMEOUT_MILLIS, DefaultHttpDataSource.DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param connectTimeoutMs - connection timeout in milliseconds, 0 for an infinite timeout.
+     * @param readTimeoutMs    - read timeout in milliseconds, 0 for an infinite timeout.
+     */
+    public DefaultHttpTransport(int connectTimeoutMs, int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    @Override
+    public HttpDataSource createDataSource(String userAgent, boolean allowCrossProtocolRedirects, HttpDataSource.RequestProperties defaultRequestProperties) {
+        return new KeepAliveHttpDataSource(userAgent, connectTimeoutMs, readTimeoutMs, allowCrossProtocolRedirects, defaultRequestProperties);
+    }
+
+    @Override
+    public byte[] executePost(String url, @Nullable byte[] data, @Nullable Map<String, String> requestProperties) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) new URL(url).openConnection();
+        boolean completed = false;
+        try {
+            urlConnection.setConnectTimeout(connectTimeoutMs);
+            urlConnection.setReadTimeout(readTimeoutMs);
+            urlConnection.setRequestMethod("POST");
+            urlConnection.setDoOutput(data != null);
+            urlConnection.setDoInput(true);
+            if (requestProperties != null) {
+                for (Map.Entry<String, String> requestProperty : requestProperties.entrySet()) {
+                    urlConnection.setRequestProperty(requestProperty.getKey(), requestProperty.getValue());
+                }
+            }
+            if (data != null) {
+                urlConnection.setFixedLengthStreamingMode(data.length);
+                OutputStream out = new BufferedOutputStream(urlConnection.getOutputStream());
+                out.write(data);
+                out.close();
+            }
+            // Reading the response to the end and closing it returns the connection to the keep-alive pool.
+            byte[] response = Utils.convertInputStreamToByteArray(new BufferedInputStream(urlConnection.getInputStream()));
+            completed = true;
+            return response;
+        } finally {
+            if (!completed) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.NoRouteToHostException;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HttpURLConnection based data source that keeps its connections alive between requests. ExoPlayer's
+ * DefaultHttpDataSource disconnects after every request, which closes the socket on most stacks, so every
+ * segment paid for a TCP and TLS handshake. Here a response that was read to the end (or whose short
+ * remainder is drained on close) is only closed, which returns its connection to the platform's keep-alive
+ * pool for the next request to the same host. Responses that are abandoned with a lot left to read, and
+ * failed requests, are disconnected.
+ */
+class KeepAliveHttpDataSource extends BaseDataSource implements HttpDataSource {
+
+    private static final PKLog log = PKLog.get("KeepAliveHttpDataSource");
+
+    private static final int MAX_REDIRECTS = 20; // Same limit as Chrome and DefaultHttpDataSource
+    private static final int HTTP_STATUS_TEMPORARY_REDIRECT = 307;
+    private static final int HTTP_STATUS_PERMANENT_REDIRECT = 308;
+    private static final int HTTP_STATUS_RANGE_NOT_SATISFIABLE = 416;
+    private static final long MAX_BYTES_TO_DRAIN = 4096;
+    private static final Pattern CONTENT_RANGE_HEADER = Pattern.compile("^bytes (\\d+)-(\\d+)/\\d+$");
+
+    private final String userAgent;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final boolean allowCrossProtocolRedirects;
+    @Nullable private final RequestProperties defaultRequestProperties;
+    private final RequestProperties requestProperties = new RequestProperties();
+    private final byte[] skipBuffer = new byte[4096];
+
+    private DataSpec dataSpec;
+    private HttpURLConnection connection;
+    private InputStream inputStream;
+    private boolean opened;
+    private boolean endOfInput;
+
+    private long bytesToSkip;
+    private long bytesToRead;
+    private long bytesSkipped;
+    private long bytesRead;
+
+    KeepAliveHttpDataSource(String userAgent, int connectTimeoutMs, int readTimeoutMs, boolean allowCrossProtocolRedirects,
+                            @Nullable RequestProperties defaultRequestProperties) {
+        super(true);
+        this.userAgent = userAgent;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.allowCrossProtocolRedirects = allowCrossProtocolRedirects;
+        this.defaultRequestProperties = defaultRequestProperties;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return connection == null ? null : Uri.parse(connection.getURL().toString());
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return connection == null ? Collections.<String, List<String>>emptyMap() : connection.getHeaderFields();
+    }
+
+    @Override
+    public void setRequestProperty(String name, String value) {
+        requestProperties.set(name, value);
+    }
+
+    @Override
+    public void clearRequestProperty(String name) {
+        requestProperties.remove(name);
+    }
+
+    @Override
+    public void clearAllRequestProperties() {
+        requestProperties.clear();
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws HttpDataSourceException {
+        this.dataSpec = dataSpec;
+        this.bytesRead = 0;
+        this.bytesSkipped = 0;
+        this.endOfInput = false;
+        transferInitializing(dataSpec);
+        try {
+            connection = makeConnection(dataSpec);
+        } catch (IOException e) {
+            throw new HttpDataSourceException("Unable to connect to " + dataSpec.uri, e, dataSpec, HttpDataSourceException.TYPE_OPEN);
+        }
+
+        int responseCode;
+        try {
+            responseCode = connection.getResponseCode();
+        } catch (IOException e) {
+            disconnect();
+            throw new HttpDataSourceException("Unable to connect to " + dataSpec.uri, e, dataSpec, HttpDataSourceException.TYPE_OPEN);
+        }
+
+        if (responseCode < 200 || responseCode > 299) {
+            Map<String, List<String>> headers = connection.getHeaderFields();
+            disconnect();
+            InvalidResponseCodeException exception = new InvalidResponseCodeException(responseCode, headers, dataSpec);
+            if (responseCode == HTTP_STATUS_RANGE_NOT_SATISFIABLE) {
+                exception.initCause(new DataSourceException(DataSourceException.POSITION_OUT_OF_RANGE));
+            }
+            throw exception;
+        }
+
+        // A 200 response to a request with a position is the whole resource, and the start must be skipped.
+        bytesToSkip = responseCode == 200 && dataSpec.position != 0 ? dataSpec.position : 0;
+
+        if (!dataSpec.isFlagSet(DataSpec.FLAG_ALLOW_GZIP)) {
+            if (dataSpec.length != C.LENGTH_UNSET) {
+                bytesToRead = dataSpec.length;
+            } else {
+                long contentLength = getContentLength(connection);
+                bytesToRead = contentLength != C.LENGTH_UNSET ? (contentLength - bytesToSkip) : C.LENGTH_UNSET;
+            }
+        } else {
+            // The content length is of the compressed response, not of what will be read.
+            bytesToRead = dataSpec.length;
+        }
+
+        try {
+            inputStream = connection.getInputStream();
+        } catch (IOException e) {
+            disconnect();
+            throw new HttpDataSourceException(e, dataSpec, HttpDataSourceException.TYPE_OPEN);
+        }
+
+        opened = true;
+        transferStarted(dataSpec);
+        return bytesToRead;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int readLength) throws HttpDataSourceException {
+        try {
+            skipInternal();
+            return readInternal(buffer, offset, readLength);
+        } catch (IOException e) {
+            throw new HttpDataSourceException(e, dataSpec, HttpDataSourceException.TYPE_READ);
+        }
+    }
+
+    @Override
+    public void close() throws HttpDataSourceException {
+        try {
+            if (inputStream != null) {
+                if (drainForReuse()) {
+                    // Closing a response that was read to the end returns the connection to the keep-alive pool.
+                    try {
+                        inputStream.close();
+                    } catch (IOException e) {
+                        throw new HttpDataSourceException(e, dataSpec, HttpDataSourceException.TYPE_CLOSE);
+                    }
+                } else {
+                    // Reading the rest of the response to keep the connection would cost more than a new one.
+                    disconnect();
+                }
+            }
+        } finally {
+            inputStream = null;
+            connection = null;
+            if (opened) {
+                opened = false;
+                transferEnded();
+            }
+        }
+    }
+
+    private HttpURLConnection makeConnection(DataSpec dataSpec) throws IOException {
+        URL url = new URL(dataSpec.uri.toString());
+        byte[] postBody = dataSpec.postBody;
+        long position = dataSpec.position;
+        long length = dataSpec.length;
+        boolean allowGzip = dataSpec.isFlagSet(DataSpec.FLAG_ALLOW_GZIP);
+
+        if (!allowCrossProtocolRedirects) {
+            // HttpURLConnection follows the redirects that don't change the protocol.
+            return makeConnection(url, postBody, position, length, allowGzip, true);
+        }
+
+        // Follow the redirects here, to allow the ones that do change the protocol.
+        int redirectCount = 0;
+        while (redirectCount++ <= MAX_REDIRECTS) {
+            HttpURLConnection connection = makeConnection(url, postBody, position, length, allowGzip, false);
+            int responseCode;
+            try {
+                responseCode = connection.getResponseCode();
+            } catch (IOException e) {
+                connection.disconnect();
+                throw e;
+            }
+            String location = connection.getHeaderField("Location");
+            boolean redirect = responseCode == HttpURLConnection.HTTP_MULT_CHOICE
+                    || responseCode == HttpURLConnection.HTTP_MOVED_PERM
+                    || responseCode == HttpURLConnection.HTTP_MOVED_TEMP
+                    || responseCode == HttpURLConnection.HTTP_SEE_OTHER;
+            if (postBody == null) {
+                redirect |= responseCode == HTTP_STATUS_TEMPORARY_REDIRECT || responseCode == HTTP_STATUS_PERMANENT_REDIRECT;
+            }
+            if (!redirect) {
+                return connection;
+            }
+            connection.disconnect();
+            url = handleRedirect(url, location);
+            // POST requests are redirected as GET requests.
+            postBody = null;
+        }
+
+        throw new NoRouteToHostException("Too many redirects: " + redirectCount);
+    }
+
+    private HttpURLConnection makeConnection(URL url, @Nullable byte[] postBody, long position, long length, boolean allowGzip,
+                                             boolean followRedirects) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeoutMs);
+        connection.setReadTimeout(readTimeoutMs);
+        if (defaultRequestProperties != null) {
+            for (Map.Entry<String, String> property : defaultRequestProperties.getSnapshot().entrySet()) {
+                connection.setRequestProperty(property.getKey(), property.getValue());
+            }
+        }
+        for (Map.Entry<String, String> property : requestProperties.getSnapshot().entrySet()) {
+            connection.setRequestProperty(property.getKey(), property.getValue());
+        }
+        if (!(position == 0 && length == C.LENGTH_UNSET)) {
+            String rangeRequest = "bytes=" + position + "-";
+            if (length != C.LENGTH_UNSET) {
+                rangeRequest += (position + length - 1);
+            }
+            connection.setRequestProperty("Range", rangeRequest);
+        }
+        connection.setRequestProperty("User-Agent", userAgent);
+        if (!allowGzip) {
+            connection.setRequestProperty("Accept-Encoding", "identity");
+        }
+        connection.setInstanceFollowRedirects(followRedirects);
+        connection.setDoOutput(postBody != null);
+        if (postBody != null) {
+            connection.setRequestMethod("POST");
+            if (postBody.length == 0) {
+                connection.connect();
+            } else {
+                connection.setFixedLengthStreamingMode(postBody.length);
+                connection.connect();
+                OutputStream os = connection.getOutputStream();
+                os.write(postBody);
+                os.close();
+            }
+        } else {
+            connection.connect();
+        }
+        return connection;
+    }
+
+    private static URL handleRedirect(URL originalUrl, String location) throws IOException {
+        if (location == null) {
+            throw new ProtocolException("Null location redirect");
+        }
+        URL url = new URL(originalUrl, location);
+        String protocol = url.getProtocol();
+        if (!"https".equals(protocol) && !"http".equals(protocol)) {
+            throw new ProtocolException("Unsupported protocol redirect: " + protocol);
+        }
+        return url;
+    }
+
+    private static long getContentLength(HttpURLConnection connection) {
+        long contentLength = C.LENGTH_UNSET;
+        String contentLengthHeader = connection.getHeaderField("Content-Length");
+        if (contentLengthHeader != null && !contentLengthHeader.isEmpty()) {
+            try {
+                contentLength = Long.parseLong(contentLengthHeader);
+            } catch (NumberFormatException e) {
+                log.e("Unexpected Content-Length [" + contentLengthHeader + "]");
+            }
+        }
+        String contentRangeHeader = connection.getHeaderField("Content-Range");
+        if (contentRangeHeader != null && !contentRangeHeader.isEmpty()) {
+            Matcher matcher = CONTENT_RANGE_HEADER.matcher(contentRangeHeader);
+            if (matcher.find()) {
+                try {
+                    long contentLengthFromRange = Long.parseLong(matcher.group(2)) - Long.parseLong(matcher.group(1)) + 1;
+                    if (contentLength < 0) {
+                        contentLength = contentLengthFromRange;
+                    } else if (contentLength != contentLengthFromRange) {
+                        // Some proxies send a wrong Content-Length, take the larger one.
+                        log.w("Inconsistent headers [" + contentLengthHeader + "] [" + contentRangeHeader + "]");
+                        contentLength = Math.max(contentLength, contentLengthFromRange);
+                    }
+                } catch (NumberFormatException e) {
+                    log.e("Unexpected Content-Range [" + contentRangeHeader + "]");
+                }
+            }
+        }
+        return contentLength;
+    }
+
+    private void skipInternal() throws IOException {
+        while (bytesSkipped != bytesToSkip) {
+            int readLength = (int) Math.min(bytesToSkip - bytesSkipped, skipBuffer.length);
+            int read = inputStream.read(skipBuffer, 0, readLength);
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException();
+            }
+            if (read == -1) {
+                throw new EOFException();
+            }
+            bytesSkipped += read;
+            bytesTransferred(read);
+        }
+    }
+
+    private int readInternal(byte[] buffer, int offset, int readLength) throws IOException {
+        if (readLength == 0) {
+            return 0;
+        }
+        if (bytesToRead != C.LENGTH_UNSET) {
+            long bytesRemaining = bytesToRead - bytesRead;
+            if (bytesRemaining == 0) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            readLength = (int) Math.min(readLength, bytesRemaining);
+        }
+
+        int read = inputStream.read(buffer, offset, readLength);
+        if (read == -1) {
+            if (bytesToRead != C.LENGTH_UNSET) {
+                // The server closed the connection before sending all the expected bytes.
+                throw new EOFException();
+            }
+            endOfInput = true;
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        bytesRead += read;
+        bytesTransferred(read);
+        return read;
+    }
+
+    /**
+     * @return - true if the response is read to the end, after reading a short remainder.
+     */
+    private boolean drainForReuse() {
+        if (endOfInput) {
+            return true;
+        }
+        if (bytesSkipped != bytesToSkip || bytesToRead == C.LENGTH_UNSET || bytesToRead - bytesRead > MAX_BYTES_TO_DRAIN) {
+            return false;
+        }
+        try {
+            long drained = 0;
+            int read;
+            while ((read = inputStream.read(skipBuffer)) != -1) {
+                drained += read;
+                if (drained > MAX_BYTES_TO_DRAIN) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void disconnect() {
+        if (connection != null) {
+            try {
+                connection.disconnect();
+            } catch (Exception e) {
+                log.e("Unexpected error while disconnecting: " + e.getMessage());
+            }
+            connection = null;
+        }
+    }
+}
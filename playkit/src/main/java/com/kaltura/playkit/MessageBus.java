@@ -13,76 +13,538 @@
 package com.kaltura.playkit;
 
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Created by Noam Tamim @ Kaltura on 07/11/2016.
+ *
+ * Listeners are kept per event type in copy-on-write arrays, so posting an event never copies
+ * or locks the listener collection. Dispatch runnables are recycled through a small lock-free
+ * pool, which makes a steady-state post allocation free (apart from the event itself).
+ *
+ * When batching is enabled, all the events posted before the main thread gets to them are
+ * delivered by a single drain, and for coalesced event types only the latest pending event is kept.
+ *
+ * Every listener is delivered on the executor it was registered with - the main thread by default.
+ * A listener may also ask to be throttled to a minimum interval between deliveries.
  */
 @SuppressWarnings("WeakerAccess")
 public class MessageBus {
-    private Handler postHandler = new Handler(Looper.getMainLooper());
-    private Map<Object, Set<PKEvent.Listener>> listeners;
+
+    /**
+     * Deliver events on the main thread. This is the default delivery executor.
+     */
+    public static final Executor MAIN_THREAD = new MainThreadExecutor();
+
+    /**
+     * Deliver events on a single background thread, shared by all the players.
+     * Meant for listeners that never touch views, e.g. analytics plugins that only serialize and enqueue data.
+     */
+    public static final Executor BACKGROUND_THREAD = new BackgroundThreadExecutor();
+
+    private static final int DISPATCH_POOL_SIZE = 16;
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final Executor postExecutor;
+    private final ConcurrentMap<Class<?>, EventTypeTable> listeners = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<DispatchTask> dispatchPool = new AtomicReferenceArray<>(DISPATCH_POOL_SIZE);
+
+    private volatile SubscriptionObserver subscriptionObserver;
+
+    private final Object batchLock = new Object();
+    private final Runnable drainTask = initDrainTask();
+    private volatile boolean batchingEnabled;
+    private boolean drainScheduled;
+    private PKEvent[] pendingEvents = new PKEvent[DISPATCH_POOL_SIZE];
+    private PKEvent[] spareEvents = new PKEvent[DISPATCH_POOL_SIZE];
+    private int pendingCount;
 
     public MessageBus() {
-        listeners = new ConcurrentHashMap<>();
+        this(MAIN_THREAD);
+    }
+
+    MessageBus(Executor postExecutor) {
+        this.postExecutor = postExecutor;
     }
 
     public void post(final PKEvent event) {
+        Subscription[] subscriptions = getSubscriptions(event.eventType());
+        if (subscriptions.length == 0) {
+            return;
+        }
 
-        final Set<PKEvent.Listener> listeners = this.listeners.get(event.eventType());
+        if (batchingEnabled) {
+            enqueue(event);
+            return;
+        }
 
-        if (listeners != null) {
-            postHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    for (PKEvent.Listener listener : new HashSet<>(listeners)) {
-                        listener.onEvent(event);
-                    }
-                }
-            });
+        dispatch(event, subscriptions, null);
+    }
+
+    /**
+     * Enable/disable batched delivery. When enabled, events are accumulated until the main thread
+     * drains them, so a burst of events costs a single looper message instead of one per event.
+     * Disabled by default.
+     *
+     * @param batchingEnabled - true to deliver events in batches.
+     */
+    public void setBatchingEnabled(boolean batchingEnabled) {
+        this.batchingEnabled = batchingEnabled;
+    }
+
+    public boolean isBatchingEnabled() {
+        return batchingEnabled;
+    }
+
+    /**
+     * Set the "latest value wins" event types. When batching is enabled and an event of such type
+     * is posted while a previous one is still pending, the previous one is dropped.
+     * No event type is coalesced by default.
+     * Has no effect when batching is disabled.
+     *
+     * @param eventTypes - the event types to coalesce. Replaces the previous configuration.
+     */
+    public void setCoalescedEventTypes(Enum... eventTypes) {
+        synchronized (batchLock) {
+            for (EventTypeTable table : listeners.values()) {
+                Arrays.fill(table.coalesced, false);
+            }
+            for (Enum eventType : eventTypes) {
+                getOrCreateTable(eventType).coalesced[eventType.ordinal()] = true;
+            }
         }
     }
 
     public void remove(PKEvent.Listener listener, Enum... eventTypes) {
         for (Enum eventType : eventTypes) {
-            Set<PKEvent.Listener> listenerSet = listeners.get(eventType);
-            if (listenerSet != null) {
-                listenerSet.remove(listener);
+            EventTypeTable table = listeners.get(eventType.getDeclaringClass());
+            if (table != null && table.remove(eventType.ordinal(), listener)) {
+                notifySubscriptionsChanged(eventType);
             }
         }
     }
 
     public void removeListener(PKEvent.Listener listener) {
-        if (listeners.values() != null) {
-            for (Set<PKEvent.Listener> listenerSet : listeners.values()) {
-                Iterator<PKEvent.Listener> iterator = listenerSet.iterator();
-                while (iterator.hasNext()) {
-                    PKEvent.Listener element = iterator.next();
-                    if (element == listener) {
-                        iterator.remove();
-                    }
+        for (EventTypeTable table : listeners.values()) {
+            for (int ordinal = 0; ordinal < table.length(); ordinal++) {
+                if (table.remove(ordinal, listener)) {
+                    notifySubscriptionsChanged(table.eventTypes[ordinal]);
                 }
             }
         }
     }
 
     public PKEvent.Listener listen(PKEvent.Listener listener, Enum... eventTypes) {
+        return listen(listener, MAIN_THREAD, eventTypes);
+    }
+
+    /**
+     * Listen to events, delivered on the specified executor.
+     * If the listener is already registered for some of the event types, its executor is replaced.
+     *
+     * @param listener         - event listener.
+     * @param deliveryExecutor - {@link #MAIN_THREAD}, {@link #BACKGROUND_THREAD} or any other executor.
+     *                         Events of the same type are delivered to a listener in the order they were posted
+     *                         only if the executor is serial.
+     * @param eventTypes       - events the listener is interested in.
+     * @return - the listener.
+     */
+    public PKEvent.Listener listen(PKEvent.Listener listener, @NonNull Executor deliveryExecutor, Enum... eventTypes) {
+        return listen(listener, deliveryExecutor, 0, eventTypes);
+    }
+
+    /**
+     * Listen to events, delivered on the specified executor and throttled to the specified interval:
+     * events that arrive less than (about) minIntervalMs after the last delivered one are not delivered to this listener.
+     * For PLAYHEAD_UPDATED, the interval also drives how often the player samples the playhead.
+     * If the listener is already registered for some of the event types, its executor and interval are replaced.
+     *
+     * @param listener         - event listener.
+     * @param deliveryExecutor - {@link #MAIN_THREAD}, {@link #BACKGROUND_THREAD} or any other executor.
+     * @param minIntervalMs    - minimal interval between deliveries, 0 for no throttling.
+     * @param eventTypes       - events the listener is interested in.
+     * @return - the listener.
+     */
+    public PKEvent.Listener listen(PKEvent.Listener listener, @NonNull Executor deliveryExecutor, long minIntervalMs, Enum... eventTypes) {
+        Executor executor = deliveryExecutor == MAIN_THREAD ? postExecutor : deliveryExecutor;
         for (Enum eventType : eventTypes) {
-            Set<PKEvent.Listener> listenerSet = listeners.get(eventType);
-            if (listenerSet == null) {
-                listenerSet = new HashSet<>();
-                listenerSet.add(listener);
-                listeners.put(eventType, listenerSet);
-            } else {
-                listenerSet.add(listener);
+            // Every event type gets its own subscription, so throttling state is per type.
+            if (getOrCreateTable(eventType).add(eventType.ordinal(), new Subscription(listener, executor, minIntervalMs))) {
+                notifySubscriptionsChanged(eventType);
             }
         }
         return listener;
     }
+
+    /**
+     * Get the interval in which events of the specified type should be produced to satisfy all of its listeners.
+     *
+     * @param eventType         - event type.
+     * @param defaultIntervalMs - the interval to assume for listeners that are not throttled.
+     * @return - the smallest interval requested, or -1 if there are no listeners.
+     */
+    long getMinInterval(Enum eventType, long defaultIntervalMs) {
+        long minInterval = -1;
+        for (Subscription subscription : getSubscriptions(eventType)) {
+            long interval = subscription.minIntervalMs > 0 ? subscription.minIntervalMs : defaultIntervalMs;
+            if (minInterval < 0 || interval < minInterval) {
+                minInterval = interval;
+            }
+        }
+        return minInterval;
+    }
+
+    void setSubscriptionObserver(SubscriptionObserver subscriptionObserver) {
+        this.subscriptionObserver = subscriptionObserver;
+    }
+
+    private void notifySubscriptionsChanged(Enum eventType) {
+        SubscriptionObserver observer = subscriptionObserver;
+        if (observer != null) {
+            observer.onSubscriptionsChanged(eventType);
+        }
+    }
+
+    private Subscription[] getSubscriptions(Enum eventType) {
+        EventTypeTable table = listeners.get(eventType.getDeclaringClass());
+        return table != null ? table.get(eventType.ordinal()) : NO_SUBSCRIPTIONS;
+    }
+
+    private EventTypeTable getOrCreateTable(Enum eventType) {
+        Class<?> enumClass = eventType.getDeclaringClass();
+        EventTypeTable table = listeners.get(enumClass);
+        if (table == null) {
+            EventTypeTable newTable = new EventTypeTable((Enum[]) enumClass.getEnumConstants());
+            table = listeners.putIfAbsent(enumClass, newTable);
+            if (table == null) {
+                table = newTable;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Schedule a single dispatch task per distinct delivery executor of the subscriptions.
+     *
+     * @param inlineExecutor - subscriptions with this executor are delivered right away, on the calling thread.
+     */
+    private void dispatch(PKEvent event, Subscription[] subscriptions, @Nullable Executor inlineExecutor) {
+        for (int i = 0; i < subscriptions.length; i++) {
+            Executor executor = subscriptions[i].executor;
+            if (!isFirstWithExecutor(subscriptions, i)) {
+                continue;
+            }
+
+            if (executor == inlineExecutor) {
+                deliver(event, executor);
+            } else {
+                DispatchTask task = obtainTask();
+                task.event = event;
+                task.executor = executor;
+                executor.execute(task);
+            }
+        }
+    }
+
+    private static boolean isFirstWithExecutor(Subscription[] subscriptions, int index) {
+        for (int i = 0; i < index; i++) {
+            if (subscriptions[i].executor == subscriptions[index].executor) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void deliver(PKEvent event, Executor executor) {
+        // Reading the current subscriptions here (and not at post time) lets listeners that were
+        // removed in the meantime skip the event.
+        for (Subscription subscription : getSubscriptions(event.eventType())) {
+            if (subscription.executor == executor && subscription.shouldDeliver()) {
+                subscription.listener.onEvent(event);
+            }
+        }
+    }
+
+    private void enqueue(PKEvent event) {
+        boolean shouldScheduleDrain;
+        synchronized (batchLock) {
+            Enum eventType = event.eventType();
+            EventTypeTable table = getOrCreateTable(eventType);
+            int ordinal = eventType.ordinal();
+            if (table.coalesced[ordinal]) {
+                int staleIndex = table.pendingIndex[ordinal];
+                if (staleIndex >= 0) {
+                    pendingEvents[staleIndex] = null;
+                }
+                table.pendingIndex[ordinal] = pendingCount;
+            }
+
+            if (pendingCount == pendingEvents.length) {
+                pendingEvents = Arrays.copyOf(pendingEvents, pendingCount * 2);
+            }
+            pendingEvents[pendingCount++] = event;
+
+            shouldScheduleDrain = !drainScheduled;
+            drainScheduled = true;
+        }
+
+        if (shouldScheduleDrain) {
+            postExecutor.execute(drainTask);
+        }
+    }
+
+    private void drain() {
+        PKEvent[] batch;
+        int batchSize;
+        synchronized (batchLock) {
+            batch = pendingEvents;
+            batchSize = pendingCount;
+            // The spare buffer is missing only if a listener triggered a nested drain.
+            pendingEvents = spareEvents != null ? spareEvents : new PKEvent[batch.length];
+            spareEvents = null;
+            pendingCount = 0;
+            drainScheduled = false;
+
+            for (int i = 0; i < batchSize; i++) {
+                if (batch[i] != null) {
+                    Enum eventType = batch[i].eventType();
+                    listeners.get(eventType.getDeclaringClass()).pendingIndex[eventType.ordinal()] = -1;
+                }
+            }
+        }
+
+        for (int i = 0; i < batchSize; i++) {
+            PKEvent event = batch[i];
+            if (event == null) {
+                // Coalesced by a newer event of the same type.
+                continue;
+            }
+            batch[i] = null;
+            dispatch(event, getSubscriptions(event.eventType()), postExecutor);
+        }
+
+        synchronized (batchLock) {
+            if (spareEvents == null) {
+                spareEvents = batch;
+            }
+        }
+    }
+
+    private Runnable initDrainTask() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+    }
+
+    private DispatchTask obtainTask() {
+        for (int i = 0; i < DISPATCH_POOL_SIZE; i++) {
+            DispatchTask task = dispatchPool.getAndSet(i, null);
+            if (task != null) {
+                return task;
+            }
+        }
+        return new DispatchTask();
+    }
+
+    private void recycleTask(DispatchTask task) {
+        for (int i = 0; i < DISPATCH_POOL_SIZE; i++) {
+            if (dispatchPool.compareAndSet(i, null, task)) {
+                return;
+            }
+        }
+        // Pool is full - let this one be collected.
+    }
+
+    private final class DispatchTask implements Runnable {
+
+        private PKEvent event;
+        private Executor executor;
+
+        @Override
+        public void run() {
+            PKEvent event = this.event;
+            Executor executor = this.executor;
+            this.event = null;
+            this.executor = null;
+            // Recycle before delivering, a listener is allowed to post re-entrantly.
+            recycleTask(this);
+
+            deliver(event, executor);
+        }
+    }
+
+    /**
+     * Called when listeners are added to or removed from an event type. Called on the thread that made the change.
+     */
+    interface SubscriptionObserver {
+        void onSubscriptionsChanged(Enum eventType);
+    }
+
+    private static final class Subscription {
+
+        private final PKEvent.Listener listener;
+        private final Executor executor;
+        private final long minIntervalMs;
+        private final long minIntervalNanos;
+
+        // Guarded by this subscription: the delivery executor may be a pool running several deliveries at once.
+        private boolean delivered;
+        private long lastDeliveryNanos;
+
+        Subscription(PKEvent.Listener listener, Executor executor, long minIntervalMs) {
+            this.listener = listener;
+            this.executor = executor;
+            this.minIntervalMs = Math.max(minIntervalMs, 0);
+            // Events are sampled on a timer that can be a little late, so allow 10% slack
+            // rather than skipping a whole extra period.
+            this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(this.minIntervalMs) * 9 / 10;
+        }
+
+        boolean shouldDeliver() {
+            if (minIntervalMs == 0) {
+                return true;
+            }
+            long now = System.nanoTime();
+            synchronized (this) {
+                if (delivered && now - lastDeliveryNanos < minIntervalNanos) {
+                    return false;
+                }
+                delivered = true;
+                lastDeliveryNanos = now;
+            }
+            return true;
+        }
+
+        boolean isSameAs(Subscription other) {
+            return listener == other.listener && executor == other.executor && minIntervalMs == other.minIntervalMs;
+        }
+    }
+
+    /**
+     * Subscription arrays of a single event enum, indexed by ordinal. Every array stored here is
+     * immutable - updates replace it with a modified copy.
+     * The batching state (coalesced flags and pending positions) is guarded by the batch lock.
+     */
+    private static final class EventTypeTable {
+
+        private final Enum[] eventTypes;
+        private final AtomicReferenceArray<Subscription[]> slots;
+        private final boolean[] coalesced;
+        private final int[] pendingIndex;
+
+        EventTypeTable(Enum[] eventTypes) {
+            int size = eventTypes.length;
+            this.eventTypes = eventTypes;
+            slots = new AtomicReferenceArray<>(size);
+            for (int i = 0; i < size; i++) {
+                slots.set(i, NO_SUBSCRIPTIONS);
+            }
+            coalesced = new boolean[size];
+            pendingIndex = new int[size];
+            Arrays.fill(pendingIndex, -1);
+        }
+
+        int length() {
+            return slots.length();
+        }
+
+        Subscription[] get(int ordinal) {
+            return slots.get(ordinal);
+        }
+
+        boolean add(int ordinal, Subscription subscription) {
+            while (true) {
+                Subscription[] current = slots.get(ordinal);
+                int index = indexOf(current, subscription.listener);
+                if (index >= 0 && current[index].isSameAs(subscription)) {
+                    return false;
+                }
+                Subscription[] updated;
+                if (index >= 0) {
+                    updated = current.clone();
+                    updated[index] = subscription;
+                } else {
+                    updated = Arrays.copyOf(current, current.length + 1);
+                    updated[current.length] = subscription;
+                }
+                if (slots.compareAndSet(ordinal, current, updated)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean remove(int ordinal, PKEvent.Listener listener) {
+            while (true) {
+                Subscription[] current = slots.get(ordinal);
+                int index = indexOf(current, listener);
+                if (index < 0) {
+                    return false;
+                }
+                Subscription[] updated;
+                if (current.length == 1) {
+                    updated = NO_SUBSCRIPTIONS;
+                } else {
+                    updated = new Subscription[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, index);
+                    System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+                }
+                if (slots.compareAndSet(ordinal, current, updated)) {
+                    return true;
+                }
+            }
+        }
+
+        private static int indexOf(Subscription[] array, PKEvent.Listener listener) {
+            for (int i = 0; i < array.length; i++) {
+                if (array[i].listener == listener) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class MainThreadExecutor implements Executor {
+
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            handler.post(command);
+        }
+    }
+
+    private static final class BackgroundThreadExecutor implements Executor {
+
+        private Handler handler;
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            getHandler().post(command);
+        }
+
+        private synchronized Handler getHandler() {
+            if (handler == null) {
+                HandlerThread thread = new HandlerThread("PKMessageBus", Process.THREAD_PRIORITY_BACKGROUND);
+                thread.setDaemon(true);
+                thread.start();
+                handler = new Handler(thread.getLooper());
+            }
+            return handler;
+        }
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit;
+
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The HTTP stack of the SDK - used for media, manifest and license requests of the players and for
+ * the SDK's own requests. The default is {@link DefaultHttpTransport}, HTTP/1.1 with keep-alive connections.
+ * Applications can install their own with {@link PlayKitManager#setHttpTransport(PKHttpTransport)}, for example
+ * to use the HTTP client of the app.
+ */
+public interface PKHttpTransport {
+
+    /**
+     * Create a data source for the player's media, manifest and license requests.
+     *
+     * @param userAgent                   - the User-Agent of the requests.
+     * @param allowCrossProtocolRedirects - whether redirects between HTTP and HTTPS are allowed.
+     * @param defaultRequestProperties    - headers to send with every request.
+     * @return - a new data source.
+     */
+    HttpDataSource createDataSource(String userAgent, boolean allowCrossProtocolRedirects, HttpDataSource.RequestProperties defaultRequestProperties);
+
+    /**
+     * Execute a POST request and return the response body.
+     *
+     * @param url               - request URL.
+     * @param data              - request body, or null for no body.
+     * @param requestProperties - request headers.
+     * @return - the response body.
+     * @throws IOException - if the request failed.
+     */
+    byte[] executePost(String url, @Nullable byte[] data, @Nullable Map<String, String> requestProperties) throws IOException;
+}
@@ -15,7 +15,11 @@ package com.kaltura.playkit;
 import android.content.Context;
 import android.support.annotation.Nullable;
 
+import com.kaltura.playkit.drm.LicenseCache;
+import com.kaltura.playkit.player.ManifestCache;
+import com.kaltura.playkit.player.MediaCache;
 import com.kaltura.playkit.player.MediaSupport;
+import com.kaltura.playkit.player.PlayerPool;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -30,6 +34,8 @@ public class PlayKitManager {
 
     private static boolean shouldSendDeviceCapabilitiesReport = true;
 
+    private static volatile PKHttpTransport httpTransport = new DefaultHttpTransport();
+
 
     static {
         PKLog.i("PlayKitManager", "PlayKit " + VERSION_STRING);
@@ -67,6 +73,84 @@ public class PlayKitManager {
     }
 
 
+    /**
+     * Create players' engines in advance, while the main thread is idle, and reuse the engines of destroyed players.
+     * A player loaded on the main thread gets a ready engine instead of creating one on its first prepare().
+     * The pooled engines use the application context. Call {@link #releasePlayerPool()} when the players are no longer needed.
+     *
+     * @param context  - any context of the app, the pool only keeps its application context.
+     * @param poolSize - number of engines to keep ready.
+     */
+    public static void warmUpPlayerPool(Context context, int poolSize) {
+        PlayerPool.warmUp(context, poolSize);
+    }
+
+    public static void releasePlayerPool() {
+        PlayerPool.clear();
+    }
+
+    public static PlayerPool.Stats getPlayerPoolStats() {
+        return PlayerPool.getStats();
+    }
+
+    /**
+     * @return - hit/miss and bytes-saved counters of the media cache enabled with {@link Player.Settings#setMediaCache}.
+     */
+    public static MediaCache.Stats getMediaCacheStats() {
+        return MediaCache.getStats();
+    }
+
+    /**
+     * Download and parse the manifest of a media entry that may be played soon, for players with
+     * default settings. Use {@link Player#prefetchManifest(PKMediaEntry)} for a player that adapts its requests.
+     */
+    public static void prefetchManifest(Context context, PKMediaEntry mediaEntry) {
+        ManifestCache.prefetch(context, mediaEntry);
+    }
+
+    /**
+     * Set how long prefetched manifests are used, default is {@link ManifestCache#DEFAULT_TIME_TO_LIVE_MS}.
+     */
+    public static void setManifestCacheTimeToLive(long timeToLiveMs) {
+        ManifestCache.setTimeToLive(timeToLiveMs);
+    }
+
+    /**
+     * Set how long licenses prefetched with {@link Player#prefetchLicense(PKMediaEntry)} are kept, unless they expire
+     * earlier. Default is {@link LicenseCache#DEFAULT_TIME_TO_LIVE_MS}.
+     */
+    public static void setLicenseCacheTimeToLive(long timeToLiveMs) {
+        LicenseCache.setTimeToLive(timeToLiveMs);
+    }
+
+    /**
+     * @return - prefetch count and latency, hit/miss counters and the latency of the licenses requested by players.
+     */
+    public static LicenseCache.Stats getLicenseCacheStats() {
+        return LicenseCache.getStats();
+    }
+
+    /**
+     * Close the DRM sessions of the prefetched licenses.
+     */
+    public static void clearLicenseCache() {
+        LicenseCache.clear();
+    }
+
+    /**
+     * Install the HTTP transport of all the players and of the SDK's own requests.
+     * Applies to players prepared after the call.
+     *
+     * @param httpTransport - the transport, or null to restore the {@link DefaultHttpTransport}.
+     */
+    public static void setHttpTransport(@Nullable PKHttpTransport httpTransport) {
+        PlayKitManager.httpTransport = httpTransport != null ? httpTransport : new DefaultHttpTransport();
+    }
+
+    public static PKHttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+
     public static void disableDeviceCapabilitiesReport() {
         shouldSendDeviceCapabilitiesReport = false;
     }
@@ -24,14 +24,31 @@ public class PlaybackInfo {
     private long videoThroughput;
     private long videoWidth;
     private long videoHeight;
+    private long initialVideoThroughput;
+    private long minBufferMs;
+    private long maxBufferMs;
+    private long targetBufferBytes;
+    private long timeToFirstFrameMs;
+    private int rebufferCount;
 
 
     public PlaybackInfo(long videoBitrate, long audioBitrate, long videoThroughput, long videoWidth, long videoHeight) {
+        this(videoBitrate, audioBitrate, videoThroughput, videoWidth, videoHeight, -1, -1, -1, -1, -1, 0);
+    }
+
+    public PlaybackInfo(long videoBitrate, long audioBitrate, long videoThroughput, long videoWidth, long videoHeight, long initialVideoThroughput,
+                        long minBufferMs, long maxBufferMs, long targetBufferBytes, long timeToFirstFrameMs, int rebufferCount) {
         this.videoBitrate = videoBitrate;
         this.audioBitrate = audioBitrate;
         this.videoThroughput = videoThroughput;
         this.videoWidth = videoWidth;
         this.videoHeight = videoHeight;
+        this.initialVideoThroughput = initialVideoThroughput;
+        this.minBufferMs = minBufferMs;
+        this.maxBufferMs = maxBufferMs;
+        this.targetBufferBytes = targetBufferBytes;
+        this.timeToFirstFrameMs = timeToFirstFrameMs;
+        this.rebufferCount = rebufferCount;
     }
 
     /**
@@ -69,13 +86,64 @@ public class PlaybackInfo {
         return videoHeight;
     }
 
+    /**
+     * @return - the throughput estimate the player started with, saved by earlier players on the same
+     * network type (also in earlier app launches). -1 if the player started without one.
+     */
+    public long getInitialVideoThroughput() {
+        return initialVideoThroughput;
+    }
+
+    /**
+     * @return - the duration of media that the player currently tries to keep buffered at all times.
+     */
+    public long getMinBufferMs() {
+        return minBufferMs;
+    }
+
+    /**
+     * @return - the current maximum duration of media that the player buffers.
+     */
+    public long getMaxBufferMs() {
+        return maxBufferMs;
+    }
+
+    /**
+     * @return - the current buffer size above which the player stops loading once the min buffer is reached,
+     * -1 when the default of the selected tracks is used.
+     */
+    public long getTargetBufferBytes() {
+        return targetBufferBytes;
+    }
+
+    /**
+     * @return - time from the start of loading the current media to its first rendered video frame,
+     * -1 before the first frame and for media without video.
+     */
+    public long getTimeToFirstFrameMs() {
+        return timeToFirstFrameMs;
+    }
+
+    /**
+     * @return - number of times the current media stopped playing to buffer, not counting seeks.
+     */
+    public int getRebufferCount() {
+        return rebufferCount;
+    }
+
     @Override
     public String toString() {
         String sb = "videoBitrate =" + videoBitrate + System.getProperty("line.separator") +
                 "audioBitrate =" + audioBitrate + System.getProperty("line.separator") +
                 "videoThroughput =" + videoThroughput + System.getProperty("line.separator") +
                 "videoWidth =" + videoWidth + System.getProperty("line.separator") +
-                "videoHeight =" + videoHeight + System.getProperty("line.separator");
+                "videoHeight =" + videoHeight + System.getProperty("line.separator") +
+                "initialVideoThroughput =" + initialVideoThroughput + System.getProperty("line.separator") +
+                "minBufferMs =" + minBufferMs + System.getProperty("line.separator") +
+                "maxBufferMs =" + maxBufferMs + System.getProperty("line.separator") +
+                "targetBufferBytes =" + targetBufferBytes + System.getProperty("line.separator") +
+                "timeToFirstFrameMs =" + timeToFirstFrameMs + System.getProperty("line.separator") +
+                "rebufferCount =" + rebufferCount + System.getProperty("line.separator");
         return sb;
     }
 }
@@ -15,9 +15,14 @@ package com.kaltura.playkit;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.kaltura.playkit.player.AbrSettings;
+import com.kaltura.playkit.player.LoadErrorPolicy;
 import com.kaltura.playkit.player.LoadControlBuffers;
+import com.kaltura.playkit.player.MediaCacheSettings;
 import com.kaltura.playkit.player.PlayerView;
+import com.kaltura.playkit.player.QualityGovernorPolicy;
 import com.kaltura.playkit.player.SubtitleStyleSettings;
+import com.kaltura.playkit.player.abr.AbrStrategy;
 import com.kaltura.playkit.utils.Consts;
 
 /**
@@ -116,6 +121,76 @@ public interface Player {
          */
         Settings setPlayerBuffers(LoadControlBuffers loadControlBuffers);
 
+        /**
+         * Enable the on-disk cache of VOD segments and manifests, shared by all the players.
+         * Replays and seeks outside the buffer are then served from the disk instead of the network.
+         * Disabled by default. Applied on the next prepare.
+         *
+         * @param mediaCacheSettings - cache size, directory and keying. null to disable.
+         * @return - Player Settings.
+         */
+        Settings setMediaCache(MediaCacheSettings mediaCacheSettings);
+
+        /**
+         * Set the ABR constraints: min and max video bitrate, max video height and max frame rate.
+         * Applied when the player is created; use {@link Player#updateAbrSettings(AbrSettings)} to change them during playback.
+         *
+         * @param abrSettings - the constraints, null to remove them.
+         * @return - Player Settings.
+         */
+        Settings setAbrSettings(AbrSettings abrSettings);
+
+        /**
+         * Set the retries of failed manifest and segment loads: retry counts per request type, exponential
+         * backoff with jitter, and whether 4xx responses fail right away. 5xx responses and timeouts are retried.
+         * Retries are counted in QoeMetrics. Applied to the next media.
+         *
+         * @param loadErrorPolicy - the retry policy, null for the default one.
+         * @return - Player Settings.
+         */
+        Settings setLoadErrorPolicy(LoadErrorPolicy loadErrorPolicy);
+
+        /**
+         * Set the algorithm that switches between the video renditions, e.g. {@link com.kaltura.playkit.player.abr.ThroughputAbrStrategy}
+         * or {@link com.kaltura.playkit.player.abr.BolaAbrStrategy}. By default ExoPlayer's throughput based selection is used.
+         * Applied when the player is created.
+         *
+         * @param abrStrategy - the strategy, null for the default one.
+         * @return - Player Settings.
+         */
+        Settings setAbrStrategy(AbrStrategy abrStrategy);
+
+        /**
+         * Enable the quality governor, which lowers the max video height and frame rate while the device is hot,
+         * in power save mode or low on battery, and restores them when the conditions recover.
+         * Every decision is sent with the QUALITY_GOVERNOR_CHANGED event. Disabled by default.
+         * Applied when the player is created.
+         *
+         * @param qualityGovernorPolicy - the thresholds and constraints of the governor, null to disable it.
+         * @return - Player Settings.
+         */
+        Settings setQualityGovernor(QualityGovernorPolicy qualityGovernorPolicy);
+
+        /**
+         * Set the interval of the QOE_UPDATED event, sent while the player plays or stalls.
+         * Default is 10 seconds.
+         *
+         * @param intervalMs - interval in milliseconds, 0 to disable the event.
+         * @return - Player Settings.
+         */
+        Settings setQoeUpdateInterval(long intervalMs);
+
+        /**
+         * Set how many times a media may switch to another of its sources after a source or DRM error,
+         * resuming at the position of the failure. Each switch is sent with the SOURCE_SWITCHED event,
+         * the ERROR event is sent only when no retry or source is left.
+         * Default is 2.
+         *
+         * @param retries - max source switches per media, 0 to send the error right away.
+         * @return - Player Settings.
+         */
+        Settings setSourceFailoverRetries(int retries);
+
         /**
          * Set the Player's VR/360 support
          *
@@ -155,6 +230,17 @@ public interface Player {
          * @return - Player Settings
          */
         Settings setSubtitleStyle(SubtitleStyleSettings subtitleStyleSettings);
+
+        /**
+         * Enable/disable batched event delivery. When enabled, events that are fired within the same
+         * main looper turn are delivered together, and only the latest PLAYHEAD_UPDATED,
+         * PLAYBACK_INFO_UPDATED and VOLUME_CHANGED of a batch reach the listeners.
+         * By default it is disabled. Applied on the next prepare.
+         *
+         * @param eventBatchingEnabled - true if events should be delivered in batches.
+         * @return - Player Settings.
+         */
+        Settings setEventBatchingEnabled(boolean eventBatchingEnabled);
     }
 
     /**
@@ -171,6 +257,36 @@ public interface Player {
      */
     void prepare(@NonNull PKMediaConfig playerConfig);
 
+    /**
+     * Prepare the media that plays when the current media ends. The next media is buffered while the current
+     * one plays, and starts without a gap. MEDIA_ENTRY_CHANGED is sent when it starts.
+     * Live media, and DRM protected media with a different license URL than the current media, can't be played
+     * seamlessly - they are prepared and played when the current media ends.
+     * Calling it again replaces the next media. Calling {@link #prepare(PKMediaConfig)} cancels it.
+     *
+     * @param mediaConfig - media configurations of the next media.
+     */
+    void prepareNext(@NonNull PKMediaConfig mediaConfig);
+
+    /**
+     * Download and parse the manifest of a media entry that may be played soon, so {@link #prepare(PKMediaConfig)}
+     * doesn't wait for it. Prefetched manifests are kept in memory for a limited time, see
+     * {@link PlayKitManager#setManifestCacheTimeToLive(long)}. Only VOD DASH and HLS manifests are prefetched.
+     *
+     * @param mediaEntry - the media entry.
+     */
+    void prefetchManifest(@NonNull PKMediaEntry mediaEntry);
+
+    /**
+     * Acquire the Widevine license of a media entry that may be played soon, so {@link #prepare(PKMediaConfig)}
+     * doesn't wait for it. The PSSH is read from the manifest, which is prefetched as well. The license is kept
+     * loaded in an open DRM session for a limited time, or until it expires. Only VOD DASH entries are supported,
+     * and the license request uses the license request adapter of this player.
+     *
+     * @param mediaEntry - the media entry.
+     */
+    void prefetchLicense(@NonNull PKMediaEntry mediaEntry);
+
     void updatePluginConfig(@NonNull String pluginName, @Nullable Object pluginConfig);
 
     /**
@@ -262,6 +378,17 @@ public interface Player {
      */
     PKEvent.Listener addEventListener(@NonNull PKEvent.Listener listener, Enum... events);
 
+    /**
+     * Add event listener to the player, throttled to the requested interval.
+     * For example, a scrubber can listen to PLAYHEAD_UPDATED every 100 ms while analytics listen every second.
+     * The player samples the playhead only as often as its listeners require, and not at all if there are none.
+     *
+     * @param listener      - event listener.
+     * @param minIntervalMs - minimal interval between two events delivered to this listener, 0 for no throttling.
+     * @param events        - events the subscriber interested in.
+     */
+    PKEvent.Listener addEventListener(@NonNull PKEvent.Listener listener, long minIntervalMs, Enum... events);
+
     /**
      * Remove event listener to the player.
      *
@@ -350,10 +477,25 @@ public interface Player {
      */
     <T extends PKController> T getController(Class<T> type);
 
+    /**
+     * Get the quality of experience metrics of the current media: stalls, dropped frames, bitrate switches
+     * and average bitrate. The same metrics are sent periodically with the QOE_UPDATED event.
+     *
+     * @return - a snapshot of the metrics, or null if the current player engine doesn't support them.
+     */
+    @Nullable
+    QoeMetrics getQoeMetrics();
+
     /**
      * Update Subtitle Styles
      */
     void updateSubtitleStyle(SubtitleStyleSettings subtitleStyleSettings);
 
+    /**
+     * Update the ABR constraints of the current playback, without preparing the media again.
+     * The new constraints are also kept in the player settings.
+     */
+    void updateAbrSettings(AbrSettings abrSettings);
+
 }
 
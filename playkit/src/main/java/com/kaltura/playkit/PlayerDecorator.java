@@ -34,6 +34,11 @@ public abstract class PlayerDecorator extends PlayerDecoratorBase {
         return super.addEventListener(listener, events);
     }
 
+    @Override
+    final public PKEvent.Listener addEventListener(@NonNull PKEvent.Listener listener, long minIntervalMs, Enum... events) {
+        return super.addEventListener(listener, minIntervalMs, events);
+    }
+
     @Override
     final public void removeEventListener(@NonNull PKEvent.Listener listener, Enum... events) {
         super.removeEventListener(listener, events);
@@ -15,6 +15,7 @@ package com.kaltura.playkit;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.kaltura.playkit.player.AbrSettings;
 import com.kaltura.playkit.player.PlayerView;
 import com.kaltura.playkit.player.SubtitleStyleSettings;
 
@@ -30,6 +31,21 @@ public class PlayerDecoratorBase implements Player {
         player.prepare(mediaConfig);
     }
 
+    @Override
+    public void prepareNext(@NonNull PKMediaConfig mediaConfig) {
+        player.prepareNext(mediaConfig);
+    }
+
+    @Override
+    public void prefetchManifest(@NonNull PKMediaEntry mediaEntry) {
+        player.prefetchManifest(mediaEntry);
+    }
+
+    @Override
+    public void prefetchLicense(@NonNull PKMediaEntry mediaEntry) {
+        player.prefetchLicense(mediaEntry);
+    }
+
     @Override
     public long getDuration() {
         return player.getDuration();
@@ -50,6 +66,11 @@ public class PlayerDecoratorBase implements Player {
         return player.getController(type);
     }
 
+    @Override
+    public QoeMetrics getQoeMetrics() {
+        return player.getQoeMetrics();
+    }
+
     @Override
     public final String getSessionId() {
         return player.getSessionId();
@@ -125,6 +146,11 @@ public class PlayerDecoratorBase implements Player {
         return player.addEventListener(listener, events);
     }
 
+    @Override
+    public PKEvent.Listener addEventListener(@NonNull PKEvent.Listener listener, long minIntervalMs, Enum... events) {
+        return player.addEventListener(listener, minIntervalMs, events);
+    }
+
     @Override
     public void removeEventListener(@NonNull PKEvent.Listener listener, Enum... events) {
         player.removeEventListener(listener);
@@ -185,4 +211,9 @@ public class PlayerDecoratorBase implements Player {
         player.updateSubtitleStyle(subtitleStyleSettings);
     }
 
+    @Override
+    public void updateAbrSettings(AbrSettings abrSettings) {
+        player.updateAbrSettings(abrSettings);
+    }
+
 }
@@ -14,6 +14,7 @@ package com.kaltura.playkit;
 
 import com.kaltura.playkit.player.AudioTrack;
 import com.kaltura.playkit.player.PKTracks;
+import com.kaltura.playkit.player.QualityGovernorStatus;
 import com.kaltura.playkit.player.TextTrack;
 import com.kaltura.playkit.player.VideoTrack;
 import com.kaltura.playkit.player.metadata.PKMetadata;
@@ -104,6 +105,60 @@ public class PlayerEvent implements PKEvent {
         }
     }
 
+    public static class SourceSwitched extends PlayerEvent {
+
+        public final PKMediaSource source;
+        public final PKMediaSource failedSource;
+        public final PKError reason;
+
+        public SourceSwitched(PKMediaSource source, PKMediaSource failedSource, PKError reason) {
+            super(Type.SOURCE_SWITCHED);
+            this.source = source;
+            this.failedSource = failedSource;
+            this.reason = reason;
+        }
+    }
+
+    public static class MediaEntryChanged extends PlayerEvent {
+
+        public final PKMediaConfig mediaConfig;
+
+        public MediaEntryChanged(PKMediaConfig mediaConfig) {
+            super(Type.MEDIA_ENTRY_CHANGED);
+            this.mediaConfig = mediaConfig;
+        }
+    }
+
+    public static class StartupMetrics extends PlayerEvent {
+
+        public final StartupTrace startupTrace;
+
+        public StartupMetrics(StartupTrace startupTrace) {
+            super(Type.STARTUP_METRICS);
+            this.startupTrace = startupTrace;
+        }
+    }
+
+    public static class QualityGovernorChanged extends PlayerEvent {
+
+        public final QualityGovernorStatus status;
+
+        public QualityGovernorChanged(QualityGovernorStatus status) {
+            super(Type.QUALITY_GOVERNOR_CHANGED);
+            this.status = status;
+        }
+    }
+
+    public static class QoeUpdated extends PlayerEvent {
+
+        public final QoeMetrics qoeMetrics;
+
+        public QoeUpdated(QoeMetrics qoeMetrics) {
+            super(Type.QOE_UPDATED);
+            this.qoeMetrics = qoeMetrics;
+        }
+    }
+
     public static class PlayheadUpdated extends PlayerEvent {
 
         public final long position;
@@ -212,12 +267,17 @@ public class PlayerEvent implements PKEvent {
         STOPPED, // sent when stop player api is called
         METADATA_AVAILABLE, // Sent when there is metadata available for this entry.
         SOURCE_SELECTED, // Sent when the source was selected.
-        PLAYHEAD_UPDATED, //Send player position every 100 Milisec
+        PLAYHEAD_UPDATED, //Send player position every 100 Milisec, or in the interval requested by the listeners
         VIDEO_TRACK_CHANGED,
         AUDIO_TRACK_CHANGED,
         TEXT_TRACK_CHANGED,
         PLAYBACK_RATE_CHANGED,
-        SUBTITLE_STYLE_CHANGED //Send when subtitle style is changed.
+        SUBTITLE_STYLE_CHANGED, //Send when subtitle style is changed.
+        MEDIA_ENTRY_CHANGED, // Sent when the media prepared with prepareNext() starts playing after the previous media.
+        STARTUP_METRICS, // Sent when the first frame of the media is rendered. Holds the StartupTrace.java object with the time of each startup phase.
+        QOE_UPDATED, // Sent periodically while playing. Holds the QoeMetrics.java object with the quality of experience metrics of the media.
+        QUALITY_GOVERNOR_CHANGED, // Sent when the quality governor changes the allowed video quality. Holds the QualityGovernorStatus.java object.
+        SOURCE_SWITCHED // Sent when the player switches to another source of the media after an error. Holds the new source, the failed one and the error.
     }
 
     @Override
@@ -13,11 +13,15 @@
 package com.kaltura.playkit;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.kaltura.playkit.player.PlayerController;
+import com.kaltura.playkit.player.PlayerSettings;
 import com.kaltura.playkit.plugins.playback.KalturaPlaybackRequestAdapter;
+import com.kaltura.playkit.utils.Consts;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -47,10 +51,12 @@ class PlayerLoader extends PlayerDecoratorBase {
 
     private Map<String, LoadedPlugin> loadedPlugins = new LinkedHashMap<>();
     private PlayerController playerController;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     PlayerLoader(Context context) {
         this.context = context;
         this.messageBus = new MessageBus();
+        messageBus.setCoalescedEventTypes(PlayerEvent.Type.PLAYHEAD_UPDATED, PlayerEvent.Type.PLAYBACK_INFO_UPDATED, PlayerEvent.Type.VOLUME_CHANGED);
     }
 
     public void load(@NonNull PKPluginConfigs pluginsConfig) {
@@ -64,9 +70,20 @@ class PlayerLoader extends PlayerDecoratorBase {
             @Override
             public void onEvent(PKEvent event) {
                 messageBus.post(event);
+                onPlayerEvent(event);
             }
         });
 
+        messageBus.setSubscriptionObserver(new MessageBus.SubscriptionObserver() {
+            @Override
+            public void onSubscriptionsChanged(Enum eventType) {
+                if (eventType == PlayerEvent.Type.PLAYHEAD_UPDATED) {
+                    updatePlayheadUpdateInterval();
+                }
+            }
+        });
+        updatePlayheadUpdateInterval();
+
         Player player = playerController;
 
         for (Map.Entry<String, Object> entry : pluginsConfig) {
@@ -123,6 +140,37 @@ class PlayerLoader extends PlayerDecoratorBase {
         getPlayer().onApplicationPaused();
     }
 
+    private void onPlayerEvent(PKEvent event) {
+        if (event.eventType() == PlayerEvent.Type.MEDIA_ENTRY_CHANGED) {
+            notifyPluginsMediaUpdated(((PlayerEvent.MediaEntryChanged) event).mediaConfig);
+        } else if (event.eventType() == PlayerEvent.Type.ENDED && playerController != null) {
+            final PKMediaConfig nextMediaConfig = playerController.takePendingNextMedia();
+            if (nextMediaConfig != null) {
+                // Don't re-prepare from within the engine's callback.
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        prepare(nextMediaConfig);
+                        play();
+                    }
+                });
+            }
+        }
+    }
+
+    private void notifyPluginsMediaUpdated(PKMediaConfig mediaConfig) {
+        for (Map.Entry<String, LoadedPlugin> loadedPluginEntry : loadedPlugins.entrySet()) {
+            loadedPluginEntry.getValue().plugin.onUpdateMedia(mediaConfig);
+        }
+    }
+
+    private void updatePlayheadUpdateInterval() {
+        PlayerController controller = playerController;
+        if (controller != null) {
+            controller.setPlayheadUpdateInterval(messageBus.getMinInterval(PlayerEvent.Type.PLAYHEAD_UPDATED, Consts.DEFAULT_PLAYHEAD_UPDATE_MILI));
+        }
+    }
+
     private void releasePlayer() {
         getPlayer().destroy();
     }
@@ -136,11 +184,11 @@ class PlayerLoader extends PlayerDecoratorBase {
             return;
         }
 
+        messageBus.setBatchingEnabled(((PlayerSettings) playerController.getSettings()).isEventBatchingEnabled());
+
         super.prepare(mediaConfig);
 
-        for (Map.Entry<String, LoadedPlugin> loadedPluginEntry : loadedPlugins.entrySet()) {
-            loadedPluginEntry.getValue().plugin.onUpdateMedia(mediaConfig);
-        }
+        notifyPluginsMediaUpdated(mediaConfig);
     }
 
     private void releasePlugins() {
@@ -183,6 +231,11 @@ class PlayerLoader extends PlayerDecoratorBase {
         return messageBus.listen(listener, events);
     }
 
+    @Override
+    public PKEvent.Listener addEventListener(@NonNull PKEvent.Listener listener, long minIntervalMs, Enum... events) {
+        return messageBus.listen(listener, MessageBus.MAIN_THREAD, minIntervalMs, events);
+    }
+
     @Override
     public void removeEventListener(@NonNull PKEvent.Listener listener, Enum... events) {
         messageBus.remove(listener, events);
@@ -0,0 +1,122 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit;
+
+/**
+ * Snapshot of the quality of experience of the current media, since it was prepared.
+ */
+public class QoeMetrics {
+
+    private final long playingTimeMs;
+    private final int stallCount;
+    private final long stallDurationMs;
+    private final long droppedFrames;
+    private final int bitrateSwitchCount;
+    private final long averageVideoBitrate;
+    private final long timeToFirstFrameMs;
+    private final int manifestRetryCount;
+    private final int segmentRetryCount;
+
+    public QoeMetrics(long playingTimeMs, int stallCount, long stallDurationMs, long droppedFrames,
+                      int bitrateSwitchCount, long averageVideoBitrate, long timeToFirstFrameMs,
+                      int manifestRetryCount, int segmentRetryCount) {
+        this.playingTimeMs = playingTimeMs;
+        this.stallCount = stallCount;
+        this.stallDurationMs = stallDurationMs;
+        this.droppedFrames = droppedFrames;
+        this.bitrateSwitchCount = bitrateSwitchCount;
+        this.averageVideoBitrate = averageVideoBitrate;
+        this.timeToFirstFrameMs = timeToFirstFrameMs;
+        this.manifestRetryCount = manifestRetryCount;
+        this.segmentRetryCount = segmentRetryCount;
+    }
+
+    /**
+     * @return - time spent playing, not counting pauses and buffering.
+     */
+    public long getPlayingTimeMs() {
+        return playingTimeMs;
+    }
+
+    /**
+     * @return - number of times playback stopped to buffer, not counting seeks.
+     */
+    public int getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * @return - total time of the stalls.
+     */
+    public long getStallDurationMs() {
+        return stallDurationMs;
+    }
+
+    /**
+     * @return - share of the stalls in the time the user wanted to play, between 0 and 1.
+     */
+    public double getRebufferRatio() {
+        long totalMs = playingTimeMs + stallDurationMs;
+        return totalMs > 0 ? (double) stallDurationMs / totalMs : 0;
+    }
+
+    /**
+     * @return - number of video frames dropped by the renderer.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @return - number of times the played video bitrate changed.
+     */
+    public int getBitrateSwitchCount() {
+        return bitrateSwitchCount;
+    }
+
+    /**
+     * @return - video bitrate averaged over the playing time, -1 if unknown.
+     */
+    public long getAverageVideoBitrate() {
+        return averageVideoBitrate;
+    }
+
+    /**
+     * @return - time from the start of loading to the first rendered video frame, -1 if there was none.
+     */
+    public long getTimeToFirstFrameMs() {
+        return timeToFirstFrameMs;
+    }
+
+    /**
+     * @return - number of manifest and playlist loads retried after a network error.
+     */
+    public int getManifestRetryCount() {
+        return manifestRetryCount;
+    }
+
+    /**
+     * @return - number of segment and progressive media loads retried after a network error.
+     */
+    public int getSegmentRetryCount() {
+        return segmentRetryCount;
+    }
+
+    @Override
+    public String toString() {
+        return "QoeMetrics{playingTimeMs=" + playingTimeMs + ", stallCount=" + stallCount + ", stallDurationMs=" + stallDurationMs +
+                ", rebufferRatio=" + getRebufferRatio() + ", droppedFrames=" + droppedFrames + ", bitrateSwitchCount=" + bitrateSwitchCount +
+                ", averageVideoBitrate=" + averageVideoBitrate + ", timeToFirstFrameMs=" + timeToFirstFrameMs +
+                ", manifestRetryCount=" + manifestRetryCount + ", segmentRetryCount=" + segmentRetryCount + "}";
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit;
+
+import android.os.SystemClock;
+
+/**
+ * Timestamps of the startup phases of a media, from setMedia() to its first rendered frame.
+ * Timestamps are {@link SystemClock#elapsedRealtime()} milliseconds, -1 for phases that didn't happen
+ * (e.g. no DRM license for clear media).
+ */
+public class StartupTrace {
+
+    public enum Phase {
+        SET_MEDIA, // setMedia() was called
+        SOURCE_SELECTED, // The source was selected
+        PREPARE, // prepare() was called
+        ENGINE_READY, // The player engine was created, or the existing one kept
+        PLAYER_INITIALIZED, // The engine finished initializing and started loading the media
+        MANIFEST_LOADED, // The first manifest was loaded
+        DRM_LICENSE_LOADED, // The first DRM license was loaded
+        FIRST_READY, // The player buffered enough to play
+        FIRST_FRAME // The first video frame was rendered
+    }
+
+    private final long[] timestamps = new long[Phase.values().length];
+
+    public StartupTrace() {
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = -1;
+        }
+    }
+
+    /**
+     * Record the time of a phase. Only the first time of each phase is kept.
+     *
+     * @hide
+     */
+    public void mark(Phase phase) {
+        if (timestamps[phase.ordinal()] == -1) {
+            timestamps[phase.ordinal()] = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * @return - the time of the phase, or -1 if it didn't happen.
+     */
+    public long getTimestamp(Phase phase) {
+        return timestamps[phase.ordinal()];
+    }
+
+    /**
+     * @return - the time between two phases, or -1 if one of them didn't happen.
+     */
+    public long getDuration(Phase from, Phase to) {
+        long fromTime = getTimestamp(from);
+        long toTime = getTimestamp(to);
+        return fromTime == -1 || toTime == -1 ? -1 : toTime - fromTime;
+    }
+
+    /**
+     * @return - the time from setMedia() to the first rendered frame, or -1.
+     */
+    public long getTimeToFirstFrameMs() {
+        return getDuration(Phase.SET_MEDIA, Phase.FIRST_FRAME);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("StartupTrace{");
+        long start = getTimestamp(Phase.SET_MEDIA);
+        for (Phase phase : Phase.values()) {
+            long timestamp = getTimestamp(phase);
+            if (timestamp != -1) {
+                sb.append(phase.name()).append("=+").append(start != -1 ? timestamp - start : timestamp).append("ms ");
+            }
+        }
+        return sb.append("}").toString();
+    }
+}
@@ -20,16 +20,11 @@ import android.util.Log;
 
 import com.google.gson.JsonObject;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.Serializable;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -118,34 +113,15 @@ public class Utils {
         return Base64.encodeToString(data, Base64.NO_WRAP);
     }
 
+    /**
+     * Execute a POST request through the installed {@link PKHttpTransport}.
+     */
     public static byte[] executePost(String url, byte[] data, Map<String, String> requestProperties)
             throws MalformedURLException, IOException {
-        HttpURLConnection urlConnection = null;
-        try {
-            urlConnection = (HttpURLConnection) new URL(url).openConnection();
-            urlConnection.setRequestMethod("POST");
-            urlConnection.setDoOutput(data != null);
-            urlConnection.setDoInput(true);
-            if (requestProperties != null) {
-                for (Map.Entry<String, String> requestProperty : requestProperties.entrySet()) {
-                    urlConnection.setRequestProperty(requestProperty.getKey(), requestProperty.getValue());
-                }
-            }
-            if (data != null) {
-                OutputStream out = new BufferedOutputStream(urlConnection.getOutputStream());
-                out.write(data);
-                out.close();
-            }
-            InputStream in = new BufferedInputStream(urlConnection.getInputStream());
-            return convertInputStreamToByteArray(in);
-        } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-        }
+        return PlayKitManager.getHttpTransport().executePost(url, data, requestProperties);
     }
 
-    private static byte[] convertInputStreamToByteArray(InputStream inputStream) throws IOException {
+    static byte[] convertInputStreamToByteArray(InputStream inputStream) throws IOException {
         byte[] bytes;
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         byte data[] = new byte[1024];
@@ -0,0 +1,117 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+package com.kaltura.playkit;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Snapshot of the video renderer performance counters, since the player was created.
+ * Used to correlate stutter with specific devices and decoders.
+ */
+public class VideoRendererStats {
+
+    private final int renderedFrames;
+    private final int droppedFrames;
+    private final int skippedFrames;
+    private final int maxConsecutiveDroppedFrames;
+    private final String decoderName;
+    private final long decoderInitializationTimeMs;
+    private final int outputFormatChangeCount;
+    private final int dummySurfaceUseCount;
+    private final boolean usingDummySurface;
+
+    public VideoRendererStats(int renderedFrames, int droppedFrames, int skippedFrames, int maxConsecutiveDroppedFrames,
+                              String decoderName, long decoderInitializationTimeMs, int outputFormatChangeCount,
+                              int dummySurfaceUseCount, boolean usingDummySurface) {
+        this.renderedFrames = renderedFrames;
+        this.droppedFrames = droppedFrames;
+        this.skippedFrames = skippedFrames;
+        this.maxConsecutiveDroppedFrames = maxConsecutiveDroppedFrames;
+        this.decoderName = decoderName;
+        this.decoderInitializationTimeMs = decoderInitializationTimeMs;
+        this.outputFormatChangeCount = outputFormatChangeCount;
+        this.dummySurfaceUseCount = dummySurfaceUseCount;
+        this.usingDummySurface = usingDummySurface;
+    }
+
+    /**
+     * @return - number of frames rendered to the surface.
+     */
+    public int getRenderedFrames() {
+        return renderedFrames;
+    }
+
+    /**
+     * @return - number of frames dropped because they were late.
+     */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @return - number of frames skipped: decode-only frames after a seek, and frames decoded while there was no surface.
+     */
+    public int getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * @return - the longest run of dropped frames.
+     */
+    public int getMaxConsecutiveDroppedFrames() {
+        return maxConsecutiveDroppedFrames;
+    }
+
+    /**
+     * @return - name of the last initialized decoder (e.g. OMX.qcom.video.decoder.avc), null if none was initialized.
+     */
+    @Nullable
+    public String getDecoderName() {
+        return decoderName;
+    }
+
+    /**
+     * @return - initialization time of the last initialized decoder, -1 if none was initialized.
+     */
+    public long getDecoderInitializationTimeMs() {
+        return decoderInitializationTimeMs;
+    }
+
+    /**
+     * @return - number of times the decoder output format (e.g. the video size) changed.
+     */
+    public int getOutputFormatChangeCount() {
+        return outputFormatChangeCount;
+    }
+
+    /**
+     * @return - number of times the renderer kept decoding on a dummy surface because the player surface was gone.
+     */
+    public int getDummySurfaceUseCount() {
+        return dummySurfaceUseCount;
+    }
+
+    /**
+     * @return - true if the renderer currently decodes to a dummy surface.
+     */
+    public boolean isUsingDummySurface() {
+        return usingDummySurface;
+    }
+
+    @Override
+    public String toString() {
+        return "VideoRendererStats{renderedFrames=" + renderedFrames + ", droppedFrames=" + droppedFrames + ", skippedFrames=" + skippedFrames +
+                ", maxConsecutiveDroppedFrames=" + maxConsecutiveDroppedFrames + ", decoderName=" + decoderName +
+                ", decoderInitializationTimeMs=" + decoderInitializationTimeMs + ", outputFormatChangeCount=" + outputFormatChangeCount +
+                ", dummySurfaceUseCount=" + dummySurfaceUseCount + ", usingDummySurface=" + usingDummySurface + "}";
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+package com.kaltura.playkit;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Controller of the video renderer performance counters, obtained with
+ * {@code player.getController(VideoRendererStatsController.class)}. Null if the player engine doesn't support it.
+ */
+public interface VideoRendererStatsController extends PKController {
+
+    /**
+     * @return - a snapshot of the counters since the player was created, or null before the player is initialized.
+     */
+    @Nullable
+    VideoRendererStats getVideoRendererStats();
+}
@@ -15,13 +15,16 @@ package com.kaltura.playkit.drm;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.drm.DefaultDrmSessionEventListener;
 import com.google.android.exoplayer2.drm.DefaultDrmSessionManager;
 import com.google.android.exoplayer2.drm.DrmInitData;
 import com.google.android.exoplayer2.drm.DrmSession;
 import com.google.android.exoplayer2.drm.DrmSessionManager;
 import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
+import com.google.android.exoplayer2.drm.FrameworkMediaDrm;
 import com.google.android.exoplayer2.drm.HttpMediaDrmCallback;
 import com.google.android.exoplayer2.drm.UnsupportedDrmException;
 import com.google.android.exoplayer2.extractor.mp4.PsshAtomUtil;
@@ -55,9 +58,19 @@ public class DeferredDrmSessionManager implements DrmSessionManager<FrameworkMed
     private HttpDataSource.Factory dataSourceFactory;
     private LocalAssetsManager.LocalMediaSource localMediaSource = null;
     private DefaultDrmSessionManager<FrameworkMediaCrypto> drmSessionManager = null;
+    private String currentLicenseUrl;
+    private volatile long licenseRequestTimeMs = C.TIME_UNSET;
+    private final DrmSessionPool sessionPool = new DrmSessionPool();
 
     public interface DrmSessionListener {
         void onError(PKError error);
+
+        /**
+         * A DRM session failed, e.g. its license request. The renderers that use the session then fail the player with it.
+         */
+        void onSessionError(PKError error);
+
+        void onKeysLoaded();
     }
 
     public DeferredDrmSessionManager(Handler mainHandler, HttpDataSource.Factory factory, DrmSessionListener drmSessionListener) {
@@ -66,6 +79,22 @@ public class DeferredDrmSessionManager implements DrmSessionManager<FrameworkMed
         this.drmSessionListener = drmSessionListener;
     }
 
+    /**
+     * @return - true if the media source gets its license from the same URL as the current media source,
+     * so it can use the current sessions.
+     */
+    public boolean hasSameLicense(PKMediaSource mediaSource) {
+        if (drmSessionManager == null || localMediaSource != null || mediaSource instanceof LocalAssetsManager.LocalMediaSource) {
+            return false;
+        }
+        String licenseUrl = getLicenseUrl(mediaSource);
+        return licenseUrl != null && licenseUrl.equals(currentLicenseUrl);
+    }
+
+    public void setDataSourceFactory(HttpDataSource.Factory factory) {
+        this.dataSourceFactory = factory;
+    }
+
     public void setMediaSource(PKMediaSource mediaSource) {
         if (Util.SDK_INT < 18) {
             drmSessionManager = null;
@@ -79,7 +108,10 @@ public class DeferredDrmSessionManager implements DrmSessionManager<FrameworkMed
             } else {
                 licenseUrl = getLicenseUrl(mediaSource);
             }
-            drmSessionManager = DefaultDrmSessionManager.newWidevineInstance(new HttpMediaDrmCallback(licenseUrl, dataSourceFactory), null);
+            // A session per init data: the media of a playlist share the manager, and must not get the session of other keys.
+            drmSessionManager = new DefaultDrmSessionManager<>(MediaSupport.WIDEVINE_UUID, FrameworkMediaDrm.newInstance(MediaSupport.WIDEVINE_UUID),
+                    new HttpMediaDrmCallback(licenseUrl, dataSourceFactory), null, true);
+            currentLicenseUrl = licenseUrl;
             if (mainHandler != null) {
                 drmSessionManager.addListener(mainHandler, this);
             }
@@ -114,21 +146,67 @@ public class DeferredDrmSessionManager implements DrmSessionManager<FrameworkMed
                 PKError error = new PKError(PKPlayerErrorType.DRM_ERROR, "Failed to obtain offline licence from LocalDataStore. Requested key: " + Arrays.toString(schemeData.data) + ", for keysetId not found.", e);
                 drmSessionListener.onError(error);
             }
+        } else {
+            DrmInitData.SchemeData schemeData = getWidevineInitData(drmInitData);
+            String sessionKey = DrmSessionPool.getKey(currentLicenseUrl, schemeData);
+            // The renderers of the media (e.g. video and audio), and the next media with the same keys, share the open sessions.
+            DrmSession<FrameworkMediaCrypto> pooledSession = sessionPool.acquire(sessionKey, playbackLooper);
+            if (pooledSession != null) {
+                log.d("Using open DRM session");
+                if (pooledSession.getState() == DrmSession.STATE_OPENED_WITH_KEYS) {
+                    postKeysLoaded();
+                }
+                return pooledSession;
+            }
+            PrefetchedDrmSession prefetchedSession = LicenseCache.take(currentLicenseUrl, schemeData);
+            if (prefetchedSession != null) {
+                log.d("Using prefetched license");
+                prefetchedSession.acquire();
+                sessionPool.put(sessionKey, prefetchedSession);
+                postKeysLoaded();
+                return prefetchedSession;
+            }
+            licenseRequestTimeMs = SystemClock.elapsedRealtime();
+            if (sessionKey != null) {
+                SessionWrapper session = new SessionWrapper(playbackLooper, drmInitData, drmSessionManager);
+                sessionPool.put(sessionKey, session.share(playbackLooper));
+                return session;
+            }
         }
 
         return new SessionWrapper(playbackLooper, drmInitData, drmSessionManager);
     }
 
+    /**
+     * Release the sessions kept open for the next media. Must be called when the player is released.
+     */
+    public void releasePooledSessions() {
+        sessionPool.clear();
+    }
+
+    private void postKeysLoaded() {
+        if (mainHandler != null) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    drmSessionListener.onKeysLoaded();
+                }
+            });
+        }
+    }
+
     @Override
     public void releaseSession(DrmSession drmSession) {
         if (drmSession instanceof SessionWrapper) {
             ((SessionWrapper) drmSession).release();
+        } else if (drmSession instanceof PrefetchedDrmSession) {
+            ((PrefetchedDrmSession) drmSession).release();
         } else {
             throw new IllegalStateException("Can't release unknown session");
         }
     }
 
-    private DrmInitData.SchemeData getWidevineInitData(DrmInitData drmInitData) {
+    static DrmInitData.SchemeData getWidevineInitData(DrmInitData drmInitData) {
         if (drmInitData == null) {
             log.e("No PSSH in media");
             return null;
@@ -157,7 +235,7 @@ public class DeferredDrmSessionManager implements DrmSessionManager<FrameworkMed
         return schemeData;
     }
 
-    private String getLicenseUrl(PKMediaSource mediaSource) {
+    public static String getLicenseUrl(PKMediaSource mediaSource) {
         String licenseUrl = null;
 
         if (mediaSource.hasDrmParams()) {
@@ -176,13 +254,18 @@ public class DeferredDrmSessionManager implements DrmSessionManager<FrameworkMed
     @Override
     public void onDrmKeysLoaded() {
         log.d("onDrmKeysLoaded");
+        if (licenseRequestTimeMs != C.TIME_UNSET) {
+            LicenseCache.recordLicenseLatency(SystemClock.elapsedRealtime() - licenseRequestTimeMs);
+            licenseRequestTimeMs = C.TIME_UNSET;
+        }
+        drmSessionListener.onKeysLoaded();
     }
 
     @Override
     public void onDrmSessionManagerError(Exception e) {
         log.d("onDrmSessionManagerError");
         PKError error = new PKError(PKPlayerErrorType.DRM_ERROR, e.getMessage(), e);
-        drmSessionListener.onError(error);
+        drmSessionListener.onSessionError(error);
     }
 
     @Override
@@ -202,10 +285,20 @@ class SessionWrapper implements DrmSession<FrameworkMediaCrypto> {
 
     private DrmSession<FrameworkMediaCrypto> realDrmSession;
     private DrmSessionManager<FrameworkMediaCrypto> realDrmSessionManager;
+    private final DrmInitData drmInitData;
 
     SessionWrapper(Looper playbackLooper, DrmInitData drmInitData, DrmSessionManager<FrameworkMediaCrypto> drmSessionManager) {
         this.realDrmSession = drmSessionManager.acquireSession(playbackLooper, drmInitData);
         this.realDrmSessionManager = drmSessionManager;
+        this.drmInitData = drmInitData;
+    }
+
+    /**
+     * @return - a new reference to the session, for another renderer or media. Acquired with the init data of
+     * this session, so the manager, which keeps a session per init data, hands out the same open session.
+     */
+    SessionWrapper share(Looper playbackLooper) {
+        return new SessionWrapper(playbackLooper, drmInitData, realDrmSessionManager);
     }
 
     void release() {
@@ -0,0 +1,209 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.drm;
+
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.drm.DrmInitData;
+import com.google.android.exoplayer2.drm.DrmSession;
+import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
+import com.google.android.exoplayer2.extractor.mp4.PsshAtomUtil;
+import com.kaltura.playkit.PKLog;
+import com.kaltura.playkit.player.MediaSupport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The open DRM sessions of a player, keyed by license URL and Widevine key ids, kept after the media that
+ * used them so that the next media with the same keys (e.g. the next episode of a series) plays without
+ * a license request. Each pooled session holds a reference of its own, which keeps it open when the
+ * renderers release it. Sessions are evicted when their license expires, then the least recently used ones,
+ * and released with the player.
+ */
+class DrmSessionPool {
+
+    private static final PKLog log = PKLog.get("DrmSessionPool");
+
+    private static final int MAX_SESSIONS = 4;
+
+    // Fields of the WidevinePsshData protobuf
+    private static final int WIDEVINE_KEY_ID_FIELD = 2;
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_64_BIT = 1;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_TYPE_32_BIT = 5;
+
+    private final Map<String, DrmSession<FrameworkMediaCrypto>> sessions = new LinkedHashMap<>(MAX_SESSIONS, 0.75f, true);
+
+    /**
+     * Acquire a new reference to the pooled session of the key, for a renderer.
+     *
+     * @return - the session, or null if there's no usable session for the key.
+     */
+    @Nullable
+    synchronized DrmSession<FrameworkMediaCrypto> acquire(@Nullable String key, Looper playbackLooper) {
+        if (key == null) {
+            return null;
+        }
+        DrmSession<FrameworkMediaCrypto> pooledSession = sessions.get(key);
+        if (pooledSession == null) {
+            return null;
+        }
+        DrmSession<FrameworkMediaCrypto> session = isExpired(pooledSession) ? null : share(pooledSession, playbackLooper);
+        if (session == null) {
+            sessions.remove(key);
+            release(pooledSession);
+        }
+        return session;
+    }
+
+    /**
+     * Keep the session in the pool. The pool takes over the given reference.
+     */
+    synchronized void put(String key, DrmSession<FrameworkMediaCrypto> session) {
+        DrmSession<FrameworkMediaCrypto> replacedSession = sessions.put(key, session);
+        if (replacedSession != null && replacedSession != session) {
+            release(replacedSession);
+        }
+        // Expired sessions go first, then the least recently used ones.
+        Iterator<DrmSession<FrameworkMediaCrypto>> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            DrmSession<FrameworkMediaCrypto> pooledSession = iterator.next();
+            if (isExpired(pooledSession) || sessions.size() > MAX_SESSIONS) {
+                release(pooledSession);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Release the references of all the pooled sessions.
+     */
+    synchronized void clear() {
+        for (DrmSession<FrameworkMediaCrypto> pooledSession : sessions.values()) {
+            release(pooledSession);
+        }
+        sessions.clear();
+    }
+
+    /**
+     * @return - the pool key of the init data: the license URL and the key ids of the Widevine PSSH, so that
+     * media with different PSSHs (e.g. other content ids) but the same keys match. If the PSSH has no key ids,
+     * the license URL and the whole init data, so only media with the exact same init data match.
+     */
+    @Nullable
+    static String getKey(@Nullable String licenseUrl, @Nullable DrmInitData.SchemeData schemeData) {
+        if (licenseUrl == null || schemeData == null || schemeData.data == null) {
+            return null;
+        }
+        byte[] widevineData = PsshAtomUtil.parseSchemeSpecificData(schemeData.data, MediaSupport.WIDEVINE_UUID);
+        List<String> keyIds = getKeyIds(widevineData != null ? widevineData : schemeData.data);
+        if (keyIds.isEmpty()) {
+            return LicenseCache.getKey(licenseUrl, schemeData);
+        }
+        Collections.sort(keyIds);
+        return licenseUrl + ":kid:" + keyIds;
+    }
+
+    /**
+     * @return - the key ids of the WidevinePsshData, as hex strings. Empty if there are none or the data can't be parsed.
+     */
+    static List<String> getKeyIds(byte[] widevineData) {
+        List<String> keyIds = new ArrayList<>();
+        int position = 0;
+        try {
+            while (position < widevineData.length) {
+                long tag = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = widevineData[position++];
+                    tag |= (long) (b & 0x7f) << shift;
+                    if ((b & 0x80) == 0) {
+                        break;
+                    }
+                }
+                int wireType = (int) (tag & 0x7);
+                switch (wireType) {
+                    case WIRE_TYPE_VARINT:
+                        while ((widevineData[position++] & 0x80) != 0) {
+                            // Skip the value
+                        }
+                        break;
+                    case WIRE_TYPE_64_BIT:
+                        position += 8;
+                        break;
+                    case WIRE_TYPE_32_BIT:
+                        position += 4;
+                        break;
+                    case WIRE_TYPE_LENGTH_DELIMITED:
+                        int length = 0;
+                        for (int shift = 0; ; shift += 7) {
+                            byte b = widevineData[position++];
+                            length |= (b & 0x7f) << shift;
+                            if ((b & 0x80) == 0) {
+                                break;
+                            }
+                        }
+                        if (length < 0 || position + length > widevineData.length) {
+                            return Collections.emptyList();
+                        }
+                        if (tag >>> 3 == WIDEVINE_KEY_ID_FIELD) {
+                            StringBuilder keyId = new StringBuilder(length * 2);
+                            for (int i = position; i < position + length; i++) {
+                                keyId.append(Character.forDigit((widevineData[i] >> 4) & 0xf, 16)).append(Character.forDigit(widevineData[i] & 0xf, 16));
+                            }
+                            keyIds.add(keyId.toString());
+                        }
+                        position += length;
+                        break;
+                    default:
+                        return Collections.emptyList();
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            log.w("Malformed Widevine PSSH data");
+            return Collections.emptyList();
+        }
+        return position == widevineData.length ? keyIds : Collections.<String>emptyList();
+    }
+
+    @Nullable
+    private static DrmSession<FrameworkMediaCrypto> share(DrmSession<FrameworkMediaCrypto> session, Looper playbackLooper) {
+        if (session instanceof PrefetchedDrmSession) {
+            return ((PrefetchedDrmSession) session).acquire() ? session : null;
+        }
+        return ((SessionWrapper) session).share(playbackLooper);
+    }
+
+    private static void release(DrmSession<FrameworkMediaCrypto> session) {
+        if (session instanceof PrefetchedDrmSession) {
+            ((PrefetchedDrmSession) session).release();
+        } else {
+            ((SessionWrapper) session).release();
+        }
+    }
+
+    private static boolean isExpired(DrmSession<FrameworkMediaCrypto> session) {
+        int state = session.getState();
+        if (state == DrmSession.STATE_ERROR || state == DrmSession.STATE_RELEASED) {
+            return true;
+        }
+        // A session whose license is still loading is kept, the renderers of its media wait for it anyway.
+        return state == DrmSession.STATE_OPENED_WITH_KEYS && LicenseCache.getLicenseTimeToLiveMs(session.queryKeyStatus()) <= 0;
+    }
+}
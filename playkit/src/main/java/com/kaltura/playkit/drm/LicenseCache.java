@@ -0,0 +1,278 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.drm;
+
+import android.media.MediaDrm;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.drm.DrmInitData;
+import com.google.android.exoplayer2.drm.ExoMediaDrm;
+import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
+import com.google.android.exoplayer2.drm.FrameworkMediaDrm;
+import com.google.android.exoplayer2.drm.HttpMediaDrmCallback;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.kaltura.playkit.PKLog;
+import com.kaltura.playkit.player.MediaSupport;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.kaltura.playkit.Utils.toBase64;
+
+/**
+ * In-memory cache of Widevine streaming licenses acquired ahead of playback, keyed by license URL and
+ * init data. Each license is kept loaded in its own open MediaDrm session, which {@link DeferredDrmSessionManager}
+ * hands to the player instead of requesting the license again. A license response is bound to the session
+ * that requested it, so the session is what's cached, not the response.
+ * MediaDrm sessions are a scarce resource, so the cache holds a few of them, for a limited time.
+ *
+ * @hide
+ */
+public class LicenseCache {
+
+    private static final PKLog log = PKLog.get("LicenseCache");
+
+    public static final long DEFAULT_TIME_TO_LIVE_MS = 10 * 60 * 1000;
+    private static final int MAX_ENTRIES = 4;
+    private static final String LICENSE_DURATION_REMAINING = "LicenseDurationRemaining"; // Widevine key status, in seconds
+    private static final long LICENSE_EXPIRATION_MARGIN_MS = 60 * 1000;
+
+    private static final Map<String, PrefetchedDrmSession> entries = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true);
+    private static final Set<String> pendingKeys = new HashSet<>();
+
+    private static volatile long timeToLiveMs = DEFAULT_TIME_TO_LIVE_MS;
+
+    // Metrics
+    private static int prefetchCount;
+    private static long totalPrefetchLatencyMs;
+    private static int hitCount;
+    private static int missCount;
+    private static int licenseCount;
+    private static long totalLicenseLatencyMs;
+
+    /**
+     * Set how long prefetched licenses are used, unless the license expires earlier.
+     * Applies to licenses prefetched after the call.
+     */
+    public static void setTimeToLive(long timeToLiveMs) {
+        LicenseCache.timeToLiveMs = timeToLiveMs;
+    }
+
+    /**
+     * Acquire the streaming license of the init data and keep it for the player. Blocks on the license
+     * request, so it must not be called on the main thread.
+     *
+     * @param licenseUrl        - the license server URL.
+     * @param drmInitData       - the init data of the media, with a Widevine PSSH.
+     * @param dataSourceFactory - the factory of the license request, with the request adapter applied.
+     * @return - true if the license is in the cache.
+     */
+    public static boolean prefetch(String licenseUrl, DrmInitData drmInitData, HttpDataSource.Factory dataSourceFactory) {
+        DrmInitData.SchemeData schemeData = DeferredDrmSessionManager.getWidevineInitData(drmInitData);
+        String key = getKey(licenseUrl, schemeData);
+        if (key == null) {
+            log.d("No license URL or Widevine PSSH, not prefetching");
+            return false;
+        }
+
+        synchronized (LicenseCache.class) {
+            PrefetchedDrmSession cachedSession = entries.get(key);
+            if (cachedSession != null && !cachedSession.isExpired()) {
+                return true;
+            }
+            if (!pendingKeys.add(key)) {
+                return false;
+            }
+        }
+
+        PrefetchedDrmSession session = null;
+        long startTimeMs = SystemClock.elapsedRealtime();
+        try {
+            session = acquire(licenseUrl, schemeData, dataSourceFactory);
+        } catch (Exception e) {
+            log.w("Failed to prefetch license from " + licenseUrl + ": " + e.getMessage());
+        }
+        long latencyMs = SystemClock.elapsedRealtime() - startTimeMs;
+
+        synchronized (LicenseCache.class) {
+            pendingKeys.remove(key);
+            if (session == null) {
+                return false;
+            }
+            prefetchCount++;
+            totalPrefetchLatencyMs += latencyMs;
+            put(key, session);
+        }
+        log.d("Prefetched license in " + latencyMs + "ms");
+        return true;
+    }
+
+    /**
+     * Close the sessions of all the prefetched licenses.
+     */
+    public static synchronized void clear() {
+        for (PrefetchedDrmSession session : entries.values()) {
+            session.release();
+        }
+        entries.clear();
+    }
+
+    public static class Stats {
+
+        /**
+         * Number of licenses acquired ahead of playback.
+         */
+        public final int prefetches;
+
+        /**
+         * Average duration of the prefetch license requests, -1 if there was none.
+         */
+        public final long averagePrefetchLatencyMs;
+
+        /**
+         * Number of DRM sessions that players got from the cache.
+         */
+        public final int hits;
+
+        /**
+         * Number of DRM sessions that players had to request a license for.
+         */
+        public final int misses;
+
+        /**
+         * Average time players waited for the licenses they requested, -1 if there was none.
+         */
+        public final long averageLicenseLatencyMs;
+
+        Stats(int prefetches, long averagePrefetchLatencyMs, int hits, int misses, long averageLicenseLatencyMs) {
+            this.prefetches = prefetches;
+            this.averagePrefetchLatencyMs = averagePrefetchLatencyMs;
+            this.hits = hits;
+            this.misses = misses;
+            this.averageLicenseLatencyMs = averageLicenseLatencyMs;
+        }
+
+        @Override
+        public String toString() {
+            return "LicenseCache.Stats{prefetches=" + prefetches + ", averagePrefetchLatencyMs=" + averagePrefetchLatencyMs + ", hits=" + hits +
+                    ", misses=" + misses + ", averageLicenseLatencyMs=" + averageLicenseLatencyMs + "}";
+        }
+    }
+
+    public static synchronized Stats getStats() {
+        return new Stats(prefetchCount, prefetchCount > 0 ? totalPrefetchLatencyMs / prefetchCount : -1, hitCount, missCount,
+                licenseCount > 0 ? totalLicenseLatencyMs / licenseCount : -1);
+    }
+
+    /**
+     * Take the prefetched session of the init data out of the cache, for a player.
+     */
+    @Nullable
+    static synchronized PrefetchedDrmSession take(String licenseUrl, @Nullable DrmInitData.SchemeData schemeData) {
+        String key = getKey(licenseUrl, schemeData);
+        if (key == null) {
+            return null;
+        }
+        PrefetchedDrmSession session = entries.remove(key);
+        if (session != null && session.isExpired()) {
+            session.release();
+            session = null;
+        }
+        if (session != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return session;
+    }
+
+    static synchronized void recordLicenseLatency(long latencyMs) {
+        licenseCount++;
+        totalLicenseLatencyMs += latencyMs;
+    }
+
+    private static PrefetchedDrmSession acquire(String licenseUrl, DrmInitData.SchemeData schemeData, HttpDataSource.Factory dataSourceFactory) throws Exception {
+        FrameworkMediaDrm mediaDrm = FrameworkMediaDrm.newInstance(MediaSupport.WIDEVINE_UUID);
+        byte[] sessionId = null;
+        try {
+            sessionId = mediaDrm.openSession();
+            ExoMediaDrm.KeyRequest keyRequest = mediaDrm.getKeyRequest(sessionId, Collections.singletonList(schemeData),
+                    MediaDrm.KEY_TYPE_STREAMING, null);
+            byte[] keyResponse = new HttpMediaDrmCallback(licenseUrl, dataSourceFactory).executeKeyRequest(MediaSupport.WIDEVINE_UUID, keyRequest);
+            mediaDrm.provideKeyResponse(sessionId, keyResponse);
+            FrameworkMediaCrypto mediaCrypto = mediaDrm.createMediaCrypto(sessionId);
+            long expirationTimeMs = SystemClock.elapsedRealtime() + getTimeToLiveMs(mediaDrm.queryKeyStatus(sessionId));
+            return new PrefetchedDrmSession(mediaDrm, sessionId, mediaCrypto, expirationTimeMs);
+        } catch (Exception e) {
+            if (sessionId != null) {
+                mediaDrm.closeSession(sessionId);
+            }
+            mediaDrm.release();
+            throw e;
+        }
+    }
+
+    private static long getTimeToLiveMs(Map<String, String> keyStatus) {
+        return Math.min(timeToLiveMs, Math.max(0, getLicenseTimeToLiveMs(keyStatus)));
+    }
+
+    /**
+     * @return - how long the license of the key status can still be used by a starting player, or {@link Long#MAX_VALUE}
+     * if the license doesn't tell.
+     */
+    static long getLicenseTimeToLiveMs(@Nullable Map<String, String> keyStatus) {
+        String licenseDurationRemaining = keyStatus != null ? keyStatus.get(LICENSE_DURATION_REMAINING) : null;
+        if (licenseDurationRemaining != null) {
+            try {
+                long licenseDurationRemainingSec = Long.parseLong(licenseDurationRemaining);
+                if (licenseDurationRemainingSec >= Long.MAX_VALUE / 1000) {
+                    return Long.MAX_VALUE; // Unlimited
+                }
+                // Leave the player time to start before the license expires.
+                return licenseDurationRemainingSec * 1000 - LICENSE_EXPIRATION_MARGIN_MS;
+            } catch (NumberFormatException e) {
+                log.w("Unexpected license duration " + licenseDurationRemaining);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static void put(String key, PrefetchedDrmSession session) {
+        PrefetchedDrmSession replacedSession = entries.put(key, session);
+        if (replacedSession != null) {
+            replacedSession.release();
+        }
+        // Expired sessions go first, then the least recently used ones.
+        Iterator<PrefetchedDrmSession> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            PrefetchedDrmSession cachedSession = iterator.next();
+            if (cachedSession.isExpired() || entries.size() > MAX_ENTRIES) {
+                cachedSession.release();
+                iterator.remove();
+            }
+        }
+    }
+
+    @Nullable
+    static String getKey(String licenseUrl, @Nullable DrmInitData.SchemeData schemeData) {
+        if (licenseUrl == null || schemeData == null || schemeData.data == null) {
+            return null;
+        }
+        return licenseUrl + ":" + toBase64(schemeData.data);
+    }
+}
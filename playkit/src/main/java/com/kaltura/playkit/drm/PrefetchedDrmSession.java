@@ -0,0 +1,94 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.drm;
+
+import android.os.SystemClock;
+
+import com.google.android.exoplayer2.drm.DrmSession;
+import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
+import com.google.android.exoplayer2.drm.FrameworkMediaDrm;
+
+import java.util.Map;
+
+/**
+ * A MediaDrm session whose streaming license was loaded before the player asked for it.
+ * Owned by the {@link LicenseCache} until a player takes it, then shared by the {@link DrmSessionPool} of the player
+ * and the renderers that use it.
+ */
+class PrefetchedDrmSession implements DrmSession<FrameworkMediaCrypto> {
+
+    private final FrameworkMediaDrm mediaDrm;
+    private final byte[] sessionId;
+    private final FrameworkMediaCrypto mediaCrypto;
+    private final long expirationTimeMs;
+    private int referenceCount = 1;
+    private boolean released;
+
+    PrefetchedDrmSession(FrameworkMediaDrm mediaDrm, byte[] sessionId, FrameworkMediaCrypto mediaCrypto, long expirationTimeMs) {
+        this.mediaDrm = mediaDrm;
+        this.sessionId = sessionId;
+        this.mediaCrypto = mediaCrypto;
+        this.expirationTimeMs = expirationTimeMs;
+    }
+
+    boolean isExpired() {
+        return SystemClock.elapsedRealtime() >= expirationTimeMs;
+    }
+
+    /**
+     * Share the session with another renderer. Each {@link #acquire()} is balanced by a {@link #release()}.
+     *
+     * @return - false if the session is already released.
+     */
+    synchronized boolean acquire() {
+        if (released) {
+            return false;
+        }
+        referenceCount++;
+        return true;
+    }
+
+    synchronized void release() {
+        if (released || --referenceCount > 0) {
+            return;
+        }
+        released = true;
+        mediaDrm.closeSession(sessionId);
+        mediaDrm.release();
+    }
+
+    @Override
+    public int getState() {
+        return released ? STATE_RELEASED : STATE_OPENED_WITH_KEYS;
+    }
+
+    @Override
+    public FrameworkMediaCrypto getMediaCrypto() {
+        return mediaCrypto;
+    }
+
+    @Override
+    public DrmSessionException getError() {
+        return null;
+    }
+
+    @Override
+    public Map<String, String> queryKeyStatus() {
+        return mediaDrm.queryKeyStatus(sessionId);
+    }
+
+    @Override
+    public byte[] getOfflineLicenseKeySetId() {
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.kaltura.playkit.player;
+
+public class AbrSettings {
+
+    private long minVideoBitrate = 0; // Adaptive selection doesn't go below this bitrate, unless no rendition is above it
+    private long maxVideoBitrate = Long.MAX_VALUE; // Renditions above this bitrate aren't selected, unless no rendition is below it
+    private int maxVideoHeight = Integer.MAX_VALUE; // Renditions taller than this aren't selected, on top of the display size limit
+    private float maxVideoFrameRate = Float.MAX_VALUE; // Adaptive selection doesn't use renditions above this frame rate
+
+    public long getMinVideoBitrate() {
+        return minVideoBitrate;
+    }
+
+    public AbrSettings setMinVideoBitrate(long minVideoBitrate) {
+        this.minVideoBitrate = minVideoBitrate;
+        return this;
+    }
+
+    public long getMaxVideoBitrate() {
+        return maxVideoBitrate;
+    }
+
+    public AbrSettings setMaxVideoBitrate(long maxVideoBitrate) {
+        this.maxVideoBitrate = maxVideoBitrate;
+        return this;
+    }
+
+    public int getMaxVideoHeight() {
+        return maxVideoHeight;
+    }
+
+    public AbrSettings setMaxVideoHeight(int maxVideoHeight) {
+        this.maxVideoHeight = maxVideoHeight;
+        return this;
+    }
+
+    public float getMaxVideoFrameRate() {
+        return maxVideoFrameRate;
+    }
+
+    public AbrSettings setMaxVideoFrameRate(float maxVideoFrameRate) {
+        this.maxVideoFrameRate = maxVideoFrameRate;
+        return this;
+    }
+
+    AbrSettings copy() {
+        return new AbrSettings()
+                .setMinVideoBitrate(minVideoBitrate)
+                .setMaxVideoBitrate(maxVideoBitrate)
+                .setMaxVideoHeight(maxVideoHeight)
+                .setMaxVideoFrameRate(maxVideoFrameRate);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.trackselection.BaseTrackSelection;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.kaltura.playkit.player.abr.AbrStrategy;
+
+/**
+ * Adaptive track selection that delegates the rendition switching to an {@link AbrStrategy},
+ * fed by the player's bandwidth meter and buffered duration.
+ */
+class AbrTrackSelection extends BaseTrackSelection {
+
+    static class Factory implements TrackSelection.Factory {
+
+        private final AbrStrategy strategy;
+
+        Factory(AbrStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        @Override
+        public TrackSelection createTrackSelection(TrackGroup group, BandwidthMeter bandwidthMeter, int... tracks) {
+            return new AbrTrackSelection(group, tracks, bandwidthMeter, strategy);
+        }
+    }
+
+    private final BandwidthMeter bandwidthMeter;
+    private final AbrStrategy strategy;
+    private final int[] bitrates;
+
+    private int selectedIndex;
+    private int reason;
+
+    private AbrTrackSelection(TrackGroup group, int[] tracks, BandwidthMeter bandwidthMeter, AbrStrategy strategy) {
+        super(group, tracks);
+        this.bandwidthMeter = bandwidthMeter;
+        this.strategy = strategy;
+        // BaseTrackSelection sorts the tracks from the highest bitrate to the lowest one, as the strategy expects.
+        bitrates = new int[length];
+        for (int i = 0; i < length; i++) {
+            bitrates[i] = Math.max(0, getFormat(i).bitrate);
+        }
+        selectedIndex = selectIndex(AbrStrategy.NO_SELECTION, 0, SystemClock.elapsedRealtime());
+        reason = C.SELECTION_REASON_INITIAL;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void updateSelectedTrack(long playbackPositionUs, long bufferedDurationUs, long availableDurationUs) {
+        int currentIndex = selectedIndex;
+        selectedIndex = selectIndex(currentIndex, C.usToMs(bufferedDurationUs), SystemClock.elapsedRealtime());
+        if (selectedIndex != currentIndex) {
+            reason = C.SELECTION_REASON_ADAPTIVE;
+        }
+    }
+
+    @Override
+    public int getSelectedIndex() {
+        return selectedIndex;
+    }
+
+    @Override
+    public int getSelectionReason() {
+        return reason;
+    }
+
+    @Nullable
+    @Override
+    public Object getSelectionData() {
+        return null;
+    }
+
+    private int selectIndex(int currentIndex, long bufferedDurationMs, long nowMs) {
+        int index = strategy.selectRendition(bitrates, currentIndex, bandwidthMeter.getBitrateEstimate(), bufferedDurationMs);
+        index = Math.max(0, Math.min(index, length - 1));
+        // Blacklisted renditions (e.g. after load errors) are replaced by the closest lower one, or the closest higher one.
+        for (int i = index; i < length; i++) {
+            if (!isBlacklisted(i, nowMs)) {
+                return i;
+            }
+        }
+        for (int i = index - 1; i >= 0; i--) {
+            if (!isBlacklisted(i, nowMs)) {
+                return i;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.util.MimeTypes;
+
+import java.util.Arrays;
+
+/**
+ * A {@link DefaultTrackSelector} that applies the {@link AbrSettings}. The max bitrate and height are set on the
+ * selector parameters; the adaptive selections, including the adaptive overrides of {@link TrackSelectionHelper},
+ * are also limited to the video renditions within all the constraints. The settings can change during playback.
+ */
+class AbrTrackSelector extends DefaultTrackSelector {
+
+    private final ConstrainedTrackSelectionFactory constrainedFactory;
+
+    AbrTrackSelector(TrackSelection.Factory adaptiveTrackSelectionFactory) {
+        this(new ConstrainedTrackSelectionFactory(adaptiveTrackSelectionFactory));
+    }
+
+    private AbrTrackSelector(ConstrainedTrackSelectionFactory constrainedFactory) {
+        super(constrainedFactory);
+        this.constrainedFactory = constrainedFactory;
+    }
+
+    /**
+     * Apply the settings, and select the tracks again if the player is already playing.
+     */
+    void setAbrSettings(AbrSettings abrSettings) {
+        AbrSettings appliedSettings = abrSettings.copy();
+        constrainedFactory.abrSettings = appliedSettings;
+        ParametersBuilder parametersBuilder = getParameters().buildUpon();
+        parametersBuilder.setMaxVideoBitrate((int) Math.min(appliedSettings.getMaxVideoBitrate(), Integer.MAX_VALUE));
+        parametersBuilder.setMaxVideoSize(Integer.MAX_VALUE, appliedSettings.getMaxVideoHeight());
+        setParameters(parametersBuilder);
+        // The parameters don't hold the min bitrate and frame rate, so they don't always trigger a new selection.
+        invalidate();
+    }
+
+    private static class ConstrainedTrackSelectionFactory implements TrackSelection.Factory {
+
+        private final TrackSelection.Factory factory;
+        private volatile AbrSettings abrSettings = new AbrSettings();
+
+        ConstrainedTrackSelectionFactory(TrackSelection.Factory factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public TrackSelection createTrackSelection(TrackGroup group, BandwidthMeter bandwidthMeter, int... tracks) {
+            return factory.createTrackSelection(group, bandwidthMeter, constrainTracks(group, tracks, abrSettings));
+        }
+
+        /**
+         * @return - the video tracks within the constraints, or all the tracks if none is.
+         */
+        private static int[] constrainTracks(TrackGroup group, int[] tracks, AbrSettings abrSettings) {
+            if (group.length == 0 || !MimeTypes.isVideo(group.getFormat(0).sampleMimeType)) {
+                return tracks;
+            }
+            int[] constrainedTracks = new int[tracks.length];
+            int count = 0;
+            for (int track : tracks) {
+                if (isWithinConstraints(group.getFormat(track), abrSettings)) {
+                    constrainedTracks[count++] = track;
+                }
+            }
+            return count == 0 || count == tracks.length ? tracks : Arrays.copyOf(constrainedTracks, count);
+        }
+
+        private static boolean isWithinConstraints(Format format, AbrSettings abrSettings) {
+            // Unknown values don't exclude a rendition.
+            return (format.bitrate == Format.NO_VALUE || (format.bitrate >= abrSettings.getMinVideoBitrate() && format.bitrate <= abrSettings.getMaxVideoBitrate()))
+                    && (format.height == Format.NO_VALUE || format.height <= abrSettings.getMaxVideoHeight())
+                    && (format.frameRate == Format.NO_VALUE || format.frameRate <= abrSettings.getMaxVideoFrameRate());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.kaltura.playkit.player;
+
+public class AdaptiveBufferPolicy {
+
+    public static final int DEFAULT_LOW_RAM_MEMORY_CLASS_MB = 96;
+    public static final int DEFAULT_LOW_RAM_MAX_BUFFER_MS = 15000;
+    public static final int DEFAULT_MEMORY_PRESSURE_MAX_BUFFER_MS = 10000;
+    public static final int DEFAULT_MEMORY_PRESSURE_DURATION_MS = 60000;
+    public static final long DEFAULT_HIGH_THROUGHPUT_BITRATE = 20000000;
+    public static final int DEFAULT_HIGH_THROUGHPUT_MAX_BUFFER_MS = 100000;
+
+    private int lowRamMemoryClassMb = DEFAULT_LOW_RAM_MEMORY_CLASS_MB; // Devices with this memory class or lower (or low-RAM devices) are considered low RAM
+    private int lowRamMaxBufferMs = DEFAULT_LOW_RAM_MAX_BUFFER_MS; // Max buffer on low RAM devices, where the target buffer size is also halved
+    private int memoryPressureMaxBufferMs = DEFAULT_MEMORY_PRESSURE_MAX_BUFFER_MS; // Max buffer after the system asked to trim memory, where the target buffer size is also halved
+    private int memoryPressureDurationMs = DEFAULT_MEMORY_PRESSURE_DURATION_MS; // How long a memory trim signal applies
+    private long highThroughputBitrate = DEFAULT_HIGH_THROUGHPUT_BITRATE; // Bandwidth estimate from which the player buffers more
+    private int highThroughputMaxBufferMs = DEFAULT_HIGH_THROUGHPUT_MAX_BUFFER_MS; // Max buffer on high throughput, where the target buffer size is also doubled
+
+    public int getLowRamMemoryClassMb() {
+        return lowRamMemoryClassMb;
+    }
+
+    public AdaptiveBufferPolicy setLowRamMemoryClassMb(int lowRamMemoryClassMb) {
+        this.lowRamMemoryClassMb = lowRamMemoryClassMb;
+        return this;
+    }
+
+    public int getLowRamMaxBufferMs() {
+        return lowRamMaxBufferMs;
+    }
+
+    public AdaptiveBufferPolicy setLowRamMaxBufferMs(int lowRamMaxBufferMs) {
+        this.lowRamMaxBufferMs = lowRamMaxBufferMs;
+        return this;
+    }
+
+    public int getMemoryPressureMaxBufferMs() {
+        return memoryPressureMaxBufferMs;
+    }
+
+    public AdaptiveBufferPolicy setMemoryPressureMaxBufferMs(int memoryPressureMaxBufferMs) {
+        this.memoryPressureMaxBufferMs = memoryPressureMaxBufferMs;
+        return this;
+    }
+
+    public int getMemoryPressureDurationMs() {
+        return memoryPressureDurationMs;
+    }
+
+    public AdaptiveBufferPolicy setMemoryPressureDurationMs(int memoryPressureDurationMs) {
+        this.memoryPressureDurationMs = memoryPressureDurationMs;
+        return this;
+    }
+
+    public long getHighThroughputBitrate() {
+        return highThroughputBitrate;
+    }
+
+    public AdaptiveBufferPolicy setHighThroughputBitrate(long highThroughputBitrate) {
+        this.highThroughputBitrate = highThroughputBitrate;
+        return this;
+    }
+
+    public int getHighThroughputMaxBufferMs() {
+        return highThroughputMaxBufferMs;
+    }
+
+    public AdaptiveBufferPolicy setHighThroughputMaxBufferMs(int highThroughputMaxBufferMs) {
+        this.highThroughputMaxBufferMs = highThroughputMaxBufferMs;
+        return this;
+    }
+
+    AdaptiveBufferPolicy copy() {
+        return new AdaptiveBufferPolicy()
+                .setLowRamMemoryClassMb(lowRamMemoryClassMb)
+                .setLowRamMaxBufferMs(lowRamMaxBufferMs)
+                .setMemoryPressureMaxBufferMs(memoryPressureMaxBufferMs)
+                .setMemoryPressureDurationMs(memoryPressureDurationMs)
+                .setHighThroughputBitrate(highThroughputBitrate)
+                .setHighThroughputMaxBufferMs(highThroughputMaxBufferMs);
+    }
+
+    boolean hasSameValues(AdaptiveBufferPolicy other) {
+        return other != null &&
+                lowRamMemoryClassMb == other.lowRamMemoryClassMb &&
+                lowRamMaxBufferMs == other.lowRamMaxBufferMs &&
+                memoryPressureMaxBufferMs == other.memoryPressureMaxBufferMs &&
+                memoryPressureDurationMs == other.memoryPressureDurationMs &&
+                highThroughputBitrate == other.highThroughputBitrate &&
+                highThroughputMaxBufferMs == other.highThroughputMaxBufferMs;
+    }
+}
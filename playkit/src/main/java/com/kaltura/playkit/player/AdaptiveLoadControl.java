@@ -0,0 +1,289 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.Util;
+import com.kaltura.playkit.PKLog;
+
+/**
+ * A {@link LoadControl} with the behaviour of DefaultLoadControl, whose max buffer and target buffer size
+ * follow the {@link AdaptiveBufferPolicy}, if set: lowered on low RAM devices and after memory trim signals,
+ * raised when the bandwidth estimate is high. With a {@link FastStartPolicy}, playback starts after prepare
+ * and seek with the policy's start buffer. After an audio track change, playback resumes with the track change buffer.
+ * The load methods are called on the playback thread, the signals arrive on the main thread.
+ */
+class AdaptiveLoadControl implements LoadControl, ComponentCallbacks2 {
+
+    private static final PKLog log = PKLog.get("AdaptiveLoadControl");
+
+    static final long TRACK_CHANGE_RESUME_WINDOW_MS = 10000;
+
+    private final Context context;
+    private final Clock clock;
+    private final LoadControlBuffers buffers;
+    private final AdaptiveBufferPolicy policy;
+    private final DefaultAllocator allocator = new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+    private final boolean lowRamDevice;
+    private final long bufferForPlaybackUs;
+    private final long bufferForPlaybackAfterRebufferUs;
+    private final long bufferForPlaybackAfterTrackChangeUs;
+
+    // Signals
+    private volatile long memoryPressureEndTimeMs;
+    private volatile long bitrateEstimate;
+    private volatile int selectedTracksBufferSize;
+    private volatile long trackChangeTimeMs = C.TIME_UNSET;
+
+    // Current targets
+    private volatile long minBufferUs;
+    private volatile long maxBufferUs;
+    private volatile int targetBufferSize;
+
+    private boolean isBuffering;
+
+    AdaptiveLoadControl(Context context, LoadControlBuffers buffers) {
+        this(context, buffers, Clock.DEFAULT);
+    }
+
+    AdaptiveLoadControl(Context context, LoadControlBuffers buffers, Clock clock) {
+        this.context = context.getApplicationContext();
+        this.clock = clock;
+        this.buffers = buffers;
+        this.policy = buffers.getAdaptivePolicy();
+        this.lowRamDevice = policy != null && isLowRamDevice(context, policy);
+        FastStartPolicy fastStartPolicy = buffers.getFastStartPolicy();
+        this.bufferForPlaybackUs = C.msToUs(fastStartPolicy != null ?
+                Math.min(fastStartPolicy.getStartBufferMs(), buffers.getMinBufferAfterInteractionMs()) : buffers.getMinBufferAfterInteractionMs());
+        this.bufferForPlaybackAfterRebufferUs = C.msToUs(buffers.getMinBufferAfterReBufferMs());
+        this.bufferForPlaybackAfterTrackChangeUs = C.msToUs(buffers.getMinBufferAfterTrackChangeMs());
+        updateTargets();
+        if (policy != null) {
+            this.context.registerComponentCallbacks(this);
+        }
+    }
+
+    long getMinBufferMs() {
+        return C.usToMs(minBufferUs);
+    }
+
+    long getMaxBufferMs() {
+        return C.usToMs(maxBufferUs);
+    }
+
+    int getTargetBufferBytes() {
+        return targetBufferSize;
+    }
+
+    void onBitrateEstimate(long bitrateEstimate) {
+        if (policy == null) {
+            return;
+        }
+        boolean wasHigh = this.bitrateEstimate >= policy.getHighThroughputBitrate();
+        this.bitrateEstimate = bitrateEstimate;
+        if (wasHigh != (bitrateEstimate >= policy.getHighThroughputBitrate())) {
+            updateTargets();
+        }
+    }
+
+    /**
+     * Called on the main thread before an audio track change is applied. The player still buffers while the
+     * audio of the new track is fetched, but the buffering ends with the track change buffer instead of the re-buffer one.
+     */
+    void onTrackChangeRequested() {
+        trackChangeTimeMs = clock.elapsedRealtime();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (policy != null && isMemoryPressure(level)) {
+            boolean wasUnderPressure = isUnderMemoryPressure();
+            memoryPressureEndTimeMs = clock.elapsedRealtime() + policy.getMemoryPressureDurationMs();
+            if (!wasUnderPressure) {
+                updateTargets();
+            }
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    @Override
+    public void onPrepared() {
+        reset(false);
+    }
+
+    @Override
+    public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
+        int bufferSize = 0;
+        for (int i = 0; i < renderers.length; i++) {
+            if (trackSelections.get(i) != null) {
+                bufferSize += Util.getDefaultBufferSize(renderers[i].getTrackType());
+            }
+        }
+        selectedTracksBufferSize = bufferSize;
+        updateTargets();
+    }
+
+    @Override
+    public void onStopped() {
+        reset(true);
+    }
+
+    @Override
+    public void onReleased() {
+        reset(true);
+        if (policy != null) {
+            context.unregisterComponentCallbacks(this);
+        }
+    }
+
+    @Override
+    public Allocator getAllocator() {
+        return allocator;
+    }
+
+    @Override
+    public long getBackBufferDurationUs() {
+        return C.msToUs(buffers.getBackBufferDurationMs());
+    }
+
+    @Override
+    public boolean retainBackBufferFromKeyframe() {
+        return buffers.getRetainBackBufferFromKeyframe();
+    }
+
+    @Override
+    public boolean shouldContinueLoading(long bufferedDurationUs, float playbackSpeed) {
+        if (memoryPressureEndTimeMs != 0 && !isUnderMemoryPressure()) {
+            memoryPressureEndTimeMs = 0;
+            updateTargets();
+        }
+
+        boolean targetBufferSizeReached = allocator.getTotalBytesAllocated() >= targetBufferSize;
+        long minBufferUs = this.minBufferUs;
+        long maxBufferUs = this.maxBufferUs;
+        if (playbackSpeed > 1) {
+            // The playback speed is taken into account only for the min buffer, like DefaultLoadControl.
+            minBufferUs = Math.min(Util.getMediaDurationForPlayoutDuration(minBufferUs, playbackSpeed), maxBufferUs);
+        }
+        if (bufferedDurationUs < minBufferUs) {
+            isBuffering = true;
+        } else if (bufferedDurationUs >= maxBufferUs || targetBufferSizeReached) {
+            isBuffering = false;
+        }
+        return isBuffering;
+    }
+
+    @Override
+    public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed, boolean rebuffering) {
+        bufferedDurationUs = Util.getPlayoutDurationForMediaDuration(bufferedDurationUs, playbackSpeed);
+        long minBufferDurationUs = rebuffering ? bufferForPlaybackAfterRebufferUs : bufferForPlaybackUs;
+        if (rebuffering && isResumingAfterTrackChange()) {
+            minBufferDurationUs = Math.min(minBufferDurationUs, bufferForPlaybackAfterTrackChangeUs);
+        }
+        boolean startPlayback = minBufferDurationUs <= 0 || bufferedDurationUs >= minBufferDurationUs;
+        if (startPlayback && rebuffering) {
+            trackChangeTimeMs = C.TIME_UNSET;
+        }
+        return startPlayback;
+    }
+
+    private boolean isResumingAfterTrackChange() {
+        long trackChangeTimeMs = this.trackChangeTimeMs;
+        // A track change that didn't stall the playback shouldn't shorten a later re-buffer.
+        return trackChangeTimeMs != C.TIME_UNSET && clock.elapsedRealtime() - trackChangeTimeMs < TRACK_CHANGE_RESUME_WINDOW_MS;
+    }
+
+    private synchronized void updateTargets() {
+        long maxBufferMs = buffers.getMaxPlayerBufferMs();
+        float bufferSizeFactor = 1;
+        if (policy != null) {
+            if (lowRamDevice) {
+                maxBufferMs = Math.min(maxBufferMs, policy.getLowRamMaxBufferMs());
+                bufferSizeFactor /= 2;
+            }
+            if (isUnderMemoryPressure()) {
+                maxBufferMs = Math.min(maxBufferMs, policy.getMemoryPressureMaxBufferMs());
+                bufferSizeFactor /= 2;
+            } else if (!lowRamDevice && bitrateEstimate >= policy.getHighThroughputBitrate()) {
+                maxBufferMs = Math.max(maxBufferMs, policy.getHighThroughputMaxBufferMs());
+                bufferSizeFactor *= 2;
+            }
+        }
+
+        minBufferUs = C.msToUs(Math.min(buffers.getMinPlayerBufferMs(), maxBufferMs));
+        maxBufferUs = C.msToUs(maxBufferMs);
+        int newTargetBufferSize = (int) (selectedTracksBufferSize * bufferSizeFactor);
+        if (newTargetBufferSize != targetBufferSize) {
+            targetBufferSize = newTargetBufferSize;
+            allocator.setTargetBufferSize(newTargetBufferSize);
+        }
+        log.d("Buffer targets: min " + getMinBufferMs() + "ms, max " + getMaxBufferMs() + "ms, " + targetBufferSize + " bytes");
+    }
+
+    /**
+     * TRIM_MEMORY_UI_HIDDEN only means the app went to the background (e.g. to keep playing audio), not that
+     * memory is low, so it sits between the levels that do.
+     */
+    static boolean isMemoryPressure(int trimMemoryLevel) {
+        return trimMemoryLevel == TRIM_MEMORY_RUNNING_LOW || trimMemoryLevel == TRIM_MEMORY_RUNNING_CRITICAL
+                || trimMemoryLevel >= TRIM_MEMORY_BACKGROUND;
+    }
+
+    private boolean isUnderMemoryPressure() {
+        return clock.elapsedRealtime() < memoryPressureEndTimeMs;
+    }
+
+    private void reset(boolean resetAllocator) {
+        isBuffering = false;
+        trackChangeTimeMs = C.TIME_UNSET;
+        if (resetAllocator) {
+            synchronized (this) {
+                // Resetting the allocator drops its target buffer size, onTracksSelected() sets it again.
+                allocator.reset();
+                targetBufferSize = 0;
+            }
+        }
+    }
+
+    private static boolean isLowRamDevice(Context context, AdaptiveBufferPolicy policy) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && activityManager.isLowRamDevice()) {
+            return true;
+        }
+        return activityManager.getMemoryClass() <= policy.getLowRamMemoryClassMb();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.util.Util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Last known bandwidth estimate per network type, shared by all the players and kept across app launches,
+ * so a new player starts ABR from the estimate of the previous one instead of a cold guess.
+ */
+class BandwidthEstimateStore {
+
+    private static final String SHARED_PREFS_NAME = "PlayKitBandwidthEstimates";
+    private static final String PREFS_ENTRY_PREFIX = "networkType.";
+    private static final long SAVE_INTERVAL_MS = 10000;
+
+    private static Map<Integer, Long> estimates;
+    private static SharedPreferences sharedPrefs;
+    private static volatile long latestEstimate;
+    private static volatile long lastSaveTimeMs;
+
+    /**
+     * Seed the builder with the stored estimates.
+     *
+     * @return - the stored estimate of the current network type, or -1 if there is none.
+     */
+    static synchronized long seed(Context context, DefaultBandwidthMeter.Builder builder) {
+        load(context);
+        for (Map.Entry<Integer, Long> entry : estimates.entrySet()) {
+            builder.setInitialBitrateEstimate(entry.getKey(), entry.getValue());
+        }
+        Long estimate = estimates.get(Util.getNetworkType(context));
+        return estimate != null ? estimate : -1;
+    }
+
+    /**
+     * Keep the latest estimate of the player. Called on every bandwidth sample, so it only stores it in memory:
+     * the network type is resolved when the estimate is saved, at most every {@link #SAVE_INTERVAL_MS}.
+     */
+    static void update(Context context, long bitrateEstimate) {
+        if (bitrateEstimate <= 0) {
+            return;
+        }
+        latestEstimate = bitrateEstimate;
+        if (SystemClock.elapsedRealtime() - lastSaveTimeMs >= SAVE_INTERVAL_MS) {
+            save(context);
+        }
+    }
+
+    /**
+     * Save the latest estimate, if any, as the estimate of the current network type.
+     */
+    static synchronized void save(Context context) {
+        long estimate = latestEstimate;
+        if (estimate <= 0) {
+            return;
+        }
+        latestEstimate = 0;
+        lastSaveTimeMs = SystemClock.elapsedRealtime();
+        int networkType = Util.getNetworkType(context);
+        if (networkType == C.NETWORK_TYPE_OFFLINE) {
+            return;
+        }
+        load(context);
+        estimates.put(networkType, estimate);
+        sharedPrefs.edit().putLong(PREFS_ENTRY_PREFIX + networkType, estimate).apply();
+    }
+
+    private static void load(Context context) {
+        if (estimates != null) {
+            return;
+        }
+        estimates = new HashMap<>();
+        sharedPrefs = context.getApplicationContext().getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : sharedPrefs.getAll().entrySet()) {
+            if (entry.getKey().startsWith(PREFS_ENTRY_PREFIX) && entry.getValue() instanceof Long) {
+                try {
+                    estimates.put(Integer.parseInt(entry.getKey().substring(PREFS_ENTRY_PREFIX.length())), (Long) entry.getValue());
+                } catch (NumberFormatException e) {
+                    // Not ours
+                }
+            }
+        }
+    }
+}
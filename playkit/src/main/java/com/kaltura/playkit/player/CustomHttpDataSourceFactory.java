@@ -1,7 +1,8 @@
 package com.kaltura.playkit.player;
 
-import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.kaltura.playkit.DefaultHttpTransport;
+import com.kaltura.playkit.PKHttpTransport;
 import com.kaltura.playkit.PKRequestParams;
 
 import java.util.Map;
@@ -13,8 +14,7 @@ public final class CustomHttpDataSourceFactory extends HttpDataSource.BaseFactor
 
     private final String userAgent;
     private final PKRequestParams pkRequestParams;
-    private final int connectTimeoutMillis;
-    private final int readTimeoutMillis;
+    private final PKHttpTransport httpTransport;
     private final boolean allowCrossProtocolRedirects;
 
     /**
@@ -29,22 +29,32 @@ public final class CustomHttpDataSourceFactory extends HttpDataSource.BaseFactor
     public CustomHttpDataSourceFactory(String userAgent, PKRequestParams pkRequestParams,
                                        int connectTimeoutMillis,
                                        int readTimeoutMillis, boolean allowCrossProtocolRedirects) {
+        this(userAgent, pkRequestParams, new DefaultHttpTransport(connectTimeoutMillis, readTimeoutMillis), allowCrossProtocolRedirects);
+    }
+
+    /**
+     * @param userAgent                   The User-Agent string that should be used.
+     * @param pkRequestParams             Headers added to every request, may be null.
+     * @param httpTransport               Creates the data sources that perform the requests.
+     * @param allowCrossProtocolRedirects Whether cross-protocol redirects (i.e. redirects from HTTP
+     *                                    to HTTPS and vice versa) are enabled.
+     */
+    public CustomHttpDataSourceFactory(String userAgent, PKRequestParams pkRequestParams,
+                                       PKHttpTransport httpTransport, boolean allowCrossProtocolRedirects) {
         this.userAgent = userAgent;
         this.pkRequestParams = pkRequestParams;
-        this.connectTimeoutMillis = connectTimeoutMillis;
-        this.readTimeoutMillis = readTimeoutMillis;
+        this.httpTransport = httpTransport;
         this.allowCrossProtocolRedirects = allowCrossProtocolRedirects;
     }
 
 
     @Override
-    protected DefaultHttpDataSource createDataSourceInternal(HttpDataSource.RequestProperties defaultRequestProperties) {
+    protected HttpDataSource createDataSourceInternal(HttpDataSource.RequestProperties defaultRequestProperties) {
         if (pkRequestParams != null && pkRequestParams.headers != null) {
             for (Map.Entry<String, String> entry : pkRequestParams.headers.entrySet()) {
                 defaultRequestProperties.set(entry.getKey(), entry.getValue());
             }
         }
-        return new DefaultHttpDataSource(userAgent, null, connectTimeoutMillis,
-                readTimeoutMillis, allowCrossProtocolRedirects, defaultRequestProperties);
+        return httpTransport.createDataSource(userAgent, allowCrossProtocolRedirects, defaultRequestProperties);
     }
 }
@@ -20,14 +20,25 @@ import java.util.ArrayList;
 
 public class CustomRendererFactory extends DefaultRenderersFactory {
 
+    private CustomVideoCodecRenderer videoRenderer;
+
     public CustomRendererFactory(Context context, int extensionRendererMode) {
         super(context, extensionRendererMode);
     }
 
     @Override
     protected void buildVideoRenderers(Context context, @Nullable DrmSessionManager<FrameworkMediaCrypto> drmSessionManager, long allowedVideoJoiningTimeMs, Handler eventHandler, VideoRendererEventListener eventListener, int extensionRendererMode, ArrayList<Renderer> out) {
-        out.add(new CustomVideoCodecRenderer(context, MediaCodecSelector.DEFAULT,
+        videoRenderer = new CustomVideoCodecRenderer(context, MediaCodecSelector.DEFAULT,
                 allowedVideoJoiningTimeMs, drmSessionManager, false, eventHandler, eventListener,
-                MAX_DROPPED_VIDEO_FRAME_COUNT_TO_NOTIFY));
+                MAX_DROPPED_VIDEO_FRAME_COUNT_TO_NOTIFY);
+        out.add(videoRenderer);
+    }
+
+    /**
+     * @return - the video renderer of the player built with this factory, or null before the player is built.
+     */
+    @Nullable
+    public CustomVideoCodecRenderer getVideoRenderer() {
+        return videoRenderer;
     }
 }
@@ -16,9 +16,11 @@ import android.content.Context;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 
 import com.google.android.exoplayer2.C;
@@ -27,21 +29,29 @@ import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.ExoPlaybackException;
 import com.google.android.exoplayer2.ExoPlayerFactory;
 import com.google.android.exoplayer2.ExoPlayerLibraryInfo;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.LoadControl;
 import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
 import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.drm.DrmInitData;
+import com.google.android.exoplayer2.drm.DrmSession;
 import com.google.android.exoplayer2.metadata.Metadata;
 import com.google.android.exoplayer2.metadata.MetadataOutput;
 import com.google.android.exoplayer2.source.BehindLiveWindowException;
+import com.google.android.exoplayer2.source.ConcatenatingMediaSource;
 import com.google.android.exoplayer2.source.ExtractorMediaSource;
 import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.MediaSourceEventListener;
 import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.source.dash.DashMediaSource;
 import com.google.android.exoplayer2.source.dash.DefaultDashChunkSource;
 import com.google.android.exoplayer2.source.hls.HlsMediaSource;
 import com.google.android.exoplayer2.trackselection.AdaptiveTrackSelection;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
 import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
 import com.google.android.exoplayer2.ui.SubtitleView;
 import com.google.android.exoplayer2.upstream.BandwidthMeter;
@@ -49,9 +59,9 @@ import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DataSource.Factory;
 import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
-import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
-import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.video.CustomVideoCodecRenderer;
+import com.google.android.exoplayer2.video.VideoListener;
 import com.kaltura.playkit.PKController;
 import com.kaltura.playkit.PKError;
 import com.kaltura.playkit.PKLog;
@@ -62,7 +72,13 @@ import com.kaltura.playkit.PlayKitManager;
 import com.kaltura.playkit.PlaybackInfo;
 import com.kaltura.playkit.PlayerEvent;
 import com.kaltura.playkit.PlayerState;
+import com.kaltura.playkit.QoeMetrics;
+import com.kaltura.playkit.StartupTrace;
+import com.kaltura.playkit.VideoRendererStats;
+import com.kaltura.playkit.VideoRendererStatsController;
 import com.kaltura.playkit.drm.DeferredDrmSessionManager;
+import com.kaltura.playkit.drm.LicenseCache;
+import com.kaltura.playkit.player.abr.AbrStrategy;
 import com.kaltura.playkit.player.metadata.MetadataConverter;
 import com.kaltura.playkit.player.metadata.PKMetadata;
 import com.kaltura.playkit.utils.Consts;
@@ -94,6 +110,7 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
     }
 
     private DefaultBandwidthMeter bandwidthMeter;
+    private long initialBitrateEstimate;
     private PlayerSettings playerSettings;
     private EventListener eventListener;
     private StateChangedListener stateChangedListener;
@@ -115,6 +132,7 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
     private Factory manifestDataSourceFactory;
     private Handler mainHandler = new Handler(Looper.getMainLooper());
     private PKError currentError = null;
+    private PKError drmSessionError;
 
     private boolean isSeeking;
     private boolean useTextureView;
@@ -137,7 +155,27 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
 
     private TrackSelectionHelper.TracksInfoListener tracksInfoListener = initTracksInfoListener();
     private DeferredDrmSessionManager.DrmSessionListener drmSessionListener = initDrmSessionListener();
+    private VideoListener videoListener = initVideoListener();
+    private AnalyticsListener analyticsListener = initAnalyticsListener();
     private PKMediaSourceConfig sourceConfig;
+    private PKMediaSourceConfig nextSourceConfig;
+    private ConcatenatingMediaSource playlistMediaSource;
+    private LoadControlBuffers appliedLoadControlBuffers;
+    private AdaptiveLoadControl adaptiveLoadControl;
+    private FastStartBandwidthMeter fastStartBandwidthMeter;
+
+    private long loadTimeMs;
+    private long timeToFirstFrameMs = C.TIME_UNSET;
+    private final QoeAggregator qoeAggregator = new QoeAggregator();
+    private final VideoRendererStatsController videoRendererStatsController = initVideoRendererStatsController();
+    private CustomRendererFactory renderersFactory;
+    private AbrTrackSelector trackSelector;
+    private QualityGovernor qualityGovernor;
+    private AbrStrategy appliedAbrStrategy;
+    private RetryLoadErrorHandlingPolicy loadErrorHandlingPolicy;
+    private LoadErrorPolicy appliedLoadErrorPolicy;
+    private final Runnable qoeUpdater = initQoeUpdater();
+    private boolean isQoeUpdateScheduled;
 
     ExoPlayerWrapper(Context context, PlayerSettings playerSettings) {
         this(context, new ExoPlayerView(context), playerSettings);
@@ -145,9 +183,11 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
 
     ExoPlayerWrapper(Context context, BaseExoplayerView exoPlayerView, PlayerSettings playerSettings) {
         this.context = context;
-        bandwidthMeter = new DefaultBandwidthMeter.Builder(context)
-                .setEventListener(mainHandler, this)
-                .build();
+        DefaultBandwidthMeter.Builder bandwidthMeterBuilder = new DefaultBandwidthMeter.Builder(context)
+                .setEventListener(mainHandler, this);
+        // Start from the estimate of the previous players on this network type.
+        initialBitrateEstimate = BandwidthEstimateStore.seed(context, bandwidthMeterBuilder);
+        bandwidthMeter = bandwidthMeterBuilder.build();
         this.exoPlayerView = exoPlayerView;
         this.playerSettings = playerSettings;
         if (CookieHandler.getDefault() != DEFAULT_COOKIE_MANAGER) {
@@ -156,11 +196,16 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
     }
 
     private void initializePlayer() {
-        DefaultTrackSelector trackSelector = initializeTrackSelector();
+        FastStartPolicy fastStartPolicy = playerSettings.getLoadControlBuffers().getFastStartPolicy();
+        fastStartBandwidthMeter = fastStartPolicy != null ? new FastStartBandwidthMeter(bandwidthMeter, fastStartPolicy) : null;
+        trackSelector = initializeTrackSelector(fastStartPolicy);
+        startQualityGovernor();
+        applyAbrSettings();
         drmSessionManager = new DeferredDrmSessionManager(mainHandler, buildCustomHttpDataSourceFactory(), drmSessionListener);
-        CustomRendererFactory renderersFactory = new CustomRendererFactory(context, DefaultRenderersFactory.EXTENSION_RENDERER_MODE_OFF);
+        renderersFactory = new CustomRendererFactory(context, DefaultRenderersFactory.EXTENSION_RENDERER_MODE_OFF);
 
-        player = ExoPlayerFactory.newSimpleInstance(context, renderersFactory, trackSelector, getUpdatedLoadControl(), drmSessionManager, bandwidthMeter);
+        player = ExoPlayerFactory.newSimpleInstance(context, renderersFactory, trackSelector, getUpdatedLoadControl(), drmSessionManager,
+                fastStartBandwidthMeter != null ? fastStartBandwidthMeter : bandwidthMeter);
         window = new Timeline.Window();
         setPlayerListeners();
         exoPlayerView.setPlayer(player, useTextureView, isSurfaceSecured);
@@ -168,7 +213,15 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
     }
 
     @NonNull
-    private DefaultLoadControl getUpdatedLoadControl() {
+    private LoadControl getUpdatedLoadControl() {
+        appliedLoadControlBuffers = playerSettings.getLoadControlBuffers().copy();
+        if (appliedLoadControlBuffers.getAdaptivePolicy() != null || appliedLoadControlBuffers.getFastStartPolicy() != null ||
+                appliedLoadControlBuffers.isTrackChangeBufferSet()) {
+            adaptiveLoadControl = new AdaptiveLoadControl(context, appliedLoadControlBuffers);
+            adaptiveLoadControl.onBitrateEstimate(bandwidthMeter.getBitrateEstimate());
+            return adaptiveLoadControl;
+        }
+        adaptiveLoadControl = null;
         int backBufferDurationMs = playerSettings.getLoadControlBuffers().getBackBufferDurationMs();
         boolean retainBackBufferFromKeyframe = playerSettings.getLoadControlBuffers().getRetainBackBufferFromKeyframe();
         return new DefaultLoadControl.Builder().
@@ -184,12 +237,26 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         if (assertPlayerIsNotNull("setPlayerListeners()")) {
             player.addListener(this);
             player.addMetadataOutput(this);
+            player.addVideoListener(videoListener);
+            player.addAnalyticsListener(analyticsListener);
         }
     }
 
-    private DefaultTrackSelector initializeTrackSelector() {
+    private AbrTrackSelector initializeTrackSelector(FastStartPolicy fastStartPolicy) {
 
-        DefaultTrackSelector trackSelector = new DefaultTrackSelector(new AdaptiveTrackSelection.Factory());
+        TrackSelection.Factory trackSelectionFactory;
+        appliedAbrStrategy = playerSettings.getAbrStrategy();
+        if (appliedAbrStrategy != null) {
+            trackSelectionFactory = new AbrTrackSelection.Factory(appliedAbrStrategy);
+        } else if (fastStartPolicy != null) {
+            trackSelectionFactory = new AdaptiveTrackSelection.Factory(fastStartPolicy.getMinDurationForQualityIncreaseMs(),
+                    AdaptiveTrackSelection.DEFAULT_MAX_DURATION_FOR_QUALITY_DECREASE_MS,
+                    AdaptiveTrackSelection.DEFAULT_MIN_DURATION_TO_RETAIN_AFTER_DISCARD_MS,
+                    AdaptiveTrackSelection.DEFAULT_BANDWIDTH_FRACTION);
+        } else {
+            trackSelectionFactory = new AdaptiveTrackSelection.Factory();
+        }
+        AbrTrackSelector trackSelector = new AbrTrackSelector(trackSelectionFactory);
         DefaultTrackSelector.ParametersBuilder parametersBuilder = new DefaultTrackSelector.ParametersBuilder();
         parametersBuilder.setViewportSizeToPhysicalDisplaySize(context, true);
         trackSelector.setParameters(parametersBuilder.build());
@@ -206,15 +273,22 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         metadataList.clear();
 
         if (sourceConfig.mediaSource.hasDrmParams()) {
+            // The license request params may have changed since the player was created (always true for a pooled player).
+            drmSessionManager.setDataSourceFactory(buildCustomHttpDataSourceFactory());
             drmSessionManager.setMediaSource(sourceConfig.mediaSource);
         }
 
         shouldGetTracksInfo = true;
         trackSelectionHelper.applyPlayerSettings(playerSettings);
 
+        resetMediaMetrics();
+
         MediaSource mediaSource = buildExoMediaSource(sourceConfig);
+        // Play through a playlist, so the next media can be appended while this one plays.
+        nextSourceConfig = null;
+        playlistMediaSource = new ConcatenatingMediaSource(mediaSource);
         boolean haveStartPosition = player.getCurrentWindowIndex() != C.INDEX_UNSET;
-        player.prepare(mediaSource, !haveStartPosition, shouldResetPlayerPosition);
+        player.prepare(playlistMediaSource, !haveStartPosition, shouldResetPlayerPosition);
         changeState(PlayerState.LOADING);
 
         if (playerSettings != null && playerSettings.getSubtitleStyleSettings() != null) {
@@ -233,23 +307,44 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         if (mediaDataSourceFactory == null) {
             mediaDataSourceFactory = buildDataSourceFactory();
         }
+        DataSource.Factory mediaFactory = getCachingDataSourceFactory(mediaDataSourceFactory, sourceConfig);
+        ManifestCache.CachedManifest cachedManifest = ManifestCache.get(sourceConfig);
+        if (loadErrorHandlingPolicy == null || appliedLoadErrorPolicy != playerSettings.getLoadErrorPolicy()) {
+            appliedLoadErrorPolicy = playerSettings.getLoadErrorPolicy();
+            loadErrorHandlingPolicy = new RetryLoadErrorHandlingPolicy(appliedLoadErrorPolicy.copy());
+        }
         switch (format) {
 
             case dash:
+                if (cachedManifest != null && cachedManifest.dashManifest != null) {
+                    log.d("Using prefetched manifest");
+                    return new DashMediaSource.Factory(new DefaultDashChunkSource.Factory(mediaFactory), null)
+                            .setLoadErrorHandlingPolicy(loadErrorHandlingPolicy)
+                            .createMediaSource(cachedManifest.dashManifest);
+                }
                 if (manifestDataSourceFactory == null) {
                     manifestDataSourceFactory = buildDataSourceFactory();
                 }
                 return new DashMediaSource.Factory(
-                        new DefaultDashChunkSource.Factory(mediaDataSourceFactory),
-                        manifestDataSourceFactory)
+                        new DefaultDashChunkSource.Factory(mediaFactory),
+                        getCachingDataSourceFactory(manifestDataSourceFactory, sourceConfig))
+                        .setLoadErrorHandlingPolicy(loadErrorHandlingPolicy)
                         .createMediaSource(uri);
             case hls:
-                return new HlsMediaSource.Factory(mediaDataSourceFactory)
+                if (cachedManifest != null && cachedManifest.hlsMasterPlaylist != null) {
+                    log.d("Using prefetched playlists");
+                    return new HlsMediaSource.Factory(ManifestCache.wrapHlsDataSourceFactory(mediaFactory, cachedManifest, uri))
+                            .setLoadErrorHandlingPolicy(loadErrorHandlingPolicy)
+                            .createMediaSource(uri);
+                }
+                return new HlsMediaSource.Factory(mediaFactory)
+                        .setLoadErrorHandlingPolicy(loadErrorHandlingPolicy)
                         .createMediaSource(uri);
             // mp4 and mp3 both use ExtractorMediaSource
             case mp4:
             case mp3:
-                return new ExtractorMediaSource.Factory(mediaDataSourceFactory)
+                return new ExtractorMediaSource.Factory(mediaFactory)
+                        .setLoadErrorHandlingPolicy(loadErrorHandlingPolicy)
                         .createMediaSource(uri);
 
             default:
@@ -257,6 +352,14 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         }
     }
 
+    private DataSource.Factory getCachingDataSourceFactory(DataSource.Factory upstreamFactory, PKMediaSourceConfig sourceConfig) {
+        // Live and DVR manifests change all the time, and their segments are not worth caching.
+        if (PKMediaEntry.MediaEntryType.Vod != sourceConfig.mediaEntryType) {
+            return upstreamFactory;
+        }
+        return MediaCache.wrap(context, playerSettings.getMediaCacheSettings(), upstreamFactory);
+    }
+
     /**
      * Returns a new DataSource factory.
      *
@@ -272,16 +375,37 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
      * @return A new HttpDataSource factory.
      */
     private HttpDataSource.Factory buildHttpDataSourceFactory() {
-        return new DefaultHttpDataSourceFactory(getUserAgent(context), DefaultHttpDataSource.DEFAULT_CONNECT_TIMEOUT_MILLIS,
-                DefaultHttpDataSource.DEFAULT_READ_TIMEOUT_MILLIS, crossProtocolRedirectEnabled);
+        return new CustomHttpDataSourceFactory(getUserAgent(context), null, PlayKitManager.getHttpTransport(), crossProtocolRedirectEnabled);
     }
 
     private HttpDataSource.Factory buildCustomHttpDataSourceFactory() {
-        return new CustomHttpDataSourceFactory(getUserAgent(context), httpDataSourceRequestParams, DefaultHttpDataSource.DEFAULT_CONNECT_TIMEOUT_MILLIS,
-                DefaultHttpDataSource.DEFAULT_READ_TIMEOUT_MILLIS, crossProtocolRedirectEnabled);
+        return new CustomHttpDataSourceFactory(getUserAgent(context), httpDataSourceRequestParams, PlayKitManager.getHttpTransport(),
+                crossProtocolRedirectEnabled);
     }
 
-    private static String getUserAgent(Context context) {
+    /**
+     * Acquire the license of a DRM protected VOD DASH source in the background, with the license request adapter
+     * of the current media, so the playback of the source doesn't wait for it. The PSSH is read from the manifest.
+     */
+    void prefetchLicense(final PKMediaSourceConfig sourceConfig) {
+        final String licenseUrl = DeferredDrmSessionManager.getLicenseUrl(sourceConfig.mediaSource);
+        if (licenseUrl == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            log.d("No Widevine license to prefetch for " + sourceConfig.mediaEntryId);
+            return;
+        }
+        final HttpDataSource.Factory licenseDataSourceFactory = buildCustomHttpDataSourceFactory();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                DrmInitData drmInitData = ManifestCache.loadDrmInitData(context, sourceConfig);
+                if (drmInitData != null) {
+                    LicenseCache.prefetch(licenseUrl, drmInitData, licenseDataSourceFactory);
+                }
+            }
+        });
+    }
+
+    static String getUserAgent(Context context) {
         String applicationName;
         try {
             String packageName = context.getPackageName();
@@ -336,6 +460,10 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
 
     @Override
     public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
+        qoeAggregator.onPlaybackStateChanged(playWhenReady && playbackState == Player.STATE_READY,
+                playWhenReady && playbackState == Player.STATE_BUFFERING && !isSeeking);
+        scheduleQoeUpdate();
+
         switch (playbackState) {
             case Player.STATE_IDLE:
                 log.d("onPlayerStateChanged. IDLE. playWhenReady => " + playWhenReady);
@@ -351,6 +479,10 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
             case Player.STATE_READY:
                 log.d("onPlayerStateChanged. READY. playWhenReady => " + playWhenReady);
                 changeState(PlayerState.READY);
+                markStartupPhase(StartupTrace.Phase.FIRST_READY);
+                if (fastStartBandwidthMeter != null) {
+                    fastStartBandwidthMeter.onStarted();
+                }
 
                 if (isSeeking) {
                     isSeeking = false;
@@ -393,7 +525,7 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
 
     @Override
     public void onShuffleModeEnabledChanged(boolean shuffleModeEnabled) {
-        // TODO: implement if we add playlist support
+        // Shuffle mode is not used, the playlist only holds the current and the next media.
     }
 
     @Override
@@ -447,6 +579,83 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
     @Override
     public void onPositionDiscontinuity(int reason) {
         log.d("onPositionDiscontinuity");
+        if (reason == Player.DISCONTINUITY_REASON_PERIOD_TRANSITION && nextSourceConfig != null && player.getCurrentWindowIndex() > 0) {
+            onNextMediaStarted();
+        }
+    }
+
+    /**
+     * Append the next media to the playlist. It is buffered when the loading of the current media completes,
+     * and starts without re-preparing the player when the current media ends.
+     *
+     * @param nextSourceConfig - the source of the next media.
+     * @return - false if the next media can not follow the current one seamlessly, and should be prepared when it ends.
+     */
+    boolean setNextMedia(PKMediaSourceConfig nextSourceConfig) {
+        if (player == null || playlistMediaSource == null || sourceConfig == null) {
+            return false;
+        }
+        if (PKMediaEntry.MediaEntryType.Live == sourceConfig.mediaEntryType || PKMediaEntry.MediaEntryType.Live == nextSourceConfig.mediaEntryType) {
+            return false;
+        }
+        // All the media of the playlist share the DRM session manager, so they must use the same license server.
+        // The manager keeps a session per init data, so media with other keys get their own session.
+        if (nextSourceConfig.mediaSource.hasDrmParams() &&
+                (!sourceConfig.mediaSource.hasDrmParams() || !drmSessionManager.hasSameLicense(nextSourceConfig.mediaSource))) {
+            return false;
+        }
+
+        MediaSource nextMediaSource = buildExoMediaSource(nextSourceConfig);
+        if (nextMediaSource == null) {
+            return false;
+        }
+        removeNextMedia();
+        playlistMediaSource.addMediaSource(nextMediaSource);
+        this.nextSourceConfig = nextSourceConfig;
+        return true;
+    }
+
+    private void removeNextMedia() {
+        while (playlistMediaSource.getSize() > 1) {
+            playlistMediaSource.removeMediaSource(playlistMediaSource.getSize() - 1);
+        }
+        nextSourceConfig = null;
+    }
+
+    /**
+     * Start the QoE metrics, time to first frame, load retries and startup bandwidth estimate of a new media.
+     */
+    private void resetMediaMetrics() {
+        loadTimeMs = SystemClock.elapsedRealtime();
+        timeToFirstFrameMs = C.TIME_UNSET;
+        qoeAggregator.reset();
+        if (loadErrorHandlingPolicy != null) {
+            loadErrorHandlingPolicy.resetRetryCounts();
+        }
+        if (fastStartBandwidthMeter != null) {
+            fastStartBandwidthMeter.restart();
+        }
+    }
+
+    private void onNextMediaStarted() {
+        log.d("onNextMediaStarted");
+        sourceConfig = nextSourceConfig;
+        nextSourceConfig = null;
+        // Drop the media that ended, so the current media is always the first window.
+        playlistMediaSource.removeMediaSource(0);
+
+        metadataList.clear();
+        shouldGetTracksInfo = true;
+        trackSelectionHelper.applyPlayerSettings(playerSettings);
+        resetMediaMetrics();
+        sendEvent(PlayerEvent.Type.MEDIA_ENTRY_CHANGED);
+        sendEvent(PlayerEvent.Type.DURATION_CHANGE);
+        // The video renderer doesn't report a new first frame when the next media follows seamlessly,
+        // its first frame is the one that follows the last frame of the previous media.
+        markStartupPhase(StartupTrace.Phase.FIRST_READY);
+        if (player.getVideoFormat() != null) {
+            onFirstFrame();
+        }
     }
 
     @Override
@@ -493,9 +702,29 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
             maybeChangePlayerRenderView();
         }
 
+        if (mediaSourceConfig.startupTrace != null) {
+            mediaSourceConfig.startupTrace.mark(StartupTrace.Phase.PLAYER_INITIALIZED);
+        }
         preparePlayer(mediaSourceConfig);
     }
 
+    /**
+     * @return - true for the error of a renderer that failed with the error of its DRM session, e.g. a failed license request.
+     */
+    static boolean isDrmRendererError(PKError error) {
+        if (error.errorType != PKPlayerErrorType.RENDERER_ERROR || !(error.exception instanceof ExoPlaybackException)) {
+            return false;
+        }
+        Throwable cause = ((ExoPlaybackException) error.exception).getRendererException();
+        while (cause != null) {
+            if (cause instanceof DrmSession.DrmSessionException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
     private boolean isBehindLiveWindow(ExoPlaybackException e) {
         if (e.type != ExoPlaybackException.TYPE_SOURCE) {
             return false;
@@ -578,6 +807,9 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         log.v("seekTo");
         if (assertPlayerIsNotNull("seekTo()")) {
             isSeeking = true;
+            if (fastStartBandwidthMeter != null) {
+                fastStartBandwidthMeter.restart();
+            }
             sendDistinctEvent(PlayerEvent.Type.SEEKING);
             if (isLive() && position == player.getDuration()) {
                 player.seekToDefaultPosition();
@@ -612,9 +844,12 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
             savePlayerPosition();
             player.release();
             player = null;
+            drmSessionManager.releasePooledSessions();
             trackSelectionHelper.release();
             trackSelectionHelper = null;
         }
+        stopQualityGovernor();
+        BandwidthEstimateStore.save(context);
         shouldRestorePlayerToPreviousState = true;
     }
 
@@ -634,6 +869,70 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         }
     }
 
+    /**
+     * Create the underlying player ahead of the first load, so that a pooled engine is ready to play.
+     */
+    void warmUp() {
+        if (player == null) {
+            this.useTextureView = playerSettings.useTextureView();
+            this.isSurfaceSecured = playerSettings.isSurfaceSecured();
+            initializePlayer();
+        }
+    }
+
+    /**
+     * @return - true if this engine was created (or last used) with the same context and load control as required by the settings.
+     */
+    boolean isReusableWith(Context context, PlayerSettings playerSettings) {
+        return player != null && this.context == context && appliedLoadControlBuffers != null &&
+                appliedLoadControlBuffers.hasSameValues(playerSettings.getLoadControlBuffers()) &&
+                appliedAbrStrategy == playerSettings.getAbrStrategy();
+    }
+
+    Context getContext() {
+        return context;
+    }
+
+    void setPlayerSettings(PlayerSettings playerSettings) {
+        this.playerSettings = playerSettings;
+        if (player != null) {
+            startQualityGovernor();
+            applyAbrSettings();
+        }
+    }
+
+    /**
+     * Reset the engine to its initial state while keeping the underlying player, so it can be handed to another PlayerController.
+     *
+     * @return - false if the engine can not be reused and should be destroyed instead.
+     */
+    boolean recycle() {
+        log.v("recycle");
+        if (player == null || exoPlayerView == null) {
+            return false;
+        }
+        stop();
+        // The next player of the engine must not get the licenses of this one.
+        drmSessionManager.releasePooledSessions();
+        player.setVolume(lastKnownVolume);
+        player.setPlaybackParameters(new PlaybackParameters(lastKnownPlaybackRate, DEFAULT_PITCH_RATE));
+        eventListener = null;
+        stateChangedListener = null;
+        sourceConfig = null;
+        tracks = null;
+        currentError = null;
+        currentEvent = null;
+        currentState = PlayerState.IDLE;
+        previousState = null;
+        metadataList.clear();
+        isSeeking = false;
+        shouldRestorePlayerToPreviousState = false;
+        playerPosition = Consts.TIME_UNSET;
+        exoPlayerView.showVideoSurface();
+        exoPlayerView.showVideoSubtitles();
+        return true;
+    }
+
     private boolean isLiveMediaWithoutDvr() {
         return (PKMediaEntry.MediaEntryType.Live == sourceConfig.mediaEntryType);
     }
@@ -643,7 +942,12 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         log.v("destroy");
         if (assertPlayerIsNotNull("destroy()")) {
             player.release();
+            drmSessionManager.releasePooledSessions();
         }
+        mainHandler.removeCallbacks(qoeUpdater);
+        isQoeUpdateScheduled = false;
+        stopQualityGovernor();
+        BandwidthEstimateStore.save(context);
         window = null;
         player = null;
         exoPlayerView = null;
@@ -658,6 +962,10 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         }
 
         try {
+            // Only an audio change refetches the media of the new track from the playback position and stalls.
+            if (adaptiveLoadControl != null && TrackSelectionHelper.isAudioTrackId(uniqueId)) {
+                adaptiveLoadControl.onTrackChangeRequested();
+            }
             trackSelectionHelper.changeTrack(uniqueId);
         } catch (IllegalArgumentException ex) {
             sendTrackSelectionError(uniqueId, ex);
@@ -754,7 +1062,13 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
                 trackSelectionHelper.getCurrentAudioBitrate(),
                 bandwidthMeter.getBitrateEstimate(),
                 trackSelectionHelper.getCurrentVideoWidth(),
-                trackSelectionHelper.getCurrentVideoHeight());
+                trackSelectionHelper.getCurrentVideoHeight(),
+                initialBitrateEstimate,
+                adaptiveLoadControl != null ? adaptiveLoadControl.getMinBufferMs() : appliedLoadControlBuffers.getMinPlayerBufferMs(),
+                adaptiveLoadControl != null ? adaptiveLoadControl.getMaxBufferMs() : appliedLoadControlBuffers.getMaxPlayerBufferMs(),
+                adaptiveLoadControl != null ? adaptiveLoadControl.getTargetBufferBytes() : C.LENGTH_UNSET,
+                timeToFirstFrameMs != C.TIME_UNSET ? timeToFirstFrameMs : -1,
+                qoeAggregator.getStallCount());
     }
 
     @Override
@@ -762,6 +1076,13 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         return currentError;
     }
 
+    /**
+     * @return - true for an error reported by the DRM session manager, which the renderers fail the player with right after.
+     */
+    boolean isDrmSessionError(PKError error) {
+        return error == drmSessionError;
+    }
+
     @Override
     public void stop() {
         log.v("stop");
@@ -774,6 +1095,10 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
         if (trackSelectionHelper != null) {
             trackSelectionHelper.stop();
         }
+        nextSourceConfig = null;
+        playlistMediaSource = null;
+        mainHandler.removeCallbacks(qoeUpdater);
+        isQoeUpdateScheduled = false;
         if (assertPlayerIsNotNull("stop()")) {
             player.setPlayWhenReady(false);
             player.stop(true);
@@ -841,9 +1166,146 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
                 currentError = error;
                 sendEvent(PlayerEvent.Type.ERROR);
             }
+
+            @Override
+            public void onSessionError(PKError error) {
+                drmSessionError = error;
+                onError(error);
+            }
+
+            @Override
+            public void onKeysLoaded() {
+                markStartupPhase(StartupTrace.Phase.DRM_LICENSE_LOADED);
+            }
+        };
+    }
+
+    private AnalyticsListener initAnalyticsListener() {
+        return new AnalyticsListener() {
+            @Override
+            public void onLoadCompleted(EventTime eventTime, MediaSourceEventListener.LoadEventInfo loadEventInfo,
+                                        MediaSourceEventListener.MediaLoadData mediaLoadData) {
+                if (mediaLoadData.dataType == C.DATA_TYPE_MANIFEST) {
+                    markStartupPhase(StartupTrace.Phase.MANIFEST_LOADED);
+                }
+            }
+
+            @Override
+            public void onDecoderInputFormatChanged(EventTime eventTime, int trackType, Format format) {
+                if (trackType == C.TRACK_TYPE_VIDEO) {
+                    qoeAggregator.onVideoBitrateChanged(format.bitrate);
+                }
+            }
+
+            @Override
+            public void onDroppedVideoFrames(EventTime eventTime, int droppedFrames, long elapsedMs) {
+                qoeAggregator.onDroppedFrames(droppedFrames);
+            }
+        };
+    }
+
+    private Runnable initQoeUpdater() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                isQoeUpdateScheduled = false;
+                sendEvent(PlayerEvent.Type.QOE_UPDATED);
+                scheduleQoeUpdate();
+            }
+        };
+    }
+
+    /**
+     * Send QOE_UPDATED periodically while the player plays or stalls, and once more after it stops.
+     */
+    private void scheduleQoeUpdate() {
+        long intervalMs = playerSettings.getQoeUpdateIntervalMs();
+        if (!isQoeUpdateScheduled && intervalMs > 0 && qoeAggregator.isActive()) {
+            isQoeUpdateScheduled = true;
+            mainHandler.postDelayed(qoeUpdater, intervalMs);
+        }
+    }
+
+    /**
+     * Apply the ABR settings, within the constraints of the quality governor.
+     */
+    void applyAbrSettings() {
+        if (trackSelector == null) {
+            return;
+        }
+        AbrSettings abrSettings = playerSettings.getAbrSettings();
+        QualityGovernorStatus governorStatus = qualityGovernor != null ? qualityGovernor.getStatus() : null;
+        if (governorStatus != null && governorStatus.getLevel() != QualityGovernorPolicy.Level.NONE) {
+            abrSettings = abrSettings.copy()
+                    .setMaxVideoHeight(Math.min(abrSettings.getMaxVideoHeight(), governorStatus.getMaxVideoHeight()))
+                    .setMaxVideoFrameRate(Math.min(abrSettings.getMaxVideoFrameRate(), governorStatus.getMaxVideoFrameRate()));
+        }
+        trackSelector.setAbrSettings(abrSettings);
+    }
+
+    private void startQualityGovernor() {
+        stopQualityGovernor();
+        QualityGovernorPolicy policy = playerSettings.getQualityGovernorPolicy();
+        if (policy != null) {
+            qualityGovernor = new QualityGovernor(context, policy, new QualityGovernor.Listener() {
+                @Override
+                public void onStatusChanged(QualityGovernorStatus status) {
+                    applyAbrSettings();
+                    sendEvent(PlayerEvent.Type.QUALITY_GOVERNOR_CHANGED);
+                }
+            });
+            qualityGovernor.start();
+        }
+    }
+
+    private void stopQualityGovernor() {
+        if (qualityGovernor != null) {
+            qualityGovernor.stop();
+            qualityGovernor = null;
+        }
+    }
+
+    QualityGovernorStatus getQualityGovernorStatus() {
+        return qualityGovernor != null ? qualityGovernor.getStatus() : null;
+    }
+
+    QoeMetrics getQoeMetrics() {
+        int manifestRetryCount = loadErrorHandlingPolicy != null ? loadErrorHandlingPolicy.getManifestRetryCount() : 0;
+        int segmentRetryCount = loadErrorHandlingPolicy != null ? loadErrorHandlingPolicy.getSegmentRetryCount() : 0;
+        return qoeAggregator.getSnapshot(timeToFirstFrameMs != C.TIME_UNSET ? timeToFirstFrameMs : -1, manifestRetryCount, segmentRetryCount);
+    }
+
+    private void markStartupPhase(StartupTrace.Phase phase) {
+        if (sourceConfig != null && sourceConfig.startupTrace != null) {
+            sourceConfig.startupTrace.mark(phase);
+        }
+    }
+
+    private VideoListener initVideoListener() {
+        return new VideoListener() {
+            @Override
+            public void onVideoSizeChanged(int width, int height, int unappliedRotationDegrees, float pixelWidthHeightRatio) {
+                // Reported with the tracks.
+            }
+
+            @Override
+            public void onRenderedFirstFrame() {
+                onFirstFrame();
+            }
         };
     }
 
+    private void onFirstFrame() {
+        if (timeToFirstFrameMs == C.TIME_UNSET) {
+            timeToFirstFrameMs = SystemClock.elapsedRealtime() - loadTimeMs;
+            log.d("Time to first frame: " + timeToFirstFrameMs + "ms");
+            if (sourceConfig != null && sourceConfig.startupTrace != null) {
+                sourceConfig.startupTrace.mark(StartupTrace.Phase.FIRST_FRAME);
+                sendEvent(PlayerEvent.Type.STARTUP_METRICS);
+            }
+        }
+    }
+
     @Override
     public BaseTrack getLastSelectedTrack(int renderType) {
         return trackSelectionHelper.getLastSelectedTrack(renderType);
@@ -879,15 +1341,38 @@ class ExoPlayerWrapper implements PlayerEngine, Player.EventListener, MetadataOu
 
     @Override
     public void onBandwidthSample(int elapsedMs, long bytes, long bitrate) {
+        BandwidthEstimateStore.update(context, bandwidthMeter.getBitrateEstimate());
+        if (adaptiveLoadControl != null) {
+            adaptiveLoadControl.onBitrateEstimate(bandwidthMeter.getBitrateEstimate());
+        }
         sendEvent(PlayerEvent.Type.PLAYBACK_INFO_UPDATED);
     }
 
     @Override
     public <T extends PKController> T getController(Class<T> type) {
-        //Currently no controller for ExoplayerWrapper. So always return null.
+        if (type == VideoRendererStatsController.class) {
+            return (T) videoRendererStatsController;
+        }
         return null;
     }
 
+    private VideoRendererStatsController initVideoRendererStatsController() {
+        return new VideoRendererStatsController() {
+            @Override
+            public VideoRendererStats getVideoRendererStats() {
+                CustomVideoCodecRenderer videoRenderer = renderersFactory != null ? renderersFactory.getVideoRenderer() : null;
+                if (videoRenderer == null) {
+                    return null;
+                }
+                long codecInitializationDurationMs = videoRenderer.getCodecInitializationDurationMs();
+                return new VideoRendererStats(videoRenderer.getTotalRenderedFrameCount(), videoRenderer.getTotalDroppedFrameCount(),
+                        videoRenderer.getTotalSkippedFrameCount(), videoRenderer.getMaxConsecutiveDroppedFrameCount(),
+                        videoRenderer.getCodecName(), codecInitializationDurationMs != C.TIME_UNSET ? codecInitializationDurationMs : -1,
+                        videoRenderer.getOutputFormatChangeCount(), videoRenderer.getDummySurfaceUseCount(), videoRenderer.isUsingDummySurface());
+            }
+        };
+    }
+
     @Override
     public void onOrientationChanged() {
         //Do nothing.
@@ -0,0 +1,87 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+/**
+ * The bandwidth meter seen by the track selection in fast start mode. Until playback starts (after prepare
+ * or seek) it reports no bandwidth, so the lowest rendition is selected; then the reported estimate ramps
+ * up to the real one over the ramp duration of the {@link FastStartPolicy}.
+ */
+class FastStartBandwidthMeter implements BandwidthMeter {
+
+    private final BandwidthMeter bandwidthMeter;
+    private final long rampDurationMs;
+
+    private volatile boolean starting;
+    private volatile long rampStartTimeMs = C.TIME_UNSET;
+
+    FastStartBandwidthMeter(BandwidthMeter bandwidthMeter, FastStartPolicy policy) {
+        this.bandwidthMeter = bandwidthMeter;
+        this.rampDurationMs = policy.getRampDurationMs();
+    }
+
+    /**
+     * Called on prepare and seek.
+     */
+    void restart() {
+        starting = true;
+        rampStartTimeMs = C.TIME_UNSET;
+    }
+
+    /**
+     * Called when the player is ready to play.
+     */
+    void onStarted() {
+        if (starting) {
+            starting = false;
+            rampStartTimeMs = SystemClock.elapsedRealtime();
+        }
+    }
+
+    @Override
+    public long getBitrateEstimate() {
+        if (starting) {
+            return 0;
+        }
+        long rampStartTimeMs = this.rampStartTimeMs;
+        long elapsedMs = SystemClock.elapsedRealtime() - rampStartTimeMs;
+        if (rampStartTimeMs == C.TIME_UNSET || elapsedMs >= rampDurationMs) {
+            return bandwidthMeter.getBitrateEstimate();
+        }
+        return bandwidthMeter.getBitrateEstimate() * elapsedMs / rampDurationMs;
+    }
+
+    @Nullable
+    @Override
+    public TransferListener getTransferListener() {
+        return bandwidthMeter.getTransferListener();
+    }
+
+    @Override
+    public void addEventListener(Handler eventHandler, EventListener eventListener) {
+        bandwidthMeter.addEventListener(eventHandler, eventListener);
+    }
+
+    @Override
+    public void removeEventListener(EventListener eventListener) {
+        bandwidthMeter.removeEventListener(eventListener);
+    }
+}
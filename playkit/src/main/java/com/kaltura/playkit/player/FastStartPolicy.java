@@ -0,0 +1,53 @@
+package com.kaltura.playkit.player;
+
+public class FastStartPolicy {
+
+    public static final int DEFAULT_START_BUFFER_MS = 500;
+    public static final int DEFAULT_RAMP_DURATION_MS = 8000;
+    public static final int DEFAULT_MIN_DURATION_FOR_QUALITY_INCREASE_MS = 3000;
+
+    private int startBufferMs = DEFAULT_START_BUFFER_MS; // Media that must be buffered for playback to start after prepare or seek
+    private int rampDurationMs = DEFAULT_RAMP_DURATION_MS; // Time after the start in which the quality goes up from the lowest rendition to the one the bandwidth allows
+    private int minDurationForQualityIncreaseMs = DEFAULT_MIN_DURATION_FOR_QUALITY_INCREASE_MS; // Media that must be buffered before switching to a higher quality
+
+    public int getStartBufferMs() {
+        return startBufferMs;
+    }
+
+    public FastStartPolicy setStartBufferMs(int startBufferMs) {
+        this.startBufferMs = startBufferMs;
+        return this;
+    }
+
+    public int getRampDurationMs() {
+        return rampDurationMs;
+    }
+
+    public FastStartPolicy setRampDurationMs(int rampDurationMs) {
+        this.rampDurationMs = rampDurationMs;
+        return this;
+    }
+
+    public int getMinDurationForQualityIncreaseMs() {
+        return minDurationForQualityIncreaseMs;
+    }
+
+    public FastStartPolicy setMinDurationForQualityIncreaseMs(int minDurationForQualityIncreaseMs) {
+        this.minDurationForQualityIncreaseMs = minDurationForQualityIncreaseMs;
+        return this;
+    }
+
+    FastStartPolicy copy() {
+        return new FastStartPolicy()
+                .setStartBufferMs(startBufferMs)
+                .setRampDurationMs(rampDurationMs)
+                .setMinDurationForQualityIncreaseMs(minDurationForQualityIncreaseMs);
+    }
+
+    boolean hasSameValues(FastStartPolicy other) {
+        return other != null &&
+                startBufferMs == other.startBufferMs &&
+                rampDurationMs == other.rampDurationMs &&
+                minDurationForQualityIncreaseMs == other.minDurationForQualityIncreaseMs;
+    }
+}
@@ -13,8 +13,11 @@ public class LoadControlBuffers {
     private int maxPlayerBufferMs = DEFAULT_MAX_BUFFER_MS; //The default maximum duration of media that the player will attempt to buffer
     private int minBufferAfterInteractionMs = DEFAULT_BUFFER_FOR_PLAYBACK_MS; //The default duration of media that must be buffered for playback to start or resume following a user action such as a seek
     private int minBufferAfterReBufferMs = DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS; //The default duration of media that must be buffered for playback after re-buffering
+    private int minBufferAfterTrackChangeMs = -1; //The duration of media that must be buffered for playback to resume after a track change, -1 to use minBufferAfterReBufferMs
     private int backBufferDurationMs = DEFAULT_BACK_BUFFER_DURATION_MS;
     private boolean retainBackBufferFromKeyframe = DEFAULT_RETAIN_BACK_BUFFER_FROM_KEYFRAME;
+    private AdaptiveBufferPolicy adaptivePolicy; // When set, the buffer targets follow memory pressure, throughput and device RAM
+    private FastStartPolicy fastStartPolicy; // When set, playback starts on a small buffer and the lowest quality, then ramps up
 
     public int getMinPlayerBufferMs() {
         return minPlayerBufferMs;
@@ -61,6 +64,31 @@ public class LoadControlBuffers {
         return this;
     }
 
+    public int getMinBufferAfterTrackChangeMs() {
+        if (minBufferAfterTrackChangeMs < 0) {
+            return getMinBufferAfterReBufferMs();
+        }
+        if (minPlayerBufferMs < minBufferAfterTrackChangeMs) {
+            return minPlayerBufferMs;
+        }
+        return minBufferAfterTrackChangeMs;
+    }
+
+    /**
+     * Resume playback with a smaller buffer after an audio track change (e.g. the audio language), which
+     * refetches the audio of the new track from the playback position. The player still goes to buffering,
+     * but waits only for the first segment of the new track instead of a full re-buffer. Video and text track
+     * changes are not affected. -1 (the default) uses {@link #getMinBufferAfterReBufferMs()}.
+     */
+    public LoadControlBuffers setMinBufferAfterTrackChangeMs(int minBufferAfterTrackChangeMs) {
+        this.minBufferAfterTrackChangeMs = minBufferAfterTrackChangeMs;
+        return this;
+    }
+
+    boolean isTrackChangeBufferSet() {
+        return minBufferAfterTrackChangeMs >= 0;
+    }
+
     public int getBackBufferDurationMs() {
         return backBufferDurationMs;
     }
@@ -78,4 +106,58 @@ public class LoadControlBuffers {
         this.retainBackBufferFromKeyframe = retainBackBufferFromKeyframe;
         return this;
     }
+
+    public AdaptiveBufferPolicy getAdaptivePolicy() {
+        return adaptivePolicy;
+    }
+
+    /**
+     * Adjust the max buffer and the target buffer size at runtime, within the limits of the policy.
+     * The min buffer is lowered when it's above the adjusted max buffer.
+     * Null (the default) keeps the buffers above fixed.
+     */
+    public LoadControlBuffers setAdaptivePolicy(AdaptiveBufferPolicy adaptivePolicy) {
+        this.adaptivePolicy = adaptivePolicy;
+        return this;
+    }
+
+    public FastStartPolicy getFastStartPolicy() {
+        return fastStartPolicy;
+    }
+
+    /**
+     * Start playing after prepare and seek with a small buffer and the lowest quality, and let the quality
+     * ramp up over the first seconds. Null (the default) uses {@link #getMinBufferAfterInteractionMs()} and
+     * the bandwidth estimate from the start.
+     */
+    public LoadControlBuffers setFastStartPolicy(FastStartPolicy fastStartPolicy) {
+        this.fastStartPolicy = fastStartPolicy;
+        return this;
+    }
+
+    LoadControlBuffers copy() {
+        return new LoadControlBuffers()
+                .setMinPlayerBufferMs(minPlayerBufferMs)
+                .setMaxPlayerBufferMs(maxPlayerBufferMs)
+                .setMinBufferAfterInteractionMs(minBufferAfterInteractionMs)
+                .setMinBufferAfterReBufferMs(minBufferAfterReBufferMs)
+                .setMinBufferAfterTrackChangeMs(minBufferAfterTrackChangeMs)
+                .setBackBufferDurationMs(backBufferDurationMs)
+                .setRetainBackBufferFromKeyframe(retainBackBufferFromKeyframe)
+                .setAdaptivePolicy(adaptivePolicy != null ? adaptivePolicy.copy() : null)
+                .setFastStartPolicy(fastStartPolicy != null ? fastStartPolicy.copy() : null);
+    }
+
+    boolean hasSameValues(LoadControlBuffers other) {
+        return other != null &&
+                getMinPlayerBufferMs() == other.getMinPlayerBufferMs() &&
+                getMaxPlayerBufferMs() == other.getMaxPlayerBufferMs() &&
+                getMinBufferAfterInteractionMs() == other.getMinBufferAfterInteractionMs() &&
+                getMinBufferAfterReBufferMs() == other.getMinBufferAfterReBufferMs() &&
+                getMinBufferAfterTrackChangeMs() == other.getMinBufferAfterTrackChangeMs() &&
+                getBackBufferDurationMs() == other.getBackBufferDurationMs() &&
+                getRetainBackBufferFromKeyframe() == other.getRetainBackBufferFromKeyframe() &&
+                (adaptivePolicy == null ? other.adaptivePolicy == null : adaptivePolicy.hasSameValues(other.adaptivePolicy)) &&
+                (fastStartPolicy == null ? other.fastStartPolicy == null : fastStartPolicy.hasSameValues(other.fastStartPolicy));
+    }
 }
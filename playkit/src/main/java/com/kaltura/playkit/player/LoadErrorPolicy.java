@@ -0,0 +1,75 @@
+package com.kaltura.playkit.player;
+
+public class LoadErrorPolicy {
+
+    private int manifestRetryCount = 3; // Manifest and playlist loads, the error is fatal after this many retries
+    private int segmentRetryCount = 3; // Segment, init segment and progressive media loads
+    private long initialRetryDelayMs = 500; // Delay of the first retry, doubled on each retry
+    private long maxRetryDelayMs = 8000;
+    private float retryDelayJitter = 0.25f; // Each delay is randomized by this fraction, so clients don't retry in sync
+    private boolean failFastOnClientErrors = true; // 4xx responses aren't retried, 5xx responses and timeouts are
+
+    public int getManifestRetryCount() {
+        return manifestRetryCount;
+    }
+
+    public LoadErrorPolicy setManifestRetryCount(int manifestRetryCount) {
+        this.manifestRetryCount = manifestRetryCount;
+        return this;
+    }
+
+    public int getSegmentRetryCount() {
+        return segmentRetryCount;
+    }
+
+    public LoadErrorPolicy setSegmentRetryCount(int segmentRetryCount) {
+        this.segmentRetryCount = segmentRetryCount;
+        return this;
+    }
+
+    public long getInitialRetryDelayMs() {
+        return initialRetryDelayMs;
+    }
+
+    public LoadErrorPolicy setInitialRetryDelayMs(long initialRetryDelayMs) {
+        this.initialRetryDelayMs = initialRetryDelayMs;
+        return this;
+    }
+
+    public long getMaxRetryDelayMs() {
+        return maxRetryDelayMs;
+    }
+
+    public LoadErrorPolicy setMaxRetryDelayMs(long maxRetryDelayMs) {
+        this.maxRetryDelayMs = maxRetryDelayMs;
+        return this;
+    }
+
+    public float getRetryDelayJitter() {
+        return retryDelayJitter;
+    }
+
+    public LoadErrorPolicy setRetryDelayJitter(float retryDelayJitter) {
+        this.retryDelayJitter = retryDelayJitter;
+        return this;
+    }
+
+    public boolean getFailFastOnClientErrors() {
+        return failFastOnClientErrors;
+    }
+
+    public LoadErrorPolicy setFailFastOnClientErrors(boolean failFastOnClientErrors) {
+        this.failFastOnClientErrors = failFastOnClientErrors;
+        return this;
+    }
+
+    LoadErrorPolicy copy() {
+        return new LoadErrorPolicy()
+                .setManifestRetryCount(manifestRetryCount)
+                .setSegmentRetryCount(segmentRetryCount)
+                .setInitialRetryDelayMs(initialRetryDelayMs)
+                .setMaxRetryDelayMs(maxRetryDelayMs)
+                .setRetryDelayJitter(retryDelayJitter)
+                .setFailFastOnClientErrors(failFastOnClientErrors);
+    }
+}
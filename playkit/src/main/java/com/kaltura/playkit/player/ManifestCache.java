@@ -0,0 +1,378 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.drm.DrmInitData;
+import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.source.hls.HlsDataSourceFactory;
+import com.google.android.exoplayer2.source.hls.playlist.HlsMasterPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsMediaPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsPlaylistParser;
+import com.google.android.exoplayer2.upstream.ByteArrayDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceInputStream;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.util.UriUtil;
+import com.kaltura.playkit.PKLog;
+import com.kaltura.playkit.PKMediaConfig;
+import com.kaltura.playkit.PKMediaEntry;
+import com.kaltura.playkit.PKMediaFormat;
+import com.kaltura.playkit.PKMediaSource;
+import com.kaltura.playkit.PlayKitManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory cache of prefetched VOD manifests, keyed by media entry and source. DASH manifests are
+ * kept parsed and handed to the media source as is; HLS playlists (the master playlist and the first
+ * variant, which the player loads before anything else) are kept as bytes and served instead of the
+ * network. Live manifests change all the time and are never cached.
+ *
+ * @hide
+ */
+public class ManifestCache {
+
+    private static final PKLog log = PKLog.get("ManifestCache");
+
+    public static final long DEFAULT_TIME_TO_LIVE_MS = 5 * 60 * 1000;
+    private static final int MAX_ENTRIES = 20;
+
+    private static final Map<String, CachedManifest> entries = new LinkedHashMap<String, CachedManifest>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedManifest> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static final Set<String> pendingKeys = new HashSet<>();
+
+    private static volatile long timeToLiveMs = DEFAULT_TIME_TO_LIVE_MS;
+
+    /**
+     * A loaded manifest or playlist, and the URI it was loaded from after redirects, which its relative URLs resolve against.
+     */
+    static class LoadedPlaylist {
+        final byte[] data;
+        final Uri uri;
+
+        LoadedPlaylist(byte[] data, Uri uri) {
+            this.data = data;
+            this.uri = uri;
+        }
+    }
+
+    static class CachedManifest {
+        final long expirationTimeMs;
+        final DashManifest dashManifest;
+        final LoadedPlaylist hlsMasterPlaylist;
+        final Map<String, LoadedPlaylist> hlsMediaPlaylists; // By requested URI
+
+        CachedManifest(DashManifest dashManifest, LoadedPlaylist hlsMasterPlaylist, Map<String, LoadedPlaylist> hlsMediaPlaylists) {
+            this.expirationTimeMs = SystemClock.elapsedRealtime() + timeToLiveMs;
+            this.dashManifest = dashManifest;
+            this.hlsMasterPlaylist = hlsMasterPlaylist;
+            this.hlsMediaPlaylists = hlsMediaPlaylists;
+        }
+
+        boolean isExpired() {
+            return SystemClock.elapsedRealtime() >= expirationTimeMs;
+        }
+    }
+
+    /**
+     * Set how long prefetched manifests are used. Applies to manifests prefetched after the call.
+     */
+    public static void setTimeToLive(long timeToLiveMs) {
+        ManifestCache.timeToLiveMs = timeToLiveMs;
+    }
+
+    public static synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Prefetch the manifest of the source that a player with default settings would select for the entry.
+     */
+    public static void prefetch(@NonNull Context context, @NonNull PKMediaEntry mediaEntry) {
+        PlayerSettings playerSettings = new PlayerSettings();
+        PKMediaSource source = SourceSelector.selectSource(mediaEntry, playerSettings.getPreferredMediaFormat());
+        if (source != null) {
+            prefetch(context, new PKMediaSourceConfig(new PKMediaConfig().setMediaEntry(mediaEntry), source, playerSettings));
+        }
+    }
+
+    static void prefetch(Context context, final PKMediaSourceConfig sourceConfig) {
+        final PKMediaFormat format = sourceConfig.mediaSource.getMediaFormat();
+        if (format != PKMediaFormat.dash && format != PKMediaFormat.hls) {
+            return;
+        }
+        if (sourceConfig.mediaEntryType == PKMediaEntry.MediaEntryType.Live) {
+            log.d("Not prefetching live entry " + sourceConfig.mediaEntryId);
+            return;
+        }
+
+        final String key = getKey(sourceConfig);
+        synchronized (ManifestCache.class) {
+            CachedManifest cachedManifest = entries.get(key);
+            if ((cachedManifest != null && !cachedManifest.isExpired()) || !pendingKeys.add(key)) {
+                return;
+            }
+        }
+
+        final Uri uri = sourceConfig.getUrl();
+        final String userAgent = ExoPlayerWrapper.getUserAgent(context);
+        final boolean allowCrossProtocolRedirects = sourceConfig.playerSettings.crossProtocolRedirectEnabled();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                CachedManifest cachedManifest = null;
+                try {
+                    HttpDataSource dataSource = PlayKitManager.getHttpTransport().createDataSource(userAgent, allowCrossProtocolRedirects,
+                            new HttpDataSource.RequestProperties());
+                    cachedManifest = format == PKMediaFormat.dash ? fetchDash(dataSource, uri) : fetchHls(dataSource, uri);
+                } catch (IOException e) {
+                    log.w("Failed to prefetch " + uri + ": " + e.getMessage());
+                }
+                synchronized (ManifestCache.class) {
+                    pendingKeys.remove(key);
+                    if (cachedManifest != null) {
+                        entries.put(key, cachedManifest);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the DRM init data of a VOD DASH source from its manifest, prefetched or fetched now (and cached).
+     * Blocks on the manifest request, so it must not be called on the main thread.
+     *
+     * @return - the init data of the first protected video representation, or of any other if the video is clear.
+     */
+    @Nullable
+    static DrmInitData loadDrmInitData(Context context, PKMediaSourceConfig sourceConfig) {
+        if (sourceConfig.mediaSource.getMediaFormat() != PKMediaFormat.dash || sourceConfig.mediaEntryType == PKMediaEntry.MediaEntryType.Live) {
+            return null;
+        }
+        CachedManifest cachedManifest = get(sourceConfig);
+        if (cachedManifest == null) {
+            Uri uri = sourceConfig.getUrl();
+            try {
+                HttpDataSource dataSource = PlayKitManager.getHttpTransport().createDataSource(ExoPlayerWrapper.getUserAgent(context),
+                        sourceConfig.playerSettings.crossProtocolRedirectEnabled(), new HttpDataSource.RequestProperties());
+                cachedManifest = fetchDash(dataSource, uri);
+            } catch (IOException e) {
+                log.w("Failed to load " + uri + ": " + e.getMessage());
+            }
+            if (cachedManifest == null) {
+                return null;
+            }
+            synchronized (ManifestCache.class) {
+                entries.put(getKey(sourceConfig), cachedManifest);
+            }
+        }
+
+        DashManifest manifest = cachedManifest.dashManifest;
+        if (manifest == null || manifest.getPeriodCount() == 0) {
+            return null;
+        }
+        DrmInitData drmInitData = null;
+        for (AdaptationSet adaptationSet : manifest.getPeriod(0).adaptationSets) {
+            for (Representation representation : adaptationSet.representations) {
+                if (representation.format.drmInitData == null) {
+                    continue;
+                }
+                if (adaptationSet.type == C.TRACK_TYPE_VIDEO) {
+                    return representation.format.drmInitData;
+                }
+                if (drmInitData == null) {
+                    drmInitData = representation.format.drmInitData;
+                }
+            }
+        }
+        return drmInitData;
+    }
+
+    @Nullable
+    static synchronized CachedManifest get(PKMediaSourceConfig sourceConfig) {
+        if (sourceConfig.mediaEntryType == PKMediaEntry.MediaEntryType.Live) {
+            return null;
+        }
+        String key = getKey(sourceConfig);
+        CachedManifest cachedManifest = entries.get(key);
+        if (cachedManifest != null && cachedManifest.isExpired()) {
+            entries.remove(key);
+            return null;
+        }
+        return cachedManifest;
+    }
+
+    /**
+     * Wrap the HLS data source factory so the playlists of the cached manifest are read from memory.
+     */
+    static HlsDataSourceFactory wrapHlsDataSourceFactory(final DataSource.Factory dataSourceFactory, final CachedManifest cachedManifest, final Uri masterUri) {
+        return new HlsDataSourceFactory() {
+            @Override
+            public DataSource createDataSource(int dataType) {
+                DataSource dataSource = dataSourceFactory.createDataSource();
+                return dataType == C.DATA_TYPE_MANIFEST ? new CachedPlaylistDataSource(dataSource, cachedManifest, masterUri) : dataSource;
+            }
+        };
+    }
+
+    private static String getKey(PKMediaSourceConfig sourceConfig) {
+        // The URL may change between sessions (e.g. a session id in the query), the source doesn't.
+        PKMediaSource source = sourceConfig.mediaSource;
+        return sourceConfig.mediaEntryId + ":" + (source.getId() != null ? source.getId() : source.getUrl());
+    }
+
+    @Nullable
+    private static CachedManifest fetchDash(DataSource dataSource, Uri uri) throws IOException {
+        LoadedPlaylist loadedManifest = load(dataSource, uri);
+        DashManifest manifest = new DashManifestParser().parse(loadedManifest.uri, new ByteArrayInputStream(loadedManifest.data));
+        if (manifest.dynamic) {
+            log.d("Not caching dynamic manifest " + uri);
+            return null;
+        }
+        return new CachedManifest(manifest, null, null);
+    }
+
+    @Nullable
+    private static CachedManifest fetchHls(DataSource dataSource, Uri uri) throws IOException {
+        LoadedPlaylist master = load(dataSource, uri);
+        HlsPlaylist playlist = new HlsPlaylistParser().parse(master.uri, new ByteArrayInputStream(master.data));
+
+        Map<String, LoadedPlaylist> mediaPlaylists = new HashMap<>();
+        HlsMediaPlaylist mediaPlaylist;
+        if (playlist instanceof HlsMasterPlaylist) {
+            List<HlsMasterPlaylist.HlsUrl> variants = ((HlsMasterPlaylist) playlist).variants;
+            if (variants.isEmpty()) {
+                return null;
+            }
+            Uri variantUri = UriUtil.resolveToUri(playlist.baseUri, variants.get(0).url);
+            LoadedPlaylist variant = load(dataSource, variantUri);
+            HlsPlaylist variantPlaylist = new HlsPlaylistParser().parse(variant.uri, new ByteArrayInputStream(variant.data));
+            if (!(variantPlaylist instanceof HlsMediaPlaylist)) {
+                return null;
+            }
+            mediaPlaylist = (HlsMediaPlaylist) variantPlaylist;
+            mediaPlaylists.put(variantUri.toString(), variant);
+        } else {
+            mediaPlaylist = (HlsMediaPlaylist) playlist;
+        }
+
+        if (!mediaPlaylist.hasEndTag) {
+            log.d("Not caching live playlist " + uri);
+            return null;
+        }
+        return new CachedManifest(null, master, mediaPlaylists);
+    }
+
+    private static LoadedPlaylist load(DataSource dataSource, Uri uri) throws IOException {
+        DataSourceInputStream inputStream = new DataSourceInputStream(dataSource, new DataSpec(uri));
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            // Like the player's loader, parse against the URI after redirects (e.g. playManifest to the CDN).
+            Uri loadedUri = dataSource.getUri();
+            return new LoadedPlaylist(outputStream.toByteArray(), loadedUri != null ? loadedUri : uri);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Serves the playlists of a cached HLS manifest from memory, and everything else from upstream.
+     */
+    private static class CachedPlaylistDataSource implements DataSource {
+
+        private final DataSource upstream;
+        private final CachedManifest cachedManifest;
+        private final Uri masterUri;
+        private DataSource openedDataSource;
+        private Uri cachedPlaylistUri;
+
+        CachedPlaylistDataSource(DataSource upstream, CachedManifest cachedManifest, Uri masterUri) {
+            this.upstream = upstream;
+            this.cachedManifest = cachedManifest;
+            this.masterUri = masterUri;
+        }
+
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+            upstream.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            LoadedPlaylist playlist = masterUri.equals(dataSpec.uri) ? cachedManifest.hlsMasterPlaylist : cachedManifest.hlsMediaPlaylists.get(dataSpec.uri.toString());
+            openedDataSource = playlist != null ? new ByteArrayDataSource(playlist.data) : upstream;
+            // The player resolves the URLs of the playlist against this URI, so it must be the one after redirects.
+            cachedPlaylistUri = playlist != null ? playlist.uri : null;
+            return openedDataSource.open(dataSpec);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int readLength) throws IOException {
+            return openedDataSource.read(buffer, offset, readLength);
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            if (cachedPlaylistUri != null) {
+                return cachedPlaylistUri;
+            }
+            return openedDataSource != null ? openedDataSource.getUri() : null;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return openedDataSource != null ? openedDataSource.getResponseHeaders() : upstream.getResponseHeaders();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (openedDataSource != null) {
+                openedDataSource.close();
+                openedDataSource = null;
+                cachedPlaylistUri = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.content.Context;
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSink;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.kaltura.playkit.PKLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk cache of media segments and VOD manifests, shared by all the players of the process.
+ *
+ * @hide
+ */
+public class MediaCache {
+
+    private static final PKLog log = PKLog.get("MediaCache");
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong bytesFromCache = new AtomicLong();
+    private static final AtomicLong bytesFromNetwork = new AtomicLong();
+
+    private static Cache cache;
+    private static File cacheDirectory;
+
+    public static class Stats {
+
+        /**
+         * Number of reads that were served, at least partially, from the cache.
+         */
+        public final long hits;
+
+        /**
+         * Number of requests that went to the network.
+         */
+        public final long misses;
+
+        /**
+         * Bytes read from the cache instead of the network.
+         */
+        public final long bytesSaved;
+
+        /**
+         * Bytes read from the network through the cache.
+         */
+        public final long bytesDownloaded;
+
+        Stats(long hits, long misses, long bytesSaved, long bytesDownloaded) {
+            this.hits = hits;
+            this.misses = misses;
+            this.bytesSaved = bytesSaved;
+            this.bytesDownloaded = bytesDownloaded;
+        }
+
+        @Override
+        public String toString() {
+            return "MediaCache.Stats{hits=" + hits + ", misses=" + misses + ", bytesSaved=" + bytesSaved + ", bytesDownloaded=" + bytesDownloaded + "}";
+        }
+    }
+
+    public static Stats getStats() {
+        return new Stats(hits.get(), misses.get(), bytesFromCache.get(), bytesFromNetwork.get());
+    }
+
+    /**
+     * Wrap a data source factory with the cache, if the settings enable it.
+     */
+    static DataSource.Factory wrap(Context context, @Nullable MediaCacheSettings settings, DataSource.Factory upstreamFactory) {
+        if (settings == null || settings.getMaxCacheSizeBytes() <= 0) {
+            return upstreamFactory;
+        }
+        Cache cache = getCache(context, settings);
+        return cache != null ? new CachingDataSourceFactory(cache, upstreamFactory, settings.getCacheKeyIgnoredQueryParameters()) : upstreamFactory;
+    }
+
+    static String buildCacheKey(Uri uri, Set<String> ignoredQueryParameters) {
+        if (ignoredQueryParameters.isEmpty() || uri.getQuery() == null) {
+            return uri.toString();
+        }
+        Uri.Builder builder = uri.buildUpon().clearQuery();
+        for (String name : uri.getQueryParameterNames()) {
+            if (!ignoredQueryParameters.contains(name)) {
+                for (String value : uri.getQueryParameters(name)) {
+                    builder.appendQueryParameter(name, value);
+                }
+            }
+        }
+        return builder.build().toString();
+    }
+
+    private static synchronized Cache getCache(Context context, MediaCacheSettings settings) {
+        File requestedDirectory = settings.getCacheDirectory() != null ?
+                settings.getCacheDirectory() : new File(context.getCacheDir(), MediaCacheSettings.DEFAULT_CACHE_DIRECTORY_NAME);
+
+        if (cache == null) {
+            try {
+                // A cache directory can only be used by a single SimpleCache instance.
+                cache = new SimpleCache(requestedDirectory, new LeastRecentlyUsedCacheEvictor(settings.getMaxCacheSizeBytes()));
+                cacheDirectory = requestedDirectory;
+            } catch (IllegalStateException e) {
+                log.e("Failed to create media cache in " + requestedDirectory + ": " + e.getMessage());
+                return null;
+            }
+        } else if (!cacheDirectory.equals(requestedDirectory)) {
+            log.w("Media cache already uses " + cacheDirectory + ", ignoring " + requestedDirectory);
+        }
+        return cache;
+    }
+
+    private static class CachingDataSourceFactory implements DataSource.Factory {
+
+        private final Cache cache;
+        private final DataSource.Factory upstreamFactory;
+        private final Set<String> cacheKeyIgnoredQueryParameters;
+        private final CacheDataSource.EventListener eventListener = new CacheDataSource.EventListener() {
+            @Override
+            public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+                hits.incrementAndGet();
+                bytesFromCache.addAndGet(cachedBytesRead);
+            }
+
+            @Override
+            public void onCacheIgnored(int reason) {
+                log.d("Cache ignored, reason " + reason);
+            }
+        };
+
+        CachingDataSourceFactory(Cache cache, DataSource.Factory upstreamFactory, Set<String> cacheKeyIgnoredQueryParameters) {
+            this.cache = cache;
+            this.upstreamFactory = upstreamFactory;
+            this.cacheKeyIgnoredQueryParameters = cacheKeyIgnoredQueryParameters;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            CacheDataSource cacheDataSource = new CacheDataSource(cache,
+                    new CountingDataSource(upstreamFactory.createDataSource()),
+                    new FileDataSource(),
+                    new CacheDataSink(cache, CacheDataSource.DEFAULT_MAX_CACHE_FILE_SIZE),
+                    CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR,
+                    eventListener);
+            return new CacheKeyDataSource(cacheDataSource, cacheKeyIgnoredQueryParameters);
+        }
+    }
+
+    /**
+     * Sets the cache key of every request, so URLs that differ only by their ignored query parameters (e.g. tokens)
+     * share the cached content.
+     */
+    private static class CacheKeyDataSource implements DataSource {
+
+        private final DataSource cacheDataSource;
+        private final Set<String> cacheKeyIgnoredQueryParameters;
+
+        CacheKeyDataSource(DataSource cacheDataSource, Set<String> cacheKeyIgnoredQueryParameters) {
+            this.cacheDataSource = cacheDataSource;
+            this.cacheKeyIgnoredQueryParameters = cacheKeyIgnoredQueryParameters;
+        }
+
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+            cacheDataSource.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            if (dataSpec.key == null) {
+                dataSpec = new DataSpec(dataSpec.uri, dataSpec.postBody, dataSpec.absoluteStreamPosition, dataSpec.position,
+                        dataSpec.length, buildCacheKey(dataSpec.uri, cacheKeyIgnoredQueryParameters), dataSpec.flags);
+            }
+            return cacheDataSource.open(dataSpec);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int readLength) throws IOException {
+            return cacheDataSource.read(buffer, offset, readLength);
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return cacheDataSource.getUri();
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return cacheDataSource.getResponseHeaders();
+        }
+
+        @Override
+        public void close() throws IOException {
+            cacheDataSource.close();
+        }
+    }
+
+    /**
+     * Counts the requests and bytes that the cache had to get from the network.
+     */
+    private static class CountingDataSource implements DataSource {
+
+        private final DataSource upstream;
+
+        CountingDataSource(DataSource upstream) {
+            this.upstream = upstream;
+        }
+
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+            upstream.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            misses.incrementAndGet();
+            return upstream.open(dataSpec);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int readLength) throws IOException {
+            int bytesRead = upstream.read(buffer, offset, readLength);
+            if (bytesRead > 0) {
+                bytesFromNetwork.addAndGet(bytesRead);
+            }
+            return bytesRead;
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return upstream.getUri();
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return upstream.getResponseHeaders();
+        }
+
+        @Override
+        public void close() throws IOException {
+            upstream.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.kaltura.playkit.player;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class MediaCacheSettings {
+
+    public static final long DEFAULT_MAX_CACHE_SIZE_BYTES = 100 * 1024 * 1024;
+    public static final String DEFAULT_CACHE_DIRECTORY_NAME = "playkit-media-cache";
+
+    private long maxCacheSizeBytes = DEFAULT_MAX_CACHE_SIZE_BYTES; // Least recently used content is evicted above this size
+    private File cacheDirectory; // Defaults to a directory under Context.getCacheDir()
+    private Set<String> cacheKeyIgnoredQueryParameters = Collections.emptySet(); // By default the whole URL is the cache key
+
+    public long getMaxCacheSizeBytes() {
+        return maxCacheSizeBytes;
+    }
+
+    public MediaCacheSettings setMaxCacheSizeBytes(long maxCacheSizeBytes) {
+        this.maxCacheSizeBytes = maxCacheSizeBytes;
+        return this;
+    }
+
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * The cache is shared by all the players of the process - only the directory and size of the first
+     * player that uses the cache apply.
+     */
+    public MediaCacheSettings setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        return this;
+    }
+
+    public Set<String> getCacheKeyIgnoredQueryParameters() {
+        return cacheKeyIgnoredQueryParameters;
+    }
+
+    /**
+     * Query parameters that don't select the content (e.g. rotating tokens and signatures), and are left out
+     * of the cache key, so URLs that differ only in them are stored once. By default none are - never list
+     * a parameter that changes the response, such as the KS of a playManifest request.
+     */
+    public MediaCacheSettings setCacheKeyIgnoredQueryParameters(String... parameterNames) {
+        this.cacheKeyIgnoredQueryParameters = parameterNames != null ? new HashSet<>(Arrays.asList(parameterNames)) : Collections.<String>emptySet();
+        return this;
+    }
+}
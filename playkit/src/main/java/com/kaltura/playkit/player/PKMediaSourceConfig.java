@@ -19,6 +19,7 @@ import com.kaltura.playkit.PKMediaConfig;
 import com.kaltura.playkit.PKMediaEntry;
 import com.kaltura.playkit.PKMediaSource;
 import com.kaltura.playkit.PKRequestParams;
+import com.kaltura.playkit.StartupTrace;
 import com.kaltura.playkit.player.vr.VRSettings;
 
 /**
@@ -28,12 +29,15 @@ public class PKMediaSourceConfig {
 
     PKMediaSource mediaSource;
     PKMediaEntry.MediaEntryType mediaEntryType;
+    String mediaEntryId;
+    StartupTrace startupTrace;
     PlayerSettings playerSettings;
     private VRSettings vrSettings;
 
     PKMediaSourceConfig(PKMediaConfig mediaConfig, PKMediaSource source, PlayerSettings playerSettings, VRSettings vrSettings) {
         this.mediaSource = source;
         this.mediaEntryType = (mediaConfig != null && mediaConfig.getMediaEntry() != null) ? mediaConfig.getMediaEntry().getMediaType() : PKMediaEntry.MediaEntryType.Unknown;
+        this.mediaEntryId = (mediaConfig != null && mediaConfig.getMediaEntry() != null) ? mediaConfig.getMediaEntry().getId() : null;
         this.playerSettings = playerSettings;
         this.vrSettings = vrSettings;
     }
@@ -28,6 +28,8 @@ import com.kaltura.playkit.PKMediaFormat;
 import com.kaltura.playkit.PKMediaSource;
 import com.kaltura.playkit.Player;
 import com.kaltura.playkit.PlayerEvent;
+import com.kaltura.playkit.QoeMetrics;
+import com.kaltura.playkit.StartupTrace;
 import com.kaltura.playkit.PlayerState;
 import com.kaltura.playkit.player.vr.VRPKMediaEntry;
 import com.kaltura.playkit.utils.Consts;
@@ -47,8 +49,15 @@ public class PlayerController implements Player {
     private Context context;
     private PKMediaConfig mediaConfig;
     private PKMediaSourceConfig sourceConfig;
+    private SourceSelector sourceSelector;
+    private int sourceSwitchCount;
+    private PKMediaConfig nextMediaConfig;
+    private PKMediaSourceConfig nextSourceConfig;
     private PlayerSettings playerSettings = new PlayerSettings();
     private final Runnable updateProgressAction = initProgressAction();
+    private volatile long playheadUpdateInterval = Consts.DEFAULT_PLAYHEAD_UPDATE_MILI;
+    private boolean isProgressActive;
+    private boolean isVideoSurfaceVisible = true;
 
     private PlayerEngine player;
     private PlayerEngineType currentPlayerType = PlayerEngineType.Unknown;
@@ -57,6 +66,7 @@ public class PlayerController implements Player {
     private PlayerView playerEngineView;
 
     private String sessionId;
+    private StartupTrace startupTrace = new StartupTrace();
     private UUID playerSessionId = UUID.randomUUID();
 
     private long targetSeekPosition;
@@ -107,6 +117,10 @@ public class PlayerController implements Player {
             visibilityFunction = "hideVideoSurface";
         }
 
+        isVideoSurfaceVisible = isVisible;
+        // No one can see the playhead while the surface is hidden - stop or resume the updates.
+        updateProgress();
+
         if (player == null) {
             log.w("Error in " + visibilityFunction + " player is null");
             return;
@@ -158,16 +172,94 @@ public class PlayerController implements Player {
             return;
         }
 
+        startupTrace.mark(StartupTrace.Phase.PREPARE);
         boolean is360Supported = mediaConfig.getMediaEntry() instanceof VRPKMediaEntry && playerSettings.isVRPlayerEnabled();
         PlayerEngineType incomingPlayerType = PlayerEngineFactory.selectPlayerType(sourceConfig.mediaSource.getMediaFormat(), is360Supported);
 
         switchPlayersIfRequired(incomingPlayerType);
+        startupTrace.mark(StartupTrace.Phase.ENGINE_READY);
 
         if (assertPlayerIsNotNull("prepare()")) {
             player.load(sourceConfig);
         }
     }
 
+    @Override
+    public void prepareNext(@NonNull PKMediaConfig mediaConfig) {
+        log.v("prepareNext");
+        nextMediaConfig = mediaConfig;
+        nextSourceConfig = null;
+
+        PKMediaSource source = SourceSelector.selectSource(mediaConfig.getMediaEntry(), playerSettings.getPreferredMediaFormat());
+        if (source == null || mediaConfig.getMediaEntry() instanceof VRPKMediaEntry || !(player instanceof ExoPlayerWrapper)) {
+            log.d("next media will be prepared when the current media ends");
+            return;
+        }
+
+        PKMediaSourceConfig sourceConfig = new PKMediaSourceConfig(mediaConfig, source, playerSettings);
+        if (((ExoPlayerWrapper) player).setNextMedia(sourceConfig)) {
+            nextSourceConfig = sourceConfig;
+        } else {
+            log.d("next media can't follow the current media seamlessly, it will be prepared when the current media ends");
+        }
+    }
+
+    @Override
+    public void prefetchManifest(@NonNull PKMediaEntry mediaEntry) {
+        PKMediaSource source = SourceSelector.selectSource(mediaEntry, playerSettings.getPreferredMediaFormat());
+        if (source == null || mediaEntry instanceof VRPKMediaEntry) {
+            return;
+        }
+        // Fetched with this player's request adapter, so the manifest URL is the same as on prepare().
+        ManifestCache.prefetch(context, new PKMediaSourceConfig(new PKMediaConfig().setMediaEntry(mediaEntry), source, playerSettings));
+    }
+
+    @Override
+    public void prefetchLicense(@NonNull PKMediaEntry mediaEntry) {
+        PKMediaSource source = SourceSelector.selectSource(mediaEntry, playerSettings.getPreferredMediaFormat());
+        if (source == null || !source.hasDrmParams() || mediaEntry instanceof VRPKMediaEntry) {
+            return;
+        }
+        if (!(player instanceof ExoPlayerWrapper)) {
+            log.d("prefetchLicense: no player engine to request the license with yet");
+            return;
+        }
+        ((ExoPlayerWrapper) player).prefetchLicense(new PKMediaSourceConfig(new PKMediaConfig().setMediaEntry(mediaEntry), source, playerSettings));
+    }
+
+    /**
+     * @return - the media passed to {@link #prepareNext(PKMediaConfig)}, if it could not be played seamlessly
+     * and should be prepared now that the current media ended. Otherwise null.
+     */
+    @Nullable
+    public PKMediaConfig takePendingNextMedia() {
+        if (nextMediaConfig == null || nextSourceConfig != null) {
+            return null;
+        }
+        PKMediaConfig pendingMediaConfig = nextMediaConfig;
+        nextMediaConfig = null;
+        return pendingMediaConfig;
+    }
+
+    private void onNextMediaStarted() {
+        mediaConfig = nextMediaConfig;
+        sourceConfig = nextSourceConfig;
+        sourceSelector = new SourceSelector(mediaConfig.getMediaEntry(), playerSettings.getPreferredMediaFormat());
+        sourceSwitchCount = 0;
+        nextMediaConfig = null;
+        nextSourceConfig = null;
+        // The media was prepared while the previous one played, so its startup begins when it starts.
+        startupTrace = new StartupTrace();
+        startupTrace.mark(StartupTrace.Phase.SET_MEDIA);
+        startupTrace.mark(StartupTrace.Phase.SOURCE_SELECTED);
+        sourceConfig.startupTrace = startupTrace;
+        sessionId = generateSessionId();
+        if (playerSettings.getContentRequestAdapter() != null) {
+            playerSettings.getContentRequestAdapter().updateParams(this);
+        }
+        isPlayerStopped = false;
+    }
+
     /**
      * Responsible for preparing source configurations before loading it to actual player.
      *
@@ -182,13 +274,19 @@ public class PlayerController implements Player {
             stop();
         }
 
+        startupTrace = new StartupTrace();
+        startupTrace.mark(StartupTrace.Phase.SET_MEDIA);
         sessionId = generateSessionId();
         if (playerSettings.getContentRequestAdapter() != null) {
             playerSettings.getContentRequestAdapter().updateParams(this);
         }
 
         this.mediaConfig = mediaConfig;
-        PKMediaSource source = SourceSelector.selectSource(mediaConfig.getMediaEntry(), playerSettings.getPreferredMediaFormat());
+        nextMediaConfig = null;
+        nextSourceConfig = null;
+        sourceSelector = new SourceSelector(mediaConfig.getMediaEntry(), playerSettings.getPreferredMediaFormat());
+        sourceSwitchCount = 0;
+        PKMediaSource source = sourceSelector.getPreferredSource();
 
         if (source == null) {
             sendErrorMessage(PKPlayerErrorType.SOURCE_SELECTION_FAILED, "No playable source found for entry", null);
@@ -196,10 +294,61 @@ public class PlayerController implements Player {
         }
 
         initSourceConfig(mediaConfig.getMediaEntry(), source);
+        startupTrace.mark(StartupTrace.Phase.SOURCE_SELECTED);
+        sourceConfig.startupTrace = startupTrace;
         eventTrigger.onEvent(PlayerEvent.Type.SOURCE_SELECTED);
         return true;
     }
 
+    /**
+     * On a source or DRM error, prepare the next ranked source of the media at the position of the failure,
+     * instead of failing the playback.
+     *
+     * @param error - the error of the current source.
+     * @return - false if the error should be sent: another error type, no retry left or no other playable source.
+     */
+    private boolean switchToNextSource(PKError error) {
+        boolean isSourceError = error.errorType == PKPlayerErrorType.SOURCE_ERROR;
+        boolean isDrmSessionError = player instanceof ExoPlayerWrapper && ((ExoPlayerWrapper) player).isDrmSessionError(error);
+        if (!isSourceError && !isDrmSessionError && !ExoPlayerWrapper.isDrmRendererError(error)) {
+            return false;
+        }
+        if (sourceConfig == null || sourceSelector == null || mediaConfig == null) {
+            return false;
+        }
+        PKMediaSource failedSource = sourceConfig.mediaSource;
+        if (isSourceError) {
+            // DRM errors come from the device or the license server, not from the CDN of the source.
+            SourceHostStats.recordFailure(failedSource.getUrl());
+        }
+        if (sourceSwitchCount >= playerSettings.getSourceFailoverRetries()) {
+            return false;
+        }
+        PKMediaSource nextSource = sourceSelector.getNextSource(failedSource);
+        if (nextSource == null) {
+            return false;
+        }
+        if (isDrmSessionError) {
+            // The DRM session manager reports a failed session before the renderers fail the player with it.
+            // Fail over on the renderer error, and drop this report instead of sending it before SOURCE_SWITCHED.
+            return true;
+        }
+
+        sourceSwitchCount++;
+        // Live media resumes at the live edge of the new source.
+        long resumePosition = sourceConfig.mediaEntryType == PKMediaEntry.MediaEntryType.Vod ? player.getCurrentPosition() : 0;
+        log.w("Source " + failedSource.getUrl() + " failed (" + error.errorType + "), switching to " + nextSource.getUrl() +
+                " at " + resumePosition + "ms, retry " + sourceSwitchCount + "/" + playerSettings.getSourceFailoverRetries());
+        initSourceConfig(mediaConfig.getMediaEntry(), nextSource);
+        sourceConfig.startupTrace = startupTrace;
+        prepare(mediaConfig);
+        if (resumePosition > 0 && assertPlayerIsNotNull("switchToNextSource()")) {
+            player.startFrom(resumePosition);
+        }
+        eventListener.onEvent(new PlayerEvent.SourceSwitched(nextSource, failedSource, error));
+        return true;
+    }
+
     private void initSourceConfig(PKMediaEntry mediaEntry, PKMediaSource source) {
         if (mediaEntry instanceof VRPKMediaEntry) {
             VRPKMediaEntry vrEntry = (VRPKMediaEntry) mediaEntry;
@@ -227,7 +376,7 @@ public class PlayerController implements Player {
         //Clear previous PlayerEngine.
         if (currentPlayerType != PlayerEngineType.Unknown) {
             removePlayerView();
-            player.destroy();
+            destroyPlayerEngine();
         }
 
         //Initialize new PlayerEngine.
@@ -268,8 +417,8 @@ public class PlayerController implements Player {
             if (playerEngineView != null) {
                 rootPlayerView.removeView(playerEngineView);
             }
-            player.destroy();
             togglePlayerListeners(false);
+            destroyPlayerEngine();
         }
         player = null;
         mediaConfig = null;
@@ -307,6 +456,12 @@ public class PlayerController implements Player {
         return rootPlayerView;
     }
 
+    @Override
+    @Nullable
+    public QoeMetrics getQoeMetrics() {
+        return player instanceof ExoPlayerWrapper ? ((ExoPlayerWrapper) player).getQoeMetrics() : null;
+    }
+
     @Override
     public <T extends PKController> T getController(Class<T> type) {
         log.v("getController");
@@ -408,6 +563,12 @@ public class PlayerController implements Player {
         return null;
     }
 
+    @Override
+    public PKEvent.Listener addEventListener(@NonNull PKEvent.Listener listener, long minIntervalMs, Enum... events) {
+        Assert.shouldNeverHappen();
+        return null;
+    }
+
     @Override
     public void removeEventListener(@NonNull PKEvent.Listener listener, Enum... events) {
         Assert.shouldNeverHappen();
@@ -452,7 +613,7 @@ public class PlayerController implements Player {
         log.v("onApplicationResumed");
         if (assertPlayerIsNotNull("onApplicationResumed()")) {
             player.restore();
-            updateProgress();
+            startUpdateProgress();
         }
         togglePlayerListeners(true);
         prepare(mediaConfig);
@@ -521,6 +682,15 @@ public class PlayerController implements Player {
             player.updateSubtitleStyle(subtitleStyleSettings);
         }
     }
+
+    @Override
+    public void updateAbrSettings(AbrSettings abrSettings) {
+        log.v("updateAbrSettings");
+        playerSettings.setAbrSettings(abrSettings);
+        if (player instanceof ExoPlayerWrapper) {
+            ((ExoPlayerWrapper) player).applyAbrSettings();
+        }
+    }
   
     private boolean assertPlayerIsNotNull(String methodName) {
         if (player != null) {
@@ -539,6 +709,14 @@ public class PlayerController implements Player {
 
     }
 
+    private void destroyPlayerEngine() {
+        cancelUpdateProgress();
+        // Hand the engine back to the pool if it is enabled.
+        if (!PlayerPool.recycle(player)) {
+            player.destroy();
+        }
+    }
+
     private void removePlayerView() {
         togglePlayerListeners(false);
         rootPlayerView.removeView(playerEngineView);
@@ -551,6 +729,27 @@ public class PlayerController implements Player {
         eventListener.onEvent(errorEvent);
     }
 
+    /**
+     * Set the interval of PLAYHEAD_UPDATED events.
+     *
+     * @param playheadUpdateInterval - interval in milliseconds, or a negative value if no one listens to the playhead.
+     */
+    public void setPlayheadUpdateInterval(long playheadUpdateInterval) {
+        if (this.playheadUpdateInterval == playheadUpdateInterval) {
+            return;
+        }
+        this.playheadUpdateInterval = playheadUpdateInterval;
+        // Listeners may be added from any thread, reschedule on the main thread.
+        if (player != null && player.getView() != null) {
+            player.getView().post(updateProgressAction);
+        }
+    }
+
+    private void startUpdateProgress() {
+        isProgressActive = true;
+        updateProgress();
+    }
+
     private void updateProgress() {
 
         long position;
@@ -560,16 +759,22 @@ public class PlayerController implements Player {
             return;
         }
 
+        // Cancel any pending updates and schedule a new one if necessary.
+        player.getView().removeCallbacks(updateProgressAction);
+
+        long interval = playheadUpdateInterval;
+        if (!isProgressActive || !isVideoSurfaceVisible || interval < 0 || eventListener == null) {
+            return;
+        }
+
         position = player.getCurrentPosition();
         duration = player.getDuration();
         if (position > 0 && duration > 0) {
+            // A new instance per update: listeners on other executors read it after the next update was sampled.
             eventListener.onEvent(new PlayerEvent.PlayheadUpdated(position, duration));
         }
 
-        // Cancel any pending updates and schedule a new one if necessary.
-        player.getView().removeCallbacks(updateProgressAction);
-        player.getView().postDelayed(updateProgressAction, Consts.DEFAULT_PLAYHEAD_UPDATE_MILI);
-
+        player.getView().postDelayed(updateProgressAction, interval);
     }
 
     private Runnable initProgressAction() {
@@ -582,6 +787,7 @@ public class PlayerController implements Player {
     }
 
     private void cancelUpdateProgress() {
+        isProgressActive = false;
         if (player != null && player.getView() != null) {
             player.getView().removeCallbacks(updateProgressAction);
         }
@@ -601,7 +807,7 @@ public class PlayerController implements Player {
                     PKEvent event;
                     switch (eventType) {
                         case PLAYING:
-                            updateProgress();
+                            startUpdateProgress();
                             event = new PlayerEvent.Generic(eventType);
                             break;
                         case PAUSE:
@@ -635,6 +841,9 @@ public class PlayerController implements Player {
                                 log.e("can not send error event");
                                 return;
                             }
+                            if (switchToNextSource(player.getCurrentError())) {
+                                return;
+                            }
                             event = new PlayerEvent.Error(player.getCurrentError());
                             cancelUpdateProgress();
                             break;
@@ -648,6 +857,28 @@ public class PlayerController implements Player {
                         case SOURCE_SELECTED:
                             event = new PlayerEvent.SourceSelected(sourceConfig.mediaSource);
                             break;
+                        case MEDIA_ENTRY_CHANGED:
+                            onNextMediaStarted();
+                            event = new PlayerEvent.MediaEntryChanged(mediaConfig);
+                            break;
+                        case QUALITY_GOVERNOR_CHANGED:
+                            event = new PlayerEvent.QualityGovernorChanged(player instanceof ExoPlayerWrapper ?
+                                    ((ExoPlayerWrapper) player).getQualityGovernorStatus() : null);
+                            break;
+                        case QOE_UPDATED:
+                            event = new PlayerEvent.QoeUpdated(getQoeMetrics());
+                            break;
+                        case STARTUP_METRICS:
+                            log.d("Startup: " + startupTrace);
+                            // Only the time from prepare() counts against the host: app and ad time before it aren't its doing.
+                            // A media that followed the previous one seamlessly has no prepare phase, it started from its buffer.
+                            // After a source switch, the time includes the failed source.
+                            if (sourceConfig != null && sourceSwitchCount == 0) {
+                                SourceHostStats.recordStartup(sourceConfig.mediaSource.getUrl(),
+                                        startupTrace.getDuration(StartupTrace.Phase.PREPARE, StartupTrace.Phase.FIRST_FRAME));
+                            }
+                            event = new PlayerEvent.StartupMetrics(startupTrace);
+                            break;
                         case SEEKING:
                             event = new PlayerEvent.Seeking(targetSeekPosition);
                             break;
@@ -50,7 +50,8 @@ class PlayerEngineFactory {
                 return vrPlayerFactory.newInstance(context, exoWrapper);
 
             default:
-                return new ExoPlayerWrapper(context, playerSettings);
+                ExoPlayerWrapper pooledEngine = PlayerPool.acquire(context, playerSettings);
+                return pooledEngine != null ? pooledEngine : new ExoPlayerWrapper(context, playerSettings);
         }
     }
 
@@ -0,0 +1,269 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2017 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import com.google.android.exoplayer2.mediacodec.MediaCodecUtil;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.kaltura.playkit.PKLog;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Pool of ready-made Exoplayer engines. Engines are created while the main thread is idle, handed out
+ * on prepare() of a new player and returned on destroy(), so a player in a feed does not pay for creating
+ * the renderers, track selector and load control on its way to the first frame.
+ * Pooled engines are created with the application context, so the pool never holds an Activity.
+ * Players created off the main thread don't use the pool.
+ *
+ * @hide
+ */
+public class PlayerPool {
+
+    private static final PKLog log = PKLog.get("PlayerPool");
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Deque<ExoPlayerWrapper> idleEngines = new ArrayDeque<>();
+    private static final MessageQueue.IdleHandler warmUpHandler = initWarmUpHandler();
+
+    private static Context poolContext;
+    private static int poolSize;
+    private static boolean warmUpScheduled;
+    private static boolean memoryCallbacksRegistered;
+    private static boolean decodersWarmedUp;
+
+    private static int hits;
+    private static int misses;
+    private static int recycled;
+
+    public static class Stats {
+
+        /**
+         * Number of players that got a pooled engine.
+         */
+        public final int hits;
+
+        /**
+         * Number of players that had to create a new engine while the pool was enabled.
+         */
+        public final int misses;
+
+        /**
+         * Number of engines returned to the pool by destroyed players.
+         */
+        public final int recycled;
+
+        /**
+         * Number of engines currently waiting in the pool.
+         */
+        public final int idle;
+
+        Stats(int hits, int misses, int recycled, int idle) {
+            this.hits = hits;
+            this.misses = misses;
+            this.recycled = recycled;
+            this.idle = idle;
+        }
+
+        @Override
+        public String toString() {
+            return "PlayerPool.Stats{hits=" + hits + ", misses=" + misses + ", recycled=" + recycled + ", idle=" + idle + "}";
+        }
+    }
+
+    /**
+     * Keep up to poolSize engines ready for the players of the app. Can be called from any thread.
+     *
+     * @param context  - any context of the app, only its application context is kept.
+     * @param poolSize - number of engines to keep, 0 to disable the pool.
+     */
+    public static void warmUp(final Context context, final int poolSize) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    warmUp(context, poolSize);
+                }
+            });
+            return;
+        }
+
+        Context applicationContext = context.getApplicationContext();
+        if (poolContext != applicationContext) {
+            releaseIdleEngines();
+        }
+        poolContext = applicationContext;
+        PlayerPool.poolSize = Math.max(poolSize, 0);
+        while (idleEngines.size() > PlayerPool.poolSize) {
+            idleEngines.removeLast().destroy();
+        }
+        if (PlayerPool.poolSize == 0) {
+            poolContext = null;
+            return;
+        }
+
+        registerMemoryCallbacks(context);
+        warmUpDecoders();
+        scheduleWarmUp();
+    }
+
+    /**
+     * Destroy the pooled engines and disable the pool. Must be called on the main thread.
+     */
+    public static void clear() {
+        releaseIdleEngines();
+        poolSize = 0;
+        poolContext = null;
+    }
+
+    public static Stats getStats() {
+        return new Stats(hits, misses, recycled, idleEngines.size());
+    }
+
+    static ExoPlayerWrapper acquire(Context context, PlayerSettings playerSettings) {
+        if (poolSize == 0 || !isMainThread("acquire")) {
+            return null;
+        }
+
+        Context applicationContext = context.getApplicationContext();
+        for (Iterator<ExoPlayerWrapper> iterator = idleEngines.iterator(); iterator.hasNext(); ) {
+            ExoPlayerWrapper engine = iterator.next();
+            if (engine.isReusableWith(applicationContext, playerSettings)) {
+                iterator.remove();
+                engine.setPlayerSettings(playerSettings);
+                hits++;
+                scheduleWarmUp();
+                return engine;
+            }
+        }
+
+        misses++;
+        log.d("No pooled engine matches the player, creating a new one. " + getStats());
+        scheduleWarmUp();
+        return null;
+    }
+
+    /**
+     * @return - true if the engine was taken by the pool, false if it should be destroyed by the caller.
+     */
+    static boolean recycle(PlayerEngine engine) {
+        if (poolSize == 0 || idleEngines.size() >= poolSize || engine == null || engine.getClass() != ExoPlayerWrapper.class ||
+                !isMainThread("recycle")) {
+            return false;
+        }
+
+        // Engines created on a pool miss hold the context of their player, e.g. an Activity, and are not kept.
+        ExoPlayerWrapper exoPlayerWrapper = (ExoPlayerWrapper) engine;
+        if (exoPlayerWrapper.getContext() != poolContext || !exoPlayerWrapper.recycle()) {
+            return false;
+        }
+
+        idleEngines.addFirst(exoPlayerWrapper);
+        recycled++;
+        return true;
+    }
+
+    private static void scheduleWarmUp() {
+        if (warmUpScheduled || idleEngines.size() >= poolSize) {
+            return;
+        }
+        warmUpScheduled = true;
+        // Only called on the main thread, so this is the queue of the main looper.
+        Looper.myQueue().addIdleHandler(warmUpHandler);
+    }
+
+    private static boolean isMainThread(String method) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            log.w(method + "() called off the main thread, not using the pool");
+            return false;
+        }
+        return true;
+    }
+
+    private static MessageQueue.IdleHandler initWarmUpHandler() {
+        return new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                // Create a single engine per idle pass, to keep each pass short.
+                if (poolContext != null && idleEngines.size() < poolSize) {
+                    ExoPlayerWrapper engine = new ExoPlayerWrapper(poolContext, new PlayerSettings());
+                    engine.warmUp();
+                    idleEngines.addLast(engine);
+                }
+                warmUpScheduled = poolContext != null && idleEngines.size() < poolSize;
+                return warmUpScheduled;
+            }
+        };
+    }
+
+    private static void warmUpDecoders() {
+        if (decodersWarmedUp) {
+            return;
+        }
+        decodersWarmedUp = true;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Fills the decoder cache of MediaCodecUtil, so the first renderer doesn't query the codec list.
+                try {
+                    MediaCodecUtil.getDecoderInfo(MimeTypes.VIDEO_H264, false);
+                    MediaCodecUtil.getDecoderInfo(MimeTypes.VIDEO_H265, false);
+                    MediaCodecUtil.getDecoderInfo(MimeTypes.AUDIO_AAC, false);
+                } catch (MediaCodecUtil.DecoderQueryException e) {
+                    log.w("Failed to warm up decoders: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static void releaseIdleEngines() {
+        while (!idleEngines.isEmpty()) {
+            idleEngines.removeFirst().destroy();
+        }
+    }
+
+    private static void registerMemoryCallbacks(Context context) {
+        if (memoryCallbacksRegistered) {
+            return;
+        }
+        memoryCallbacksRegistered = true;
+        context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_BACKGROUND) {
+                    // Keep the pool enabled, it is refilled on the next player.
+                    log.d("onTrimMemory " + level + ", releasing pooled engines");
+                    releaseIdleEngines();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                releaseIdleEngines();
+            }
+        });
+    }
+}
@@ -16,6 +16,8 @@ import com.kaltura.playkit.PKMediaFormat;
 import com.kaltura.playkit.PKRequestParams;
 import com.kaltura.playkit.PKTrackConfig;
 import com.kaltura.playkit.Player;
+import com.kaltura.playkit.player.abr.AbrStrategy;
+import com.kaltura.playkit.utils.Consts;
 
 public class PlayerSettings implements Player.Settings {
 
@@ -26,7 +28,15 @@ public class PlayerSettings implements Player.Settings {
     private boolean crossProtocolRedirectEnabled;
     private boolean adAutoPlayOnResume = true;
     private boolean vrPlayerEnabled = true;
+    private boolean eventBatchingEnabled;
     private LoadControlBuffers loadControlBuffers = new LoadControlBuffers();
+    private AbrSettings abrSettings = new AbrSettings();
+    private LoadErrorPolicy loadErrorPolicy = new LoadErrorPolicy();
+    private AbrStrategy abrStrategy;
+    private QualityGovernorPolicy qualityGovernorPolicy;
+    private MediaCacheSettings mediaCacheSettings;
+    private long qoeUpdateIntervalMs = Consts.DEFAULT_QOE_UPDATE_INTERVAL_MS;
+    private int sourceFailoverRetries = Consts.DEFAULT_SOURCE_FAILOVER_RETRIES;
     private SubtitleStyleSettings subtitleStyleSettings;
 
 
@@ -88,14 +98,46 @@ public class PlayerSettings implements Player.Settings {
         return preferredMediaFormat;
     }
 
+    public AbrSettings getAbrSettings() {
+        return abrSettings;
+    }
+
+    public LoadErrorPolicy getLoadErrorPolicy() {
+        return loadErrorPolicy;
+    }
+
+    public AbrStrategy getAbrStrategy() {
+        return abrStrategy;
+    }
+
+    public QualityGovernorPolicy getQualityGovernorPolicy() {
+        return qualityGovernorPolicy;
+    }
+
     public LoadControlBuffers getLoadControlBuffers() {
         return loadControlBuffers;
     }
 
+    public MediaCacheSettings getMediaCacheSettings() {
+        return mediaCacheSettings;
+    }
+
+    public long getQoeUpdateIntervalMs() {
+        return qoeUpdateIntervalMs;
+    }
+
+    public int getSourceFailoverRetries() {
+        return sourceFailoverRetries;
+    }
+
     public SubtitleStyleSettings getSubtitleStyleSettings() {
         return subtitleStyleSettings;
     }
 
+    public boolean isEventBatchingEnabled() {
+        return eventBatchingEnabled;
+    }
+
     @Override
     public Player.Settings setVRPlayerEnabled(boolean vrPlayerEnabled) {
         this.vrPlayerEnabled = vrPlayerEnabled;
@@ -175,9 +217,57 @@ public class PlayerSettings implements Player.Settings {
         return this;
     }
 
+    @Override
+    public Player.Settings setQualityGovernor(QualityGovernorPolicy qualityGovernorPolicy) {
+        this.qualityGovernorPolicy = qualityGovernorPolicy;
+        return this;
+    }
+
+    @Override
+    public Player.Settings setAbrStrategy(AbrStrategy abrStrategy) {
+        this.abrStrategy = abrStrategy;
+        return this;
+    }
+
+    @Override
+    public Player.Settings setLoadErrorPolicy(LoadErrorPolicy loadErrorPolicy) {
+        this.loadErrorPolicy = loadErrorPolicy != null ? loadErrorPolicy : new LoadErrorPolicy();
+        return this;
+    }
+
+    @Override
+    public Player.Settings setAbrSettings(AbrSettings abrSettings) {
+        this.abrSettings = abrSettings != null ? abrSettings : new AbrSettings();
+        return this;
+    }
+
+    @Override
+    public Player.Settings setMediaCache(MediaCacheSettings mediaCacheSettings) {
+        this.mediaCacheSettings = mediaCacheSettings;
+        return this;
+    }
+
+    @Override
+    public Player.Settings setSourceFailoverRetries(int retries) {
+        this.sourceFailoverRetries = retries;
+        return this;
+    }
+
+    @Override
+    public Player.Settings setQoeUpdateInterval(long intervalMs) {
+        this.qoeUpdateIntervalMs = intervalMs;
+        return this;
+    }
+
     @Override
     public Player.Settings setSubtitleStyle(SubtitleStyleSettings subtitleStyleSettings) {
         this.subtitleStyleSettings = subtitleStyleSettings;
         return this;
     }
-}
\ No newline at end of file
+
+    @Override
+    public Player.Settings setEventBatchingEnabled(boolean eventBatchingEnabled) {
+        this.eventBatchingEnabled = eventBatchingEnabled;
+        return this;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.os.SystemClock;
+
+import com.google.android.exoplayer2.Format;
+import com.kaltura.playkit.QoeMetrics;
+
+/**
+ * Accumulates the quality of experience counters of a media as the player reports them. Only primitive
+ * fields are updated on each report; objects are created only for snapshots. Main thread only.
+ */
+class QoeAggregator {
+
+    private static final int MODE_IDLE = 0;
+    private static final int MODE_PLAYING = 1;
+    private static final int MODE_STALLED = 2;
+
+    private int mode;
+    private long modeStartTimeMs;
+
+    private long playingTimeMs;
+    private int stallCount;
+    private long stallDurationMs;
+    private long droppedFrames;
+    private int bitrateSwitchCount;
+    private int videoBitrate;
+    private long videoBitrateTimeProduct;
+    private long videoBitrateTimeMs;
+
+    QoeAggregator() {
+        reset();
+    }
+
+    void reset() {
+        mode = MODE_IDLE;
+        modeStartTimeMs = SystemClock.elapsedRealtime();
+        playingTimeMs = 0;
+        stallCount = 0;
+        stallDurationMs = 0;
+        droppedFrames = 0;
+        bitrateSwitchCount = 0;
+        videoBitrate = Format.NO_VALUE;
+        videoBitrateTimeProduct = 0;
+        videoBitrateTimeMs = 0;
+    }
+
+    /**
+     * @param playing   - true if the player is playing.
+     * @param buffering - true if the player buffers while it should play, not because of a seek.
+     */
+    void onPlaybackStateChanged(boolean playing, boolean buffering) {
+        long now = SystemClock.elapsedRealtime();
+        accumulate(now);
+        int newMode = MODE_IDLE;
+        if (playing) {
+            newMode = MODE_PLAYING;
+        } else if (buffering && (mode == MODE_PLAYING || mode == MODE_STALLED)) {
+            // Buffering before the first play is startup, not a stall.
+            newMode = MODE_STALLED;
+        }
+        if (newMode == MODE_STALLED && mode != MODE_STALLED) {
+            stallCount++;
+        }
+        mode = newMode;
+    }
+
+    void onVideoBitrateChanged(int bitrate) {
+        if (bitrate == videoBitrate) {
+            return;
+        }
+        accumulate(SystemClock.elapsedRealtime());
+        if (videoBitrate != Format.NO_VALUE && bitrate != Format.NO_VALUE) {
+            bitrateSwitchCount++;
+        }
+        videoBitrate = bitrate;
+    }
+
+    void onDroppedFrames(int count) {
+        droppedFrames += count;
+    }
+
+    boolean isActive() {
+        return mode != MODE_IDLE;
+    }
+
+    int getStallCount() {
+        return stallCount;
+    }
+
+    QoeMetrics getSnapshot(long timeToFirstFrameMs, int manifestRetryCount, int segmentRetryCount) {
+        accumulate(SystemClock.elapsedRealtime());
+        long averageVideoBitrate = videoBitrateTimeMs > 0 ? videoBitrateTimeProduct / videoBitrateTimeMs : -1;
+        return new QoeMetrics(playingTimeMs, stallCount, stallDurationMs, droppedFrames, bitrateSwitchCount,
+                averageVideoBitrate, timeToFirstFrameMs, manifestRetryCount, segmentRetryCount);
+    }
+
+    private void accumulate(long now) {
+        long elapsedMs = now - modeStartTimeMs;
+        modeStartTimeMs = now;
+        if (mode == MODE_PLAYING) {
+            playingTimeMs += elapsedMs;
+            if (videoBitrate != Format.NO_VALUE) {
+                videoBitrateTimeProduct += videoBitrate * elapsedMs;
+                videoBitrateTimeMs += elapsedMs;
+            }
+        } else if (mode == MODE_STALLED) {
+            stallDurationMs += elapsedMs;
+        }
+    }
+}
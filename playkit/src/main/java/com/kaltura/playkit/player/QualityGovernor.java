@@ -0,0 +1,160 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+
+import com.kaltura.playkit.PKLog;
+
+/**
+ * Lowers the allowed video quality while the device is hot, in power save mode or low on battery, and restores it
+ * when the conditions recover. The battery temperature stands for the device temperature, it is available on all
+ * API levels and follows the heat of long decoding sessions.
+ * Runs on the main thread.
+ */
+class QualityGovernor {
+
+    private static final PKLog log = PKLog.get("QualityGovernor");
+
+    interface Listener {
+        void onStatusChanged(QualityGovernorStatus status);
+    }
+
+    private final Context context;
+    private final QualityGovernorPolicy policy;
+    private final Listener listener;
+
+    private QualityGovernorPolicy.Level temperatureLevel = QualityGovernorPolicy.Level.NONE;
+    private QualityGovernorStatus status;
+    private Intent batteryStatus;
+    private boolean started;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                batteryStatus = intent;
+            }
+            evaluate();
+        }
+    };
+
+    QualityGovernor(Context context, QualityGovernorPolicy policy, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.policy = policy;
+        this.listener = listener;
+    }
+
+    void start() {
+        if (started) {
+            return;
+        }
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        }
+        // The battery status is sticky, so it's delivered right away.
+        context.registerReceiver(receiver, filter);
+        started = true;
+    }
+
+    void stop() {
+        if (started) {
+            context.unregisterReceiver(receiver);
+            started = false;
+        }
+    }
+
+    /**
+     * @return - the last decision, or null if the governor didn't constrain the quality yet.
+     */
+    QualityGovernorStatus getStatus() {
+        return status;
+    }
+
+    private void evaluate() {
+        float batteryTemperatureC = Float.NaN;
+        int batteryLevelPercent = -1;
+        boolean charging = false;
+        if (batteryStatus != null) {
+            int temperature = batteryStatus.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, Integer.MIN_VALUE);
+            if (temperature != Integer.MIN_VALUE) {
+                batteryTemperatureC = temperature / 10f; // Tenths of a degree
+            }
+            int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level >= 0 && scale > 0) {
+                batteryLevelPercent = level * 100 / scale;
+            }
+            charging = batteryStatus.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        }
+        boolean powerSaveMode = isPowerSaveMode();
+
+        temperatureLevel = getTemperatureLevel(batteryTemperatureC);
+        QualityGovernorPolicy.Level level = temperatureLevel;
+        QualityGovernorStatus.Reason reason = QualityGovernorStatus.Reason.BATTERY_TEMPERATURE;
+        if (level == QualityGovernorPolicy.Level.NONE) {
+            if (powerSaveMode && policy.getReduceOnPowerSaveMode()) {
+                level = QualityGovernorPolicy.Level.REDUCED;
+                reason = QualityGovernorStatus.Reason.POWER_SAVE_MODE;
+            } else if (!charging && batteryLevelPercent != -1 && batteryLevelPercent <= policy.getLowBatteryLevelPercent()) {
+                level = QualityGovernorPolicy.Level.REDUCED;
+                reason = QualityGovernorStatus.Reason.LOW_BATTERY;
+            } else {
+                reason = QualityGovernorStatus.Reason.RECOVERED;
+            }
+        }
+
+        QualityGovernorPolicy.Level previousLevel = status != null ? status.getLevel() : QualityGovernorPolicy.Level.NONE;
+        if (level == previousLevel) {
+            return;
+        }
+        status = new QualityGovernorStatus(level, reason, policy.getMaxVideoHeight(level), policy.getMaxVideoFrameRate(level),
+                batteryTemperatureC, batteryLevelPercent, charging, powerSaveMode);
+        log.d("Quality governor decision: " + status);
+        listener.onStatusChanged(status);
+    }
+
+    private QualityGovernorPolicy.Level getTemperatureLevel(float batteryTemperatureC) {
+        if (Float.isNaN(batteryTemperatureC)) {
+            return QualityGovernorPolicy.Level.NONE;
+        }
+        // Leaving a level needs the temperature to drop below its threshold by the hysteresis, so the quality doesn't flap.
+        float hysteresis = policy.getTemperatureHysteresisC();
+        float hotThreshold = temperatureLevel == QualityGovernorPolicy.Level.MINIMAL ?
+                policy.getHotBatteryTemperatureC() - hysteresis : policy.getHotBatteryTemperatureC();
+        if (batteryTemperatureC >= hotThreshold) {
+            return QualityGovernorPolicy.Level.MINIMAL;
+        }
+        float warmThreshold = temperatureLevel != QualityGovernorPolicy.Level.NONE ?
+                policy.getWarmBatteryTemperatureC() - hysteresis : policy.getWarmBatteryTemperatureC();
+        if (batteryTemperatureC >= warmThreshold) {
+            return QualityGovernorPolicy.Level.REDUCED;
+        }
+        return QualityGovernorPolicy.Level.NONE;
+    }
+
+    private boolean isPowerSaveMode() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return false;
+        }
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+}
@@ -0,0 +1,132 @@
+package com.kaltura.playkit.player;
+
+public class QualityGovernorPolicy {
+
+    public enum Level {
+        NONE, // No constraint
+        REDUCED, // The reduced max height and frame rate apply
+        MINIMAL // The minimal max height and frame rate apply
+    }
+
+    public static final float DEFAULT_WARM_BATTERY_TEMPERATURE_C = 40;
+    public static final float DEFAULT_HOT_BATTERY_TEMPERATURE_C = 45;
+    public static final float DEFAULT_TEMPERATURE_HYSTERESIS_C = 2;
+    public static final int DEFAULT_LOW_BATTERY_LEVEL_PERCENT = 15;
+    public static final int DEFAULT_REDUCED_MAX_VIDEO_HEIGHT = 720;
+    public static final float DEFAULT_REDUCED_MAX_VIDEO_FRAME_RATE = 30;
+    public static final int DEFAULT_MINIMAL_MAX_VIDEO_HEIGHT = 480;
+    public static final float DEFAULT_MINIMAL_MAX_VIDEO_FRAME_RATE = 30;
+
+    private float warmBatteryTemperatureC = DEFAULT_WARM_BATTERY_TEMPERATURE_C; // From this battery temperature the quality is reduced
+    private float hotBatteryTemperatureC = DEFAULT_HOT_BATTERY_TEMPERATURE_C; // From this battery temperature the quality is minimal
+    private float temperatureHysteresisC = DEFAULT_TEMPERATURE_HYSTERESIS_C; // How much the temperature must drop below a threshold to recover
+    private int lowBatteryLevelPercent = DEFAULT_LOW_BATTERY_LEVEL_PERCENT; // At this battery level or lower, when not charging, the quality is reduced
+    private boolean reduceOnPowerSaveMode = true; // The quality is reduced while the device is in power save mode
+    private int reducedMaxVideoHeight = DEFAULT_REDUCED_MAX_VIDEO_HEIGHT;
+    private float reducedMaxVideoFrameRate = DEFAULT_REDUCED_MAX_VIDEO_FRAME_RATE;
+    private int minimalMaxVideoHeight = DEFAULT_MINIMAL_MAX_VIDEO_HEIGHT;
+    private float minimalMaxVideoFrameRate = DEFAULT_MINIMAL_MAX_VIDEO_FRAME_RATE;
+
+    public float getWarmBatteryTemperatureC() {
+        return warmBatteryTemperatureC;
+    }
+
+    public QualityGovernorPolicy setWarmBatteryTemperatureC(float warmBatteryTemperatureC) {
+        this.warmBatteryTemperatureC = warmBatteryTemperatureC;
+        return this;
+    }
+
+    public float getHotBatteryTemperatureC() {
+        return hotBatteryTemperatureC;
+    }
+
+    public QualityGovernorPolicy setHotBatteryTemperatureC(float hotBatteryTemperatureC) {
+        this.hotBatteryTemperatureC = hotBatteryTemperatureC;
+        return this;
+    }
+
+    public float getTemperatureHysteresisC() {
+        return temperatureHysteresisC;
+    }
+
+    public QualityGovernorPolicy setTemperatureHysteresisC(float temperatureHysteresisC) {
+        this.temperatureHysteresisC = temperatureHysteresisC;
+        return this;
+    }
+
+    public int getLowBatteryLevelPercent() {
+        return lowBatteryLevelPercent;
+    }
+
+    public QualityGovernorPolicy setLowBatteryLevelPercent(int lowBatteryLevelPercent) {
+        this.lowBatteryLevelPercent = lowBatteryLevelPercent;
+        return this;
+    }
+
+    public boolean getReduceOnPowerSaveMode() {
+        return reduceOnPowerSaveMode;
+    }
+
+    public QualityGovernorPolicy setReduceOnPowerSaveMode(boolean reduceOnPowerSaveMode) {
+        this.reduceOnPowerSaveMode = reduceOnPowerSaveMode;
+        return this;
+    }
+
+    public int getReducedMaxVideoHeight() {
+        return reducedMaxVideoHeight;
+    }
+
+    public QualityGovernorPolicy setReducedMaxVideoHeight(int reducedMaxVideoHeight) {
+        this.reducedMaxVideoHeight = reducedMaxVideoHeight;
+        return this;
+    }
+
+    public float getReducedMaxVideoFrameRate() {
+        return reducedMaxVideoFrameRate;
+    }
+
+    public QualityGovernorPolicy setReducedMaxVideoFrameRate(float reducedMaxVideoFrameRate) {
+        this.reducedMaxVideoFrameRate = reducedMaxVideoFrameRate;
+        return this;
+    }
+
+    public int getMinimalMaxVideoHeight() {
+        return minimalMaxVideoHeight;
+    }
+
+    public QualityGovernorPolicy setMinimalMaxVideoHeight(int minimalMaxVideoHeight) {
+        this.minimalMaxVideoHeight = minimalMaxVideoHeight;
+        return this;
+    }
+
+    public float getMinimalMaxVideoFrameRate() {
+        return minimalMaxVideoFrameRate;
+    }
+
+    public QualityGovernorPolicy setMinimalMaxVideoFrameRate(float minimalMaxVideoFrameRate) {
+        this.minimalMaxVideoFrameRate = minimalMaxVideoFrameRate;
+        return this;
+    }
+
+    int getMaxVideoHeight(Level level) {
+        switch (level) {
+            case REDUCED:
+                return reducedMaxVideoHeight;
+            case MINIMAL:
+                return minimalMaxVideoHeight;
+            default:
+                return Integer.MAX_VALUE;
+        }
+    }
+
+    float getMaxVideoFrameRate(Level level) {
+        switch (level) {
+            case REDUCED:
+                return reducedMaxVideoFrameRate;
+            case MINIMAL:
+                return minimalMaxVideoFrameRate;
+            default:
+                return Float.MAX_VALUE;
+        }
+    }
+}
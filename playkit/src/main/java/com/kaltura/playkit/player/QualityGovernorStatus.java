@@ -0,0 +1,98 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+/**
+ * A decision of the quality governor, and the device conditions it was based on.
+ */
+public class QualityGovernorStatus {
+
+    public enum Reason {
+        RECOVERED, // The conditions are back to normal, the constraints are removed
+        BATTERY_TEMPERATURE, // The battery temperature is above a threshold of the policy
+        POWER_SAVE_MODE, // The device is in power save mode
+        LOW_BATTERY // The battery level is low and the device is not charging
+    }
+
+    private final QualityGovernorPolicy.Level level;
+    private final Reason reason;
+    private final int maxVideoHeight;
+    private final float maxVideoFrameRate;
+    private final float batteryTemperatureC;
+    private final int batteryLevelPercent;
+    private final boolean charging;
+    private final boolean powerSaveMode;
+
+    QualityGovernorStatus(QualityGovernorPolicy.Level level, Reason reason, int maxVideoHeight, float maxVideoFrameRate,
+                          float batteryTemperatureC, int batteryLevelPercent, boolean charging, boolean powerSaveMode) {
+        this.level = level;
+        this.reason = reason;
+        this.maxVideoHeight = maxVideoHeight;
+        this.maxVideoFrameRate = maxVideoFrameRate;
+        this.batteryTemperatureC = batteryTemperatureC;
+        this.batteryLevelPercent = batteryLevelPercent;
+        this.charging = charging;
+        this.powerSaveMode = powerSaveMode;
+    }
+
+    public QualityGovernorPolicy.Level getLevel() {
+        return level;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return - the max video height allowed by the governor, Integer.MAX_VALUE if not constrained.
+     */
+    public int getMaxVideoHeight() {
+        return maxVideoHeight;
+    }
+
+    /**
+     * @return - the max video frame rate allowed by the governor, Float.MAX_VALUE if not constrained.
+     */
+    public float getMaxVideoFrameRate() {
+        return maxVideoFrameRate;
+    }
+
+    /**
+     * @return - the battery temperature in Celsius, NaN if unknown.
+     */
+    public float getBatteryTemperatureC() {
+        return batteryTemperatureC;
+    }
+
+    /**
+     * @return - the battery level, -1 if unknown.
+     */
+    public int getBatteryLevelPercent() {
+        return batteryLevelPercent;
+    }
+
+    public boolean isCharging() {
+        return charging;
+    }
+
+    public boolean isPowerSaveMode() {
+        return powerSaveMode;
+    }
+
+    @Override
+    public String toString() {
+        return "QualityGovernorStatus{level=" + level + ", reason=" + reason + ", maxVideoHeight=" + maxVideoHeight +
+                ", maxVideoFrameRate=" + maxVideoFrameRate + ", batteryTemperatureC=" + batteryTemperatureC +
+                ", batteryLevelPercent=" + batteryLevelPercent + ", charging=" + charging + ", powerSaveMode=" + powerSaveMode + "}";
+    }
+}
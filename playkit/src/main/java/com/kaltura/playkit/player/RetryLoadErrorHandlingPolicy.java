@@ -0,0 +1,92 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ParserException;
+import com.google.android.exoplayer2.upstream.DefaultLoadErrorHandlingPolicy;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retries the failed manifest and segment loads of DASH, HLS and progressive sources as set by the
+ * {@link LoadErrorPolicy}: exponential backoff with jitter, no retry on 4xx responses.
+ * Blacklisting of renditions that respond with 404/410 is left to ExoPlayer's default policy.
+ * The methods are called on the loading threads; the retry counters are read on the main thread.
+ */
+class RetryLoadErrorHandlingPolicy implements LoadErrorHandlingPolicy {
+
+    private final LoadErrorPolicy policy;
+    private final LoadErrorHandlingPolicy defaultPolicy = new DefaultLoadErrorHandlingPolicy();
+    private final Random random = new Random();
+    private final AtomicInteger manifestRetryCount = new AtomicInteger();
+    private final AtomicInteger segmentRetryCount = new AtomicInteger();
+
+    RetryLoadErrorHandlingPolicy(LoadErrorPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public long getBlacklistDurationMsFor(int dataType, long loadDurationMs, IOException exception, int errorCount) {
+        return defaultPolicy.getBlacklistDurationMsFor(dataType, loadDurationMs, exception, errorCount);
+    }
+
+    @Override
+    public long getRetryDelayMsFor(int dataType, long loadDurationMs, IOException exception, int errorCount) {
+        if (exception instanceof ParserException || errorCount > getMinimumLoadableRetryCount(dataType)) {
+            return C.TIME_UNSET;
+        }
+        if (policy.getFailFastOnClientErrors() && exception instanceof HttpDataSource.InvalidResponseCodeException) {
+            int responseCode = ((HttpDataSource.InvalidResponseCodeException) exception).responseCode;
+            if (responseCode >= 400 && responseCode < 500) {
+                return C.TIME_UNSET;
+            }
+        }
+
+        if (dataType == C.DATA_TYPE_MANIFEST) {
+            manifestRetryCount.incrementAndGet();
+        } else {
+            segmentRetryCount.incrementAndGet();
+        }
+        return getRetryDelayMs(errorCount);
+    }
+
+    @Override
+    public int getMinimumLoadableRetryCount(int dataType) {
+        return dataType == C.DATA_TYPE_MANIFEST ? policy.getManifestRetryCount() : policy.getSegmentRetryCount();
+    }
+
+    long getRetryDelayMs(int errorCount) {
+        long delayMs = policy.getInitialRetryDelayMs() << Math.min(errorCount - 1, 20);
+        delayMs = Math.min(delayMs, policy.getMaxRetryDelayMs());
+        float jitter = policy.getRetryDelayJitter() * (2 * random.nextFloat() - 1);
+        return Math.max(0, (long) (delayMs * (1 + jitter)));
+    }
+
+    int getManifestRetryCount() {
+        return manifestRetryCount.get();
+    }
+
+    int getSegmentRetryCount() {
+        return segmentRetryCount.get();
+    }
+
+    void resetRetryCounts() {
+        manifestRetryCount.set(0);
+        segmentRetryCount.set(0);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.kaltura.playkit.PKLog;
+
+/**
+ * The startup times and failures of the sources played from each CDN host, in this process.
+ * {@link SourceSelector} turns them into a penalty on the score of the sources of the host.
+ */
+class SourceHostStats {
+
+    private static final PKLog log = PKLog.get("SourceHostStats");
+
+    private static final int MAX_HOSTS = 32;
+    private static final int MIN_SAMPLES = 2; // A single startup or failure says little about a host
+    private static final float FAILURE_PENALTY = 250; // With only failures, a source ranks below the next format
+    private static final float FAILURE_RATE_STEPS = 10;
+    private static final long STARTUP_PENALTY_STEP_MS = 100;
+    private static final float MAX_STARTUP_PENALTY = 50;
+
+    private static final LruCache<String, HostStats> hosts = new LruCache<>(MAX_HOSTS);
+    private static int generation;
+
+    private static class HostStats {
+        int startupCount;
+        int failureCount;
+        long totalStartupMs;
+    }
+
+    /**
+     * @param startupMs - the time from prepare() to the first frame of the source, ignored if negative.
+     */
+    static synchronized void recordStartup(String url, long startupMs) {
+        HostStats stats = getOrCreate(url);
+        if (stats != null && startupMs >= 0) {
+            float penalty = getPenalty(stats);
+            stats.startupCount++;
+            stats.totalStartupMs += startupMs;
+            onPenaltyChanged(penalty, stats);
+        }
+    }
+
+    static synchronized void recordFailure(String url) {
+        HostStats stats = getOrCreate(url);
+        if (stats != null) {
+            float penalty = getPenalty(stats);
+            stats.failureCount++;
+            onPenaltyChanged(penalty, stats);
+            log.d("Source failure #" + stats.failureCount + " on " + getHost(url));
+        }
+    }
+
+    /**
+     * @return - a counter that changes whenever the penalty of a host changes, so rankings based on older penalties are recomputed.
+     */
+    static synchronized int getGeneration() {
+        return generation;
+    }
+
+    static synchronized float getPenalty(String url) {
+        String host = getHost(url);
+        HostStats stats = host != null ? hosts.get(host) : null;
+        return stats != null ? getPenalty(stats) : 0;
+    }
+
+    private static float getPenalty(HostStats stats) {
+        int samples = stats.startupCount + stats.failureCount;
+        if (samples < MIN_SAMPLES) {
+            return 0;
+        }
+        // In steps (tenths of the failure rate, whole startup steps), so that most startups and failures
+        // leave the penalty, and the cached rankings, as they are.
+        float penalty = FAILURE_PENALTY * Math.round(FAILURE_RATE_STEPS * stats.failureCount / samples) / FAILURE_RATE_STEPS;
+        if (stats.startupCount > 0) {
+            long averageStartupMs = stats.totalStartupMs / stats.startupCount;
+            penalty += Math.min(MAX_STARTUP_PENALTY, averageStartupMs / STARTUP_PENALTY_STEP_MS);
+        }
+        return penalty;
+    }
+
+    private static void onPenaltyChanged(float previousPenalty, HostStats stats) {
+        if (getPenalty(stats) != previousPenalty) {
+            generation++;
+        }
+    }
+
+    @Nullable
+    private static HostStats getOrCreate(String url) {
+        String host = getHost(url);
+        if (host == null) {
+            return null;
+        }
+        HostStats stats = hosts.get(host);
+        if (stats == null) {
+            if (hosts.size() >= MAX_HOSTS) {
+                // The penalty of the evicted host drops
+                generation++;
+            }
+            stats = new HostStats();
+            hosts.put(host, stats);
+        }
+        return stats;
+    }
+
+    @Nullable
+    private static String getHost(String url) {
+        return url != null ? Uri.parse(url).getHost() : null;
+    }
+}
@@ -14,6 +14,7 @@ package com.kaltura.playkit.player;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.util.LruCache;
 
 import com.kaltura.playkit.LocalAssetsManager;
 import com.kaltura.playkit.PKDrmParams;
@@ -23,35 +24,45 @@ import com.kaltura.playkit.PKMediaFormat;
 import com.kaltura.playkit.PKMediaSource;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by Noam Tamim @ Kaltura on 29/11/2016.
+ *
+ * Ranks the playable sources of an entry by score: the format preference, then the past startup times and
+ * failures of the CDN host of each source (see {@link SourceHostStats}). Sources without a supported DRM scheme
+ * are not playable. The ranking of an entry is cached by entry id until the host penalties change, unless it
+ * excluded sources for their DRM.
  */
 
 class SourceSelector {
 
     private static final PKLog log = PKLog.get("SourceSelector");
+
+    // Default preference: DASH, HLS, WVM, MP4, MP3
+    private static final List<PKMediaFormat> DEFAULT_FORMATS_PRIORITY = Arrays.asList(
+            PKMediaFormat.dash, PKMediaFormat.hls, PKMediaFormat.wvm, PKMediaFormat.mp4, PKMediaFormat.mp3);
+
+    private static final int FORMAT_RANK_SCORE = 100;
+    private static final int MAX_CACHED_RANKINGS = 50;
+
+    private static final LruCache<String, CachedRanking> rankingCache = new LruCache<>(MAX_CACHED_RANKINGS);
+
     private final PKMediaEntry mediaEntry;
     private final PKMediaFormat preferredMediaFormat;
+    private final Set<PKMediaSource> failedSources = new HashSet<>();
+    private List<PKMediaSource> rankedSources;
 
     public SourceSelector(PKMediaEntry mediaEntry, PKMediaFormat preferredMdieaFormat) {
         this.mediaEntry = mediaEntry;
         this.preferredMediaFormat = preferredMdieaFormat;
     }
 
-    @Nullable
-    private PKMediaSource sourceByFormat(PKMediaFormat format) {
-        if (mediaEntry != null && mediaEntry.getSources() != null) {
-            for (PKMediaSource source : mediaEntry.getSources()) {
-                if (source.getMediaFormat() == format) {
-                    return source;
-                }
-            }
-        }
-        return null;
-    }
-
     @Nullable
     PKMediaSource getPreferredSource() {
 
@@ -62,50 +73,122 @@ class SourceSelector {
             return localMediaSource;
         }
 
-        // Default preference: DASH, HLS, WVM, MP4, MP3
+        List<PKMediaSource> sources = getRankedSources();
+        return sources.isEmpty() ? null : sources.get(0);
+    }
 
-        List<PKMediaFormat> formatsPriorityList = getFormatsPriorityList();
+    /**
+     * Mark the source as failed and return the next playable source by rank.
+     *
+     * @param failedSource - the source that failed to play.
+     * @return - the best source that didn't fail yet, or null if none is left.
+     */
+    @Nullable
+    PKMediaSource getNextSource(PKMediaSource failedSource) {
+        failedSources.add(failedSource);
+        for (PKMediaSource source : getRankedSources()) {
+            if (!failedSources.contains(source)) {
+                return source;
+            }
+        }
+        return null;
+    }
 
-        for (PKMediaFormat format : formatsPriorityList) {
-            PKMediaSource source = sourceByFormat(format);
-            if (source == null) {
-                continue;
+    /**
+     * @return - the playable sources of the entry, best first.
+     */
+    @NonNull
+    List<PKMediaSource> getRankedSources() {
+        if (rankedSources == null) {
+            rankedSources = rankSources();
+        }
+        return rankedSources;
+    }
+
+    @NonNull
+    private List<PKMediaSource> rankSources() {
+        List<PKMediaSource> sources = mediaEntry != null ? mediaEntry.getSources() : null;
+        if (sources == null || sources.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String cacheKey = mediaEntry.getId() != null ? mediaEntry.getId() + ":" + preferredMediaFormat : null;
+        int hostStatsGeneration = SourceHostStats.getGeneration();
+        int sourcesHash = getSourcesHash(sources);
+        if (cacheKey != null) {
+            CachedRanking cachedRanking = rankingCache.get(cacheKey);
+            if (cachedRanking != null && cachedRanking.hostStatsGeneration == hostStatsGeneration && cachedRanking.sourcesHash == sourcesHash) {
+                return cachedRanking.toSources(sources);
             }
+        }
 
-            List<PKDrmParams> drmParams = source.getDrmData();
-            if (drmParams != null && !drmParams.isEmpty()) {
-                for (PKDrmParams params : drmParams) {
-                    if (params.isSchemeSupported()) {
-                        return source;
-                    }
-                }
-                // This source doesn't have supported params
+        List<PKMediaFormat> formatsPriorityList = getFormatsPriorityList();
+        int sourceCount = sources.size();
+        List<Integer> rankedIndexes = new ArrayList<>(sourceCount);
+        final float[] scores = new float[sourceCount];
+        boolean excludedForDrm = false;
+        for (int i = 0; i < sourceCount; i++) {
+            PKMediaSource source = sources.get(i);
+            int formatRank = formatsPriorityList.indexOf(source.getMediaFormat());
+            if (formatRank == -1) {
+                continue;
+            }
+            if (!isDrmSupported(source)) {
+                excludedForDrm = true;
                 continue;
             }
-            return source;
+            scores[i] = (formatsPriorityList.size() - formatRank) * FORMAT_RANK_SCORE - SourceHostStats.getPenalty(source.getUrl());
+            rankedIndexes.add(i);
         }
-        return null;
-    }
+        // Stable, so sources with the same score keep the order of the entry.
+        Collections.sort(rankedIndexes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return Float.compare(scores[second], scores[first]);
+            }
+        });
 
-    @NonNull
-    private List<PKMediaFormat> getFormatsPriorityList() {
-        List<PKMediaFormat> formatsPriorityList = new ArrayList<>();
+        CachedRanking ranking = new CachedRanking(rankedIndexes, hostStatsGeneration, sourcesHash);
+        // The supported DRM schemes can change, e.g. when the Widevine provisioning of MediaSupport.initializeDrm() completes.
+        if (cacheKey != null && !excludedForDrm) {
+            rankingCache.put(cacheKey, ranking);
+        }
+        return ranking.toSources(sources);
+    }
 
-        formatsPriorityList.add(PKMediaFormat.dash);
-        formatsPriorityList.add(PKMediaFormat.hls);
-        formatsPriorityList.add(PKMediaFormat.wvm);
-        formatsPriorityList.add(PKMediaFormat.mp4);
-        formatsPriorityList.add(PKMediaFormat.mp3);
+    private static boolean isDrmSupported(PKMediaSource source) {
+        List<PKDrmParams> drmParams = source.getDrmData();
+        if (drmParams == null || drmParams.isEmpty()) {
+            return true;
+        }
+        for (PKDrmParams params : drmParams) {
+            if (params.isSchemeSupported()) {
+                return true;
+            }
+        }
+        // This source doesn't have supported params
+        return false;
+    }
 
-        if (preferredMediaFormat == PKMediaFormat.dash) {
-            return formatsPriorityList;
+    private static int getSourcesHash(List<PKMediaSource> sources) {
+        int hash = 1;
+        for (PKMediaSource source : sources) {
+            hash = 31 * hash + (source.getUrl() != null ? source.getUrl().hashCode() : 0);
+            hash = 31 * hash + (source.getMediaFormat() != null ? source.getMediaFormat().hashCode() : 0);
         }
+        return hash;
+    }
 
-        int preferredMediaFormatIndex = formatsPriorityList.indexOf(preferredMediaFormat);
-        if (preferredMediaFormatIndex > 0) {
-            formatsPriorityList.remove(preferredMediaFormatIndex);
-            formatsPriorityList.add(0, preferredMediaFormat);
+    @NonNull
+    private List<PKMediaFormat> getFormatsPriorityList() {
+        int preferredMediaFormatIndex = DEFAULT_FORMATS_PRIORITY.indexOf(preferredMediaFormat);
+        if (preferredMediaFormatIndex <= 0) {
+            return DEFAULT_FORMATS_PRIORITY;
         }
+
+        List<PKMediaFormat> formatsPriorityList = new ArrayList<>(DEFAULT_FORMATS_PRIORITY);
+        formatsPriorityList.remove(preferredMediaFormatIndex);
+        formatsPriorityList.add(0, preferredMediaFormat);
         return formatsPriorityList;
     }
 
@@ -123,5 +206,28 @@ class SourceSelector {
         }
         return null;
     }
-}
 
+    private static class CachedRanking {
+
+        private final int[] sourceIndexes;
+        private final int hostStatsGeneration;
+        private final int sourcesHash;
+
+        CachedRanking(List<Integer> sourceIndexes, int hostStatsGeneration, int sourcesHash) {
+            this.sourceIndexes = new int[sourceIndexes.size()];
+            for (int i = 0; i < this.sourceIndexes.length; i++) {
+                this.sourceIndexes[i] = sourceIndexes.get(i);
+            }
+            this.hostStatsGeneration = hostStatsGeneration;
+            this.sourcesHash = sourcesHash;
+        }
+
+        List<PKMediaSource> toSources(List<PKMediaSource> sources) {
+            List<PKMediaSource> rankedSources = new ArrayList<>(sourceIndexes.length);
+            for (int sourceIndex : sourceIndexes) {
+                rankedSources.add(sources.get(sourceIndex));
+            }
+            return rankedSources;
+        }
+    }
+}
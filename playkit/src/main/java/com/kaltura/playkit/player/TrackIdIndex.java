@@ -0,0 +1,66 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Typed index of the tracks built by {@link TrackSelectionHelper}: the renderer, group and track indexes
+ * of each uniqueId, and the tracks of each adaptive group. Built once per tracks info, so that
+ * track changes resolve uniqueIds with a lookup instead of parsing them.
+ */
+class TrackIdIndex {
+
+    private static final int[] NO_TRACKS = new int[0];
+
+    private final Map<String, int[]> tracks = new HashMap<>();
+    private final Map<Integer, int[]> adaptiveTracks = new HashMap<>();
+
+    void clear() {
+        tracks.clear();
+        adaptiveTracks.clear();
+    }
+
+    void add(String uniqueId, int rendererIndex, int groupIndex, int trackIndex) {
+        tracks.put(uniqueId, new int[]{rendererIndex, groupIndex, trackIndex});
+    }
+
+    boolean contains(String uniqueId) {
+        return tracks.containsKey(uniqueId);
+    }
+
+    /**
+     * @return - the renderer, group and track indexes of the track, or null if it's not indexed.
+     * The array is shared and must not be modified.
+     */
+    int[] get(String uniqueId) {
+        return tracks.get(uniqueId);
+    }
+
+    void setAdaptiveTracks(int rendererIndex, int groupIndex, int[] trackIndexes) {
+        adaptiveTracks.put(getGroupKey(rendererIndex, groupIndex), trackIndexes);
+    }
+
+    /**
+     * @return - the indexes of the tracks that the adaptive track of the group selects from, empty if there are none.
+     */
+    int[] getAdaptiveTracks(int rendererIndex, int groupIndex) {
+        int[] trackIndexes = adaptiveTracks.get(getGroupKey(rendererIndex, groupIndex));
+        return trackIndexes != null ? trackIndexes : NO_TRACKS;
+    }
+
+    private static int getGroupKey(int rendererIndex, int groupIndex) {
+        return (rendererIndex << 16) | groupIndex;
+    }
+}
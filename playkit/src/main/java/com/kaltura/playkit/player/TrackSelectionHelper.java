@@ -31,8 +31,10 @@ import com.kaltura.playkit.utils.Consts;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.MissingResourceException;
 
 import static com.kaltura.playkit.utils.Consts.TRACK_TYPE_AUDIO;
@@ -74,6 +76,7 @@ class TrackSelectionHelper {
     private List<VideoTrack> videoTracks = new ArrayList<>();
     private List<AudioTrack> audioTracks = new ArrayList<>();
     private List<TextTrack> textTracks = new ArrayList<>();
+    private final TrackIdIndex trackIdIndex = new TrackIdIndex();
 
     private String[] lastSelectedTrackIds;
     private String[] requestedChangeTrackIds;
@@ -173,23 +176,28 @@ class TrackSelectionHelper {
                                     continue;
                                 }
                                 videoTracks.add(new VideoTrack(uniqueId, format.bitrate, format.width, format.height, format.selectionFlags, false));
+                                trackIdIndex.add(uniqueId, rendererIndex, groupIndex, trackIndex);
                                 break;
                             case TRACK_TYPE_AUDIO:
                                 if (format.language == null && format.codecs == null) {
                                     if (mpgaAudioFormatEnabled && format.id != null && format.id.matches("\\d+/\\d+")) {
                                         audioTracks.add(new AudioTrack(uniqueId, format.id, format.label, format.bitrate, format.channelCount, format.selectionFlags, false));
+                                        trackIdIndex.add(uniqueId, rendererIndex, groupIndex, trackIndex);
                                     }
                                 } else {
                                     audioTracks.add(new AudioTrack(uniqueId, getLanguageFromFormat(format), format.label, format.bitrate, format.channelCount, format.selectionFlags, false));
+                                    trackIdIndex.add(uniqueId, rendererIndex, groupIndex, trackIndex);
                                 }
                                 break;
                             case TRACK_TYPE_TEXT:
                                 if (CEA_608.equals(format.sampleMimeType)) {
                                     if (cea608CaptionsEnabled) {
                                         textTracks.add(new TextTrack(uniqueId, format.language, format.id, format.selectionFlags));
+                                        trackIdIndex.add(uniqueId, rendererIndex, groupIndex, trackIndex);
                                     }
                                 } else {
                                     textTracks.add(new TextTrack(uniqueId, getLanguageFromFormat(format), format.label, format.selectionFlags));
+                                    trackIdIndex.add(uniqueId, rendererIndex, groupIndex, trackIndex);
                                 }
                                 break;
                         }
@@ -204,6 +212,8 @@ class TrackSelectionHelper {
         maybeAddDisabledTextTrack();
         //Leave only adaptive audio tracks for user selection.
         ArrayList<AudioTrack> filteredAudioTracks = filterAdaptiveAudioTracks();
+        //Precompute the tracks of the adaptive groups, before the last selected tracks are restored.
+        indexAdaptiveTracks();
 
         int defaultVideoTrackIndex = getDefaultTrackIndex(videoTracks, lastSelectedTrackIds[TRACK_TYPE_VIDEO]);
         int defaultAudioTrackIndex = getDefaultTrackIndex(audioTracks, lastSelectedTrackIds[TRACK_TYPE_AUDIO]);
@@ -253,7 +263,7 @@ class TrackSelectionHelper {
 
         for (int i = 0; i < audioTracks.size(); i++) {
             audioTrack = audioTracks.get(i);
-            parsedUniqueId = parseUniqueId(audioTrack.getUniqueId());
+            parsedUniqueId = trackIdIndex.get(audioTrack.getUniqueId());
 
             if (parsedUniqueId[TRACK_INDEX] == TRACK_ADAPTIVE) {
                 filteredAudioTracks.add(audioTrack);
@@ -279,6 +289,43 @@ class TrackSelectionHelper {
         }
         String uniqueId = getUniqueId(TRACK_TYPE_TEXT, 0, TRACK_DISABLED);
         textTracks.add(0, new TextTrack(uniqueId, NONE, NONE, -1));
+        trackIdIndex.add(uniqueId, TRACK_TYPE_TEXT, 0, TRACK_DISABLED);
+    }
+
+    /**
+     * Index the tracks each adaptive track selects from: the listed tracks of its group for video,
+     * all the tracks of its group for audio.
+     */
+    private void indexAdaptiveTracks() {
+        Map<Integer, List<Integer>> videoGroups = new HashMap<>();
+        int[] parsedUniqueId;
+        for (VideoTrack videoTrack : videoTracks) {
+            parsedUniqueId = trackIdIndex.get(videoTrack.getUniqueId());
+            if (parsedUniqueId[TRACK_INDEX] != TRACK_ADAPTIVE) {
+                List<Integer> groupTracks = videoGroups.get(parsedUniqueId[GROUP_INDEX]);
+                if (groupTracks == null) {
+                    groupTracks = new ArrayList<>();
+                    videoGroups.put(parsedUniqueId[GROUP_INDEX], groupTracks);
+                }
+                groupTracks.add(parsedUniqueId[TRACK_INDEX]);
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> videoGroup : videoGroups.entrySet()) {
+            trackIdIndex.setAdaptiveTracks(TRACK_TYPE_VIDEO, videoGroup.getKey(), convertAdaptiveListToArray(videoGroup.getValue()));
+        }
+
+        TrackGroupArray audioTrackGroups = mappedTrackInfo.getTrackGroups(TRACK_TYPE_AUDIO);
+        for (AudioTrack audioTrack : audioTracks) {
+            parsedUniqueId = trackIdIndex.get(audioTrack.getUniqueId());
+            if (parsedUniqueId[TRACK_INDEX] == TRACK_ADAPTIVE) {
+                TrackGroup trackGroup = audioTrackGroups.get(parsedUniqueId[GROUP_INDEX]);
+                int[] adaptiveTrackIndexes = new int[trackGroup.length];
+                for (int ind = 0; ind < adaptiveTrackIndexes.length; ind++) {
+                    adaptiveTrackIndexes[ind] = ind;
+                }
+                trackIdIndex.setAdaptiveTracks(TRACK_TYPE_AUDIO, parsedUniqueId[GROUP_INDEX], adaptiveTrackIndexes);
+            }
+        }
     }
 
     /**
@@ -339,7 +386,7 @@ class TrackSelectionHelper {
      */
     private void maybeAddAdaptiveTrack(int rendererIndex, int groupIndex, Format format) {
         String uniqueId = getUniqueId(rendererIndex, groupIndex, TRACK_ADAPTIVE);
-        if (isAdaptive(rendererIndex, groupIndex) && !adaptiveTrackAlreadyExist(uniqueId, rendererIndex)) {
+        if (isAdaptive(rendererIndex, groupIndex) && !trackIdIndex.contains(uniqueId)) {
             switch (rendererIndex) {
                 case TRACK_TYPE_VIDEO:
                     videoTracks.add(new VideoTrack(uniqueId, 0, 0, 0, format.selectionFlags, true));
@@ -351,6 +398,7 @@ class TrackSelectionHelper {
                     textTracks.add(new TextTrack(uniqueId, format.language, format.label, format.selectionFlags));
                     break;
             }
+            trackIdIndex.add(uniqueId, rendererIndex, groupIndex, TRACK_ADAPTIVE);
         }
     }
 
@@ -426,6 +474,10 @@ class TrackSelectionHelper {
         overrideTrack(rendererIndex, override, parametersBuilder);
     }
 
+    static boolean isAudioTrackId(@Nullable String uniqueId) {
+        return uniqueId != null && uniqueId.startsWith(AUDIO_PREFIX);
+    }
+
     /**
      * @param uniqueId - the uniqueId to convert.
      * @return - int[] that consist from indexes that are readable to Exoplayer.
@@ -470,53 +522,8 @@ class TrackSelectionHelper {
         boolean isAdaptive = trackIndex == TRACK_ADAPTIVE;
 
         if (isAdaptive) {
-
-            List<Integer> adaptiveTrackIndexesList = new ArrayList<>();
-            int[] adaptiveTrackIndexes;
-
-            switch (rendererIndex) {
-                case TRACK_TYPE_VIDEO:
-
-                    VideoTrack videoTrack;
-                    int videoGroupIndex;
-                    int videoTrackIndex;
-
-                    for (int i = 0; i < videoTracks.size(); i++) {
-
-                        videoTrack = videoTracks.get(i);
-                        videoGroupIndex = getIndexFromUniqueId(videoTrack.getUniqueId(), GROUP_INDEX);
-                        videoTrackIndex = getIndexFromUniqueId(videoTrack.getUniqueId(), TRACK_INDEX);
-
-                        if (videoGroupIndex == groupIndex && videoTrackIndex != TRACK_ADAPTIVE) {
-                            adaptiveTrackIndexesList.add(getIndexFromUniqueId(videoTrack.getUniqueId(), TRACK_INDEX));
-                        }
-                    }
-                    break;
-                case TRACK_TYPE_AUDIO:
-
-                    AudioTrack audioTrack;
-                    int audioGroupIndex;
-                    int audioTrackIndex;
-                    for (int i = 0; i < audioTracks.size(); i++) {
-
-                        audioTrack = audioTracks.get(i);
-                        audioGroupIndex = getIndexFromUniqueId(audioTrack.getUniqueId(), GROUP_INDEX);
-                        audioTrackIndex = getIndexFromUniqueId(audioTrack.getUniqueId(), TRACK_INDEX);
-
-                        if (audioGroupIndex == groupIndex && audioTrackIndex == TRACK_ADAPTIVE) {
-                            TrackGroup trackGroup = mappedTrackInfo.getTrackGroups(TRACK_TYPE_AUDIO).get(audioGroupIndex);
-                            if (trackGroup != null) {
-                                for (int ind = 0 ; ind < trackGroup.length ; ind++) {
-                                    adaptiveTrackIndexesList.add(ind);
-                                }
-                            }
-                        }
-                    }
-                    break;
-            }
-
-            adaptiveTrackIndexes = convertAdaptiveListToArray(adaptiveTrackIndexesList);
-            override = new SelectionOverride(groupIndex, adaptiveTrackIndexes);
+            //The tracks of the adaptive groups are indexed when the tracks are built.
+            override = new SelectionOverride(groupIndex, trackIdIndex.getAdaptiveTracks(rendererIndex, groupIndex));
         } else {
             override = new SelectionOverride(groupIndex, trackIndex);
         }
@@ -542,46 +549,6 @@ class TrackSelectionHelper {
         selector.setParameters(parametersBuilder);
     }
 
-    /**
-     * Checks if adaptive track for the specified group was created.
-     *
-     * @param uniqueId      - unique id.
-     * @param rendererIndex - renderer index.
-     * @return - true, if adaptive {@link BaseTrack} object already exist for this group.
-     */
-    private boolean adaptiveTrackAlreadyExist(String uniqueId, int rendererIndex) {
-
-        List<? extends BaseTrack> trackList = new ArrayList<>();
-        switch (rendererIndex) {
-            case TRACK_TYPE_VIDEO:
-                trackList = videoTracks;
-                break;
-            case TRACK_TYPE_AUDIO:
-                trackList = audioTracks;
-                break;
-            case TRACK_TYPE_TEXT:
-                trackList = textTracks;
-                break;
-        }
-
-        for (BaseTrack track : trackList) {
-            if (track.getUniqueId().equals(uniqueId)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private int getIndexFromUniqueId(String uniqueId, int groupIndex) {
-        String uniqueIdWithoutPrefix = removePrefix(uniqueId);
-        String[] strArray = uniqueIdWithoutPrefix.split(",");
-        if (strArray[groupIndex].equals(ADAPTIVE)) {
-            return -1;
-        }
-
-        return Integer.valueOf(strArray[groupIndex]);
-    }
-
     private String removePrefix(String uniqueId) {
         String[] strArray = uniqueId.split(":");
         //always return the second element of the splitString.
@@ -622,12 +589,16 @@ class TrackSelectionHelper {
             throw new IllegalArgumentException("uniqueId is null");
         }
 
-        if (uniqueId.contains(VIDEO_PREFIX)
+        //Ids of the current tracks are indexed, only ids of other medias are parsed.
+        int[] parsedUniqueId = trackIdIndex.get(uniqueId);
+        if (parsedUniqueId == null && (uniqueId.contains(VIDEO_PREFIX)
                 || uniqueId.contains(AUDIO_PREFIX)
                 || uniqueId.contains(TEXT_PREFIX)
-                && uniqueId.contains(",")) {
+                && uniqueId.contains(","))) {
+            parsedUniqueId = parseUniqueId(uniqueId);
+        }
 
-            int[] parsedUniqueId = parseUniqueId(uniqueId);
+        if (parsedUniqueId != null) {
             if (!isRendererTypeValid(parsedUniqueId[RENDERER_INDEX])) {
                 throw new IllegalArgumentException("Track selection with uniqueId = " + uniqueId + " failed. Due to invalid renderer index. " + parsedUniqueId[RENDERER_INDEX]);
             }
@@ -690,6 +661,7 @@ class TrackSelectionHelper {
         videoTracks.clear();
         audioTracks.clear();
         textTracks.clear();
+        trackIdIndex.clear();
     }
 
     protected void release() {
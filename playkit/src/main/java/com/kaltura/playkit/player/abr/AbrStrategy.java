@@ -0,0 +1,36 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player.abr;
+
+/**
+ * Decides which video rendition the player downloads next. Set with {@code Player.Settings.setAbrStrategy()};
+ * the player calls it on the playback thread before loading each chunk.
+ * Implementations don't depend on ExoPlayer or Android, so they can be simulated on the JVM.
+ * The same instance is used by all the adaptive selections of the player, any state must be kept per call.
+ */
+public interface AbrStrategy {
+
+    /**
+     * Current index before the first selection.
+     */
+    int NO_SELECTION = -1;
+
+    /**
+     * @param bitrates           - bitrates of the renditions in bits per second, from highest to lowest.
+     * @param currentIndex       - index of the current rendition, or {@link #NO_SELECTION}.
+     * @param bitrateEstimate    - the bandwidth estimate in bits per second, 0 if unknown.
+     * @param bufferedDurationMs - the media buffered ahead of the playback position.
+     * @return - the index of the rendition to download next.
+     */
+    int selectRendition(int[] bitrates, int currentIndex, long bitrateEstimate, long bufferedDurationMs);
+}
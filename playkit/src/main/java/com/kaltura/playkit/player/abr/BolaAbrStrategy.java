@@ -0,0 +1,91 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player.abr;
+
+/**
+ * Buffer based strategy (BOLA): selects the rendition that maximizes the utility of the next download for the
+ * current buffer level. The lowest rendition is selected at the min buffer and the highest one at the buffer
+ * target, which grows with the number of renditions.
+ * Like BOLA-O, it doesn't switch up above the bandwidth estimate, which avoids oscillations when the buffer is
+ * between two renditions; the first selection is based on the bandwidth estimate.
+ */
+public class BolaAbrStrategy implements AbrStrategy {
+
+    public static final long DEFAULT_MIN_BUFFER_MS = 10000;
+    public static final long DEFAULT_BUFFER_TARGET_MS = 30000;
+    public static final long DEFAULT_BUFFER_PER_RENDITION_MS = 2000;
+
+    private final long minBufferMs;
+    private final long bufferTargetMs;
+    private final long bufferPerRenditionMs;
+
+    public BolaAbrStrategy() {
+        this(DEFAULT_MIN_BUFFER_MS, DEFAULT_BUFFER_TARGET_MS, DEFAULT_BUFFER_PER_RENDITION_MS);
+    }
+
+    /**
+     * @param minBufferMs          - the buffer level at which the lowest rendition is selected.
+     * @param bufferTargetMs       - the buffer level at which the highest rendition is selected.
+     * @param bufferPerRenditionMs - the buffer target is at least the min buffer plus this for each rendition.
+     */
+    public BolaAbrStrategy(long minBufferMs, long bufferTargetMs, long bufferPerRenditionMs) {
+        this.minBufferMs = minBufferMs;
+        this.bufferTargetMs = bufferTargetMs;
+        this.bufferPerRenditionMs = bufferPerRenditionMs;
+    }
+
+    @Override
+    public int selectRendition(int[] bitrates, int currentIndex, long bitrateEstimate, long bufferedDurationMs) {
+        int lowestIndex = bitrates.length - 1;
+        int throughputIndex = getThroughputIndex(bitrates, bitrateEstimate);
+        if (currentIndex == NO_SELECTION || lowestIndex == 0) {
+            return throughputIndex;
+        }
+
+        // Utilities are ln(bitrate / lowest bitrate) + 1, so the lowest rendition has utility 1.
+        double lowestBitrate = Math.max(1, bitrates[lowestIndex]);
+        double highestUtility = Math.log(Math.max(1, bitrates[0]) / lowestBitrate) + 1;
+        double bufferTargetS = Math.max(bufferTargetMs, minBufferMs + bufferPerRenditionMs * bitrates.length) / 1000.0;
+        double minBufferS = minBufferMs / 1000.0;
+        double gp = (highestUtility - 1) / (bufferTargetS / minBufferS - 1);
+        double vp = minBufferS / gp;
+        double bufferLevelS = bufferedDurationMs / 1000.0;
+
+        int bolaIndex = lowestIndex;
+        double maxScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i <= lowestIndex; i++) {
+            double bitrate = Math.max(1, bitrates[i]);
+            double utility = Math.log(bitrate / lowestBitrate) + 1;
+            double score = (vp * (utility + gp) - bufferLevelS) / bitrate;
+            if (score > maxScore) {
+                maxScore = score;
+                bolaIndex = i;
+            }
+        }
+
+        if (bolaIndex < currentIndex && bolaIndex < throughputIndex) {
+            // Don't switch up beyond what the bandwidth sustains, nor down because of this limit.
+            return Math.min(currentIndex, throughputIndex);
+        }
+        return bolaIndex;
+    }
+
+    private static int getThroughputIndex(int[] bitrates, long bitrateEstimate) {
+        for (int i = 0; i < bitrates.length; i++) {
+            if (bitrates[i] <= bitrateEstimate) {
+                return i;
+            }
+        }
+        return bitrates.length - 1;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * ============================================================================
+ * Copyright (C) 2018 Kaltura Inc.
+ *
+ * Licensed under the AGPLv3 license, unless a different license for a
+ * particular library is specified in the applicable library path.
+ *
+ * You may obtain a copy of the License at
+ * https://www.gnu.org/licenses/agpl-3.0.html
+ * ============================================================================
+ */
+
+package com.kaltura.playkit.player.abr;
+
+/**
+ * Throughput based strategy, with the behaviour of ExoPlayer's AdaptiveTrackSelection: selects the highest
+ * rendition below a fraction of the bandwidth estimate, switches up only with enough buffer and down only
+ * with too little buffer.
+ */
+public class ThroughputAbrStrategy implements AbrStrategy {
+
+    public static final float DEFAULT_BANDWIDTH_FRACTION = 0.75f;
+    public static final long DEFAULT_MIN_DURATION_FOR_QUALITY_INCREASE_MS = 10000;
+    public static final long DEFAULT_MAX_DURATION_FOR_QUALITY_DECREASE_MS = 25000;
+
+    private final float bandwidthFraction;
+    private final long minDurationForQualityIncreaseMs;
+    private final long maxDurationForQualityDecreaseMs;
+
+    public ThroughputAbrStrategy() {
+        this(DEFAULT_BANDWIDTH_FRACTION, DEFAULT_MIN_DURATION_FOR_QUALITY_INCREASE_MS, DEFAULT_MAX_DURATION_FOR_QUALITY_DECREASE_MS);
+    }
+
+    /**
+     * @param bandwidthFraction               - the share of the bandwidth estimate the selected bitrate may use.
+     * @param minDurationForQualityIncreaseMs - the buffer needed to switch to a higher rendition.
+     * @param maxDurationForQualityDecreaseMs - the buffer above which the player doesn't switch to a lower rendition.
+     */
+    public ThroughputAbrStrategy(float bandwidthFraction, long minDurationForQualityIncreaseMs, long maxDurationForQualityDecreaseMs) {
+        this.bandwidthFraction = bandwidthFraction;
+        this.minDurationForQualityIncreaseMs = minDurationForQualityIncreaseMs;
+        this.maxDurationForQualityDecreaseMs = maxDurationForQualityDecreaseMs;
+    }
+
+    @Override
+    public int selectRendition(int[] bitrates, int currentIndex, long bitrateEstimate, long bufferedDurationMs) {
+        int idealIndex = getIdealIndex(bitrates, bitrateEstimate);
+        if (currentIndex == NO_SELECTION) {
+            return idealIndex;
+        }
+        if (idealIndex < currentIndex && bufferedDurationMs < minDurationForQualityIncreaseMs) {
+            // Higher quality, but not enough buffer to risk it.
+            return currentIndex;
+        }
+        if (idealIndex > currentIndex && bufferedDurationMs >= maxDurationForQualityDecreaseMs) {
+            // Lower quality, but enough buffer to keep the current one.
+            return currentIndex;
+        }
+        return idealIndex;
+    }
+
+    private int getIdealIndex(int[] bitrates, long bitrateEstimate) {
+        long effectiveBitrate = (long) (bitrateEstimate * bandwidthFraction);
+        for (int i = 0; i < bitrates.length; i++) {
+            if (bitrates[i] <= effectiveBitrate) {
+                return i;
+            }
+        }
+        return bitrates.length - 1;
+    }
+}
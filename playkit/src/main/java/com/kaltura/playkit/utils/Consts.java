@@ -58,6 +58,9 @@ public class Consts {
 
     public static final int DEFAULT_PLAYHEAD_UPDATE_MILI = 100;
 
+    public static final long DEFAULT_QOE_UPDATE_INTERVAL_MS = 10000;
+    public static final int DEFAULT_SOURCE_FAILOVER_RETRIES = 2;
+
     /**
      * Flag that indicates, that this specified track will be
      * selected by the player as default track.
@@ -0,0 +1,171 @@
+package com.kaltura.playkit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DefaultHttpTransportTest {
+
+    private static final int REQUEST_COUNT = 20;
+
+    private MockServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockServer();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void postsOfASessionShareOneConnection() throws IOException {
+        DefaultHttpTransport transport = new DefaultHttpTransport(2000, 2000);
+
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            byte[] response = transport.executePost(server.url(), ("request " + i).getBytes(),
+                    Collections.singletonMap("Content-Type", "text/plain"));
+            assertEquals("request " + i, new String(response));
+        }
+
+        assertEquals(REQUEST_COUNT, server.requests.get());
+        // Every new connection is a new handshake on a TLS server.
+        assertEquals(1, server.connections.get());
+    }
+
+    @Test
+    public void postWithoutBody() throws IOException {
+        DefaultHttpTransport transport = new DefaultHttpTransport();
+
+        byte[] response = transport.executePost(server.url(), null, null);
+
+        assertEquals(0, response.length);
+        assertEquals(1, server.requests.get());
+    }
+
+    @Test
+    public void readTimeoutIsApplied() throws IOException {
+        server.respond = false;
+        DefaultHttpTransport transport = new DefaultHttpTransport(2000, 200);
+
+        long start = System.currentTimeMillis();
+        try {
+            transport.executePost(server.url(), "hello".getBytes(), null);
+            fail("Expected a read timeout");
+        } catch (SocketTimeoutException e) {
+            long elapsed = System.currentTimeMillis() - start;
+            assertTrue("Timed out after " + elapsed + "ms", elapsed < 1500);
+        }
+    }
+
+    /**
+     * Minimal HTTP/1.1 server that echoes the request body and keeps the connections alive.
+     */
+    private static class MockServer {
+
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger requests = new AtomicInteger();
+        volatile boolean respond = true;
+
+        private final ServerSocket serverSocket;
+
+        MockServer() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+            Thread acceptThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            final Socket socket = serverSocket.accept();
+                            connections.incrementAndGet();
+                            Thread connectionThread = new Thread(new Runnable() {
+                                @Override
+                                public void run() {
+                                    serve(socket);
+                                }
+                            });
+                            connectionThread.setDaemon(true);
+                            connectionThread.start();
+                        }
+                    } catch (IOException e) {
+                        // Closed
+                    }
+                }
+            });
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/post";
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        private void serve(Socket socket) {
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+                OutputStream out = socket.getOutputStream();
+                String requestLine;
+                while ((requestLine = reader.readLine()) != null) {
+                    int contentLength = 0;
+                    String header;
+                    while ((header = reader.readLine()) != null && !header.isEmpty()) {
+                        if (header.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(header.substring("content-length:".length()).trim());
+                        }
+                    }
+                    char[] body = new char[contentLength];
+                    int read = 0;
+                    while (read < contentLength) {
+                        int count = reader.read(body, read, contentLength - read);
+                        if (count < 0) {
+                            return;
+                        }
+                        read += count;
+                    }
+                    requests.incrementAndGet();
+                    if (!respond) {
+                        continue;
+                    }
+
+                    byte[] responseBody = new String(body).getBytes("ISO-8859-1");
+                    String headers = "HTTP/1.1 200 OK\r\n" +
+                            "Content-Type: text/plain\r\n" +
+                            "Content-Length: " + responseBody.length + "\r\n" +
+                            "Connection: keep-alive\r\n\r\n";
+                    out.write(headers.getBytes("ISO-8859-1"));
+                    out.write(responseBody);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Client went away
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.kaltura.playkit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class MessageBusTest {
+
+    private static final int POST_COUNT = 10000;
+
+    private MessageBus messageBus;
+    private List<PKEvent> received;
+
+    @Before
+    public void setUp() {
+        messageBus = new MessageBus(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        received = new ArrayList<>();
+    }
+
+    @Test
+    public void deliversOnlyToSubscribedTypes() {
+        PKEvent.Listener listener = new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                received.add(event);
+            }
+        };
+        messageBus.listen(listener, PlayerEvent.Type.PLAY, PlayerEvent.Type.PAUSE);
+
+        messageBus.post(new PlayerEvent.Generic(PlayerEvent.Type.PLAY));
+        messageBus.post(new PlayerEvent.Generic(PlayerEvent.Type.ENDED));
+        messageBus.post(new PlayerEvent.Generic(PlayerEvent.Type.PAUSE));
+
+        assertEquals(2, received.size());
+        assertEquals(PlayerEvent.Type.PLAY, received.get(0).eventType());
+        assertEquals(PlayerEvent.Type.PAUSE, received.get(1).eventType());
+    }
+
+    @Test
+    public void listenTwiceDeliversOnce() {
+        PKEvent.Listener listener = new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                received.add(event);
+            }
+        };
+        messageBus.listen(listener, PlayerEvent.Type.PLAY);
+        messageBus.listen(listener, PlayerEvent.Type.PLAY);
+
+        messageBus.post(new PlayerEvent.Generic(PlayerEvent.Type.PLAY));
+
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void removedListenerIsNotCalled() {
+        PKEvent.Listener listener = new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                received.add(event);
+            }
+        };
+        messageBus.listen(listener, PlayerEvent.Type.PLAY, PlayerEvent.Type.PAUSE);
+        messageBus.remove(listener, PlayerEvent.Type.PLAY);
+        messageBus.post(new PlayerEvent.Generic(PlayerEvent.Type.PLAY));
+        assertEquals(0, received.size());
+
+        messageBus.post(new PlayerEvent.Generic(PlayerEvent.Type.PAUSE));
+        assertEquals(1, received.size());
+
+        messageBus.removeListener(listener);
+        messageBus.post(new PlayerEvent.Generic(PlayerEvent.Type.PAUSE));
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void listenerCanUnsubscribeWhileDispatching() {
+        final PKEvent.Listener[] self = new PKEvent.Listener[1];
+        self[0] = new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                received.add(event);
+                messageBus.removeListener(self[0]);
+            }
+        };
+        PKEvent.Listener other = new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                received.add(event);
+            }
+        };
+        messageBus.listen(self[0], PlayerEvent.Type.PLAY);
+        messageBus.listen(other, PlayerEvent.Type.PLAY);
+
+        messageBus.post(new PlayerEvent.Generic(PlayerEvent.Type.PLAY));
+        messageBus.post(new PlayerEvent.Generic(PlayerEvent.Type.PLAY));
+
+        assertEquals(3, received.size());
+    }
+
+    @Test
+    public void steadyStatePostDoesNotAllocate() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        final long[] count = new long[1];
+        PKEvent.Listener listener = new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                count[0]++;
+            }
+        };
+        messageBus.listen(listener, PlayerEvent.Type.PLAYHEAD_UPDATED, PlayerEvent.Type.PLAYBACK_INFO_UPDATED);
+        messageBus.listen(new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                count[0]++;
+            }
+        }, PlayerEvent.Type.PLAYHEAD_UPDATED);
+
+        PKEvent playhead = new PlayerEvent.PlayheadUpdated(1000, 2000);
+        PKEvent unobserved = new PlayerEvent.Generic(PlayerEvent.Type.ENDED);
+
+        // Warm up, so the dispatch pool and any lazily created state exist.
+        for (int i = 0; i < POST_COUNT; i++) {
+            messageBus.post(playhead);
+            messageBus.post(unobserved);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < POST_COUNT; i++) {
+            messageBus.post(playhead);
+            messageBus.post(unobserved);
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(4L * POST_COUNT, count[0]);
+        // Allow for the measurement itself, but not a single object per post.
+        assertTrue("Allocated " + allocated + " bytes for " + POST_COUNT + " posts", allocated < POST_COUNT);
+    }
+
+    @Test
+    public void batchingUsesSingleLooperMessageAndCoalesces() {
+        final Queue<Runnable> looper = new ArrayDeque<>();
+        MessageBus batchingBus = new MessageBus(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                looper.add(command);
+            }
+        });
+        batchingBus.setBatchingEnabled(true);
+        batchingBus.setCoalescedEventTypes(PlayerEvent.Type.PLAYHEAD_UPDATED);
+        batchingBus.listen(new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                received.add(event);
+            }
+        }, PlayerEvent.Type.PLAYHEAD_UPDATED, PlayerEvent.Type.PLAY, PlayerEvent.Type.PAUSE);
+
+        PKEvent stalePlayhead = new PlayerEvent.PlayheadUpdated(100, 1000);
+        PKEvent play = new PlayerEvent.Generic(PlayerEvent.Type.PLAY);
+        PKEvent latestPlayhead = new PlayerEvent.PlayheadUpdated(200, 1000);
+        PKEvent pause = new PlayerEvent.Generic(PlayerEvent.Type.PAUSE);
+        batchingBus.post(stalePlayhead);
+        batchingBus.post(play);
+        batchingBus.post(latestPlayhead);
+        batchingBus.post(pause);
+
+        assertEquals(1, looper.size());
+        looper.poll().run();
+
+        assertEquals(3, received.size());
+        assertTrue(received.get(0) == play);
+        assertTrue(received.get(1) == latestPlayhead);
+        assertTrue(received.get(2) == pause);
+
+        batchingBus.post(stalePlayhead);
+        assertEquals(1, looper.size());
+        looper.poll().run();
+        assertEquals(4, received.size());
+        assertTrue(received.get(3) == stalePlayhead);
+    }
+
+    @Test
+    public void batchingWithoutCoalescingKeepsEveryEvent() {
+        final Queue<Runnable> looper = new ArrayDeque<>();
+        MessageBus batchingBus = new MessageBus(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                looper.add(command);
+            }
+        });
+        batchingBus.setBatchingEnabled(true);
+        batchingBus.listen(new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                received.add(event);
+            }
+        }, PlayerEvent.Type.PLAYHEAD_UPDATED);
+
+        for (int i = 0; i < 40; i++) {
+            batchingBus.post(new PlayerEvent.PlayheadUpdated(i, 1000));
+        }
+        assertEquals(1, looper.size());
+        looper.poll().run();
+        assertEquals(40, received.size());
+    }
+
+    @Test
+    public void listenersAreDeliveredOnTheirOwnExecutor() {
+        final Queue<Runnable> mainLooper = new ArrayDeque<>();
+        final Queue<Runnable> worker = new ArrayDeque<>();
+        MessageBus bus = new MessageBus(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mainLooper.add(command);
+            }
+        });
+        Executor workerExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                worker.add(command);
+            }
+        };
+        final List<PKEvent> onMain = new ArrayList<>();
+        final List<PKEvent> onWorker = new ArrayList<>();
+        bus.listen(new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                onMain.add(event);
+            }
+        }, PlayerEvent.Type.PLAY);
+        PKEvent.Listener analytics = new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                onWorker.add(event);
+            }
+        };
+        bus.listen(analytics, workerExecutor, PlayerEvent.Type.PLAY);
+        bus.listen(new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                onWorker.add(event);
+            }
+        }, workerExecutor, PlayerEvent.Type.PLAY);
+
+        bus.post(new PlayerEvent.Generic(PlayerEvent.Type.PLAY));
+
+        // One task per executor, not per listener.
+        assertEquals(1, mainLooper.size());
+        assertEquals(1, worker.size());
+
+        mainLooper.poll().run();
+        assertEquals(1, onMain.size());
+        assertEquals(0, onWorker.size());
+
+        worker.poll().run();
+        assertEquals(1, onMain.size());
+        assertEquals(2, onWorker.size());
+
+        // Re-listening on the main thread moves the listener off the worker.
+        bus.listen(analytics, MessageBus.MAIN_THREAD, PlayerEvent.Type.PLAY);
+        bus.post(new PlayerEvent.Generic(PlayerEvent.Type.PLAY));
+        mainLooper.poll().run();
+        assertEquals(2, onMain.size());
+        assertEquals(3, onWorker.size());
+        worker.poll().run();
+        assertEquals(4, onWorker.size());
+    }
+
+    @Test
+    public void batchedDrainHandsOffToOtherExecutors() {
+        final Queue<Runnable> mainLooper = new ArrayDeque<>();
+        final Queue<Runnable> worker = new ArrayDeque<>();
+        MessageBus bus = new MessageBus(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mainLooper.add(command);
+            }
+        });
+        bus.setBatchingEnabled(true);
+        bus.listen(new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                received.add(event);
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                worker.add(command);
+            }
+        }, PlayerEvent.Type.PLAY, PlayerEvent.Type.PAUSE);
+
+        bus.post(new PlayerEvent.Generic(PlayerEvent.Type.PLAY));
+        bus.post(new PlayerEvent.Generic(PlayerEvent.Type.PAUSE));
+        assertEquals(1, mainLooper.size());
+        mainLooper.poll().run();
+        assertEquals(0, received.size());
+        assertEquals(2, worker.size());
+
+        while (!worker.isEmpty()) {
+            worker.poll().run();
+        }
+        assertEquals(PlayerEvent.Type.PLAY, received.get(0).eventType());
+        assertEquals(PlayerEvent.Type.PAUSE, received.get(1).eventType());
+    }
+
+    @Test
+    public void throttledListenerSkipsEventsWithinItsInterval() {
+        final List<PKEvent> throttled = new ArrayList<>();
+        messageBus.listen(new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                received.add(event);
+            }
+        }, PlayerEvent.Type.PLAYHEAD_UPDATED);
+        messageBus.listen(new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+                throttled.add(event);
+            }
+        }, MessageBus.MAIN_THREAD, 60000, PlayerEvent.Type.PLAYHEAD_UPDATED);
+
+        for (int i = 0; i < 10; i++) {
+            messageBus.post(new PlayerEvent.PlayheadUpdated(i * 100, 1000));
+        }
+
+        assertEquals(10, received.size());
+        assertEquals(1, throttled.size());
+    }
+
+    @Test
+    public void minIntervalFollowsSubscriptions() {
+        final List<Enum> changes = new ArrayList<>();
+        messageBus.setSubscriptionObserver(new MessageBus.SubscriptionObserver() {
+            @Override
+            public void onSubscriptionsChanged(Enum eventType) {
+                changes.add(eventType);
+            }
+        });
+        PKEvent.Listener scrubber = new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+            }
+        };
+        PKEvent.Listener analytics = new PKEvent.Listener() {
+            @Override
+            public void onEvent(PKEvent event) {
+            }
+        };
+
+        assertEquals(-1, messageBus.getMinInterval(PlayerEvent.Type.PLAYHEAD_UPDATED, 100));
+
+        messageBus.listen(analytics, MessageBus.BACKGROUND_THREAD, 1000, PlayerEvent.Type.PLAYHEAD_UPDATED);
+        assertEquals(1000, messageBus.getMinInterval(PlayerEvent.Type.PLAYHEAD_UPDATED, 100));
+
+        messageBus.listen(scrubber, PlayerEvent.Type.PLAYHEAD_UPDATED);
+        messageBus.listen(scrubber, PlayerEvent.Type.PLAYHEAD_UPDATED);
+        assertEquals(100, messageBus.getMinInterval(PlayerEvent.Type.PLAYHEAD_UPDATED, 100));
+
+        messageBus.removeListener(scrubber);
+        assertEquals(1000, messageBus.getMinInterval(PlayerEvent.Type.PLAYHEAD_UPDATED, 100));
+
+        messageBus.remove(analytics, PlayerEvent.Type.PLAYHEAD_UPDATED);
+        assertEquals(-1, messageBus.getMinInterval(PlayerEvent.Type.PLAYHEAD_UPDATED, 100));
+
+        // Listening twice with the same parameters is not a change.
+        assertEquals(4, changes.size());
+    }
+}
@@ -0,0 +1,85 @@
+package com.kaltura.playkit.drm;
+
+import com.google.android.exoplayer2.drm.DrmInitData;
+import com.google.android.exoplayer2.extractor.mp4.PsshAtomUtil;
+import com.kaltura.playkit.player.MediaSupport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that media with different Widevine PSSHs but the same key ids map to the same pooled session.
+ */
+public class DrmSessionPoolTest {
+
+    private static final String LICENSE_URL = "https://license.example.com/widevine";
+
+    private static final byte[] KEY_ID_1 = {0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77, (byte) 0x88, (byte) 0x99, (byte) 0xaa, (byte) 0xbb, (byte) 0xcc, (byte) 0xdd, (byte) 0xee, (byte) 0xff};
+    private static final byte[] KEY_ID_2 = {0x0f, 0x1e, 0x2d, 0x3c, 0x4b, 0x5a, 0x69, 0x78, (byte) 0x87, (byte) 0x96, (byte) 0xa5, (byte) 0xb4, (byte) 0xc3, (byte) 0xd2, (byte) 0xe1, (byte) 0xf0};
+
+    @Test
+    public void parsesKeyIds() {
+        assertEquals(Arrays.asList("00112233445566778899aabbccddeeff", "0f1e2d3c4b5a69788796a5b4c3d2e1f0"),
+                DrmSessionPool.getKeyIds(widevineData("episode-1", KEY_ID_1, KEY_ID_2)));
+    }
+
+    @Test
+    public void sameKeyIdsShareTheSession() {
+        String episode1 = DrmSessionPool.getKey(LICENSE_URL, schemeData(widevineData("episode-1", KEY_ID_1, KEY_ID_2)));
+        String episode2 = DrmSessionPool.getKey(LICENSE_URL, schemeData(widevineData("episode-2", KEY_ID_2, KEY_ID_1)));
+        assertNotNull(episode1);
+        assertEquals(episode1, episode2);
+    }
+
+    @Test
+    public void differentKeysOrLicensesDontShareTheSession() {
+        String episode1 = DrmSessionPool.getKey(LICENSE_URL, schemeData(widevineData("episode-1", KEY_ID_1)));
+        assertNotEquals(episode1, DrmSessionPool.getKey(LICENSE_URL, schemeData(widevineData("episode-1", KEY_ID_2))));
+        assertNotEquals(episode1, DrmSessionPool.getKey(LICENSE_URL + "?other", schemeData(widevineData("episode-1", KEY_ID_1))));
+    }
+
+    @Test
+    public void noKeyForMissingLicenseOrInitData() {
+        assertNull(DrmSessionPool.getKey(null, schemeData(widevineData("episode-1", KEY_ID_1))));
+        assertNull(DrmSessionPool.getKey(LICENSE_URL, null));
+    }
+
+    @Test
+    public void malformedDataHasNoKeyIds() {
+        byte[] data = widevineData("episode-1", KEY_ID_1);
+        assertTrue(DrmSessionPool.getKeyIds(Arrays.copyOf(data, data.length - 3)).isEmpty());
+        assertEquals(Collections.emptyList(), DrmSessionPool.getKeyIds(new byte[]{(byte) 0xff}));
+    }
+
+    private static DrmInitData.SchemeData schemeData(byte[] widevineData) {
+        return new DrmInitData.SchemeData(MediaSupport.WIDEVINE_UUID, "video/mp4", PsshAtomUtil.buildPsshAtom(MediaSupport.WIDEVINE_UUID, widevineData));
+    }
+
+    // WidevinePsshData: algorithm (1), key_id (2), provider (3), content_id (4)
+    private static byte[] widevineData(String contentId, byte[]... keyIds) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(1 << 3);
+        out.write(1); // AESCTR
+        for (byte[] keyId : keyIds) {
+            writeBytes(out, 2, keyId);
+        }
+        writeBytes(out, 3, "kaltura".getBytes());
+        writeBytes(out, 4, contentId.getBytes());
+        return out.toByteArray();
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, int field, byte[] value) {
+        out.write(field << 3 | 2);
+        out.write(value.length);
+        out.write(value, 0, value.length);
+    }
+}
@@ -0,0 +1,167 @@
+package com.kaltura.playkit.player;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.util.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The buffering that follows a track change (an audio language switch refetches the audio of the new
+ * language from the playback position) should end as soon as the track change buffer is reached.
+ * Buffer targets are lowered on memory trim signals, but not when the app only went to the background.
+ * Both signals expire, on a fake clock.
+ */
+public class AdaptiveLoadControlTest {
+
+    private static final int REBUFFER_MS = 5000;
+    private static final int TRACK_CHANGE_MS = 500;
+    private static final long FIRST_SEGMENT_US = C.msToUs(2000);
+
+    private final Clock clock = mock(Clock.class);
+    private long nowMs;
+
+    @Before
+    public void setUp() {
+        advanceTime(100000);
+    }
+
+    private void advanceTime(long ms) {
+        nowMs += ms;
+        when(clock.elapsedRealtime()).thenReturn(nowMs);
+    }
+
+    private AdaptiveLoadControl createLoadControl(LoadControlBuffers buffers) {
+        return new AdaptiveLoadControl(mock(Context.class), buffers, clock);
+    }
+
+    private LoadControlBuffers trackChangeBuffers() {
+        return new LoadControlBuffers().setMinBufferAfterReBufferMs(REBUFFER_MS).setMinBufferAfterTrackChangeMs(TRACK_CHANGE_MS);
+    }
+
+    @Test
+    public void resumesOnFirstSegmentAfterTrackChange() {
+        AdaptiveLoadControl loadControl = createLoadControl(trackChangeBuffers());
+        assertFalse(loadControl.shouldStartPlayback(FIRST_SEGMENT_US, 1, true));
+
+        loadControl.onTrackChangeRequested();
+        assertFalse(loadControl.shouldStartPlayback(C.msToUs(TRACK_CHANGE_MS - 1), 1, true));
+        assertTrue(loadControl.shouldStartPlayback(FIRST_SEGMENT_US, 1, true));
+    }
+
+    @Test
+    public void laterRebufferWaitsForRebufferBuffer() {
+        AdaptiveLoadControl loadControl = createLoadControl(trackChangeBuffers());
+        loadControl.onTrackChangeRequested();
+        assertTrue(loadControl.shouldStartPlayback(FIRST_SEGMENT_US, 1, true));
+
+        assertFalse(loadControl.shouldStartPlayback(FIRST_SEGMENT_US, 1, true));
+        assertTrue(loadControl.shouldStartPlayback(C.msToUs(REBUFFER_MS), 1, true));
+    }
+
+    @Test
+    public void trackChangeWindowExpires() {
+        AdaptiveLoadControl loadControl = createLoadControl(trackChangeBuffers());
+        loadControl.onTrackChangeRequested();
+        advanceTime(AdaptiveLoadControl.TRACK_CHANGE_RESUME_WINDOW_MS - 1);
+        assertTrue(loadControl.shouldStartPlayback(FIRST_SEGMENT_US, 1, true));
+
+        loadControl.onTrackChangeRequested();
+        advanceTime(AdaptiveLoadControl.TRACK_CHANGE_RESUME_WINDOW_MS);
+        // A re-buffer long after the track change waits for the re-buffer buffer.
+        assertFalse(loadControl.shouldStartPlayback(FIRST_SEGMENT_US, 1, true));
+        assertTrue(loadControl.shouldStartPlayback(C.msToUs(REBUFFER_MS), 1, true));
+    }
+
+    @Test
+    public void onlyAudioChangesUseTheTrackChangeBuffer() {
+        assertTrue(TrackSelectionHelper.isAudioTrackId("Audio:1,0,1"));
+        assertTrue(TrackSelectionHelper.isAudioTrackId("Audio:1,2,adaptive"));
+        assertFalse(TrackSelectionHelper.isAudioTrackId("Video:0,0,3"));
+        assertFalse(TrackSelectionHelper.isAudioTrackId("Text:2,0,0"));
+        assertFalse(TrackSelectionHelper.isAudioTrackId(null));
+    }
+
+    @Test
+    public void trackChangeIsForgottenOnStop() {
+        AdaptiveLoadControl loadControl = createLoadControl(trackChangeBuffers());
+        loadControl.onTrackChangeRequested();
+        loadControl.onStopped();
+        assertFalse(loadControl.shouldStartPlayback(FIRST_SEGMENT_US, 1, true));
+    }
+
+    @Test
+    public void defaultTrackChangeBufferIsRebufferBuffer() {
+        LoadControlBuffers buffers = new LoadControlBuffers().setMinBufferAfterReBufferMs(REBUFFER_MS);
+        assertFalse(buffers.isTrackChangeBufferSet());
+        assertEquals(REBUFFER_MS, buffers.getMinBufferAfterTrackChangeMs());
+
+        AdaptiveLoadControl loadControl = createLoadControl(buffers);
+        loadControl.onTrackChangeRequested();
+        assertFalse(loadControl.shouldStartPlayback(FIRST_SEGMENT_US, 1, true));
+    }
+
+    @Test
+    public void trackChangeBufferIsCopiedAndCompared() {
+        LoadControlBuffers buffers = trackChangeBuffers();
+        LoadControlBuffers copy = buffers.copy();
+        assertEquals(TRACK_CHANGE_MS, copy.getMinBufferAfterTrackChangeMs());
+        assertTrue(buffers.hasSameValues(copy));
+        assertFalse(buffers.hasSameValues(copy.setMinBufferAfterTrackChangeMs(1000)));
+    }
+
+    @Test
+    public void backgroundingIsNotMemoryPressure() {
+        AdaptiveLoadControl loadControl = createAdaptiveLoadControl();
+        long maxBufferMs = loadControl.getMaxBufferMs();
+
+        loadControl.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(maxBufferMs, loadControl.getMaxBufferMs());
+        loadControl.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(maxBufferMs, loadControl.getMaxBufferMs());
+
+        loadControl.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(AdaptiveBufferPolicy.DEFAULT_MEMORY_PRESSURE_MAX_BUFFER_MS, loadControl.getMaxBufferMs());
+    }
+
+    @Test
+    public void memoryPressureExpires() {
+        AdaptiveLoadControl loadControl = createAdaptiveLoadControl();
+        long maxBufferMs = loadControl.getMaxBufferMs();
+
+        loadControl.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        advanceTime(AdaptiveBufferPolicy.DEFAULT_MEMORY_PRESSURE_DURATION_MS - 1);
+        loadControl.shouldContinueLoading(0, 1);
+        assertEquals(AdaptiveBufferPolicy.DEFAULT_MEMORY_PRESSURE_MAX_BUFFER_MS, loadControl.getMaxBufferMs());
+
+        advanceTime(1);
+        loadControl.shouldContinueLoading(0, 1);
+        assertEquals(maxBufferMs, loadControl.getMaxBufferMs());
+    }
+
+    @Test
+    public void memoryPressureLevels() {
+        assertFalse(AdaptiveLoadControl.isMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        assertTrue(AdaptiveLoadControl.isMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+        assertTrue(AdaptiveLoadControl.isMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertFalse(AdaptiveLoadControl.isMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN));
+        assertTrue(AdaptiveLoadControl.isMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND));
+        assertTrue(AdaptiveLoadControl.isMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_MODERATE));
+        assertTrue(AdaptiveLoadControl.isMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_COMPLETE));
+    }
+
+    private AdaptiveLoadControl createAdaptiveLoadControl() {
+        Context context = mock(Context.class);
+        when(context.getApplicationContext()).thenReturn(context);
+        return new AdaptiveLoadControl(context, new LoadControlBuffers().setAdaptivePolicy(new AdaptiveBufferPolicy()), clock);
+    }
+}
@@ -0,0 +1,221 @@
+package com.kaltura.playkit.player;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.kaltura.playkit.DefaultHttpTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the TLS handshakes of a session of segment requests made through the player's data source factory,
+ * against a local HTTPS server that keeps its connections alive.
+ */
+public class CustomHttpDataSourceFactoryTest {
+
+    private static final int SEGMENT_COUNT = 10;
+    private static final int SEGMENT_SIZE = 16 * 1024;
+    private static final int LARGE_SEGMENT_SIZE = 512 * 1024;
+    private static final char[] KEYSTORE_PASSWORD = "playkit".toCharArray();
+
+    private MockTlsServer server;
+    private SSLSocketFactory defaultSocketFactory;
+    private HostnameVerifier defaultHostnameVerifier;
+    private HttpDataSource.Factory dataSourceFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        InputStream keyStoreStream = getClass().getClassLoader().getResourceAsStream("test-server.p12");
+        keyStore.load(keyStoreStream, KEYSTORE_PASSWORD);
+        keyStoreStream.close();
+
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEYSTORE_PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        server = new MockTlsServer(serverContext);
+
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore);
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+        defaultSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        defaultHostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+        HttpsURLConnection.setDefaultSSLSocketFactory(clientContext.getSocketFactory());
+        HttpsURLConnection.setDefaultHostnameVerifier(new HostnameVerifier() {
+            @Override
+            public boolean verify(String hostname, SSLSession session) {
+                return "127.0.0.1".equals(hostname);
+            }
+        });
+
+        dataSourceFactory = new CustomHttpDataSourceFactory("playkit-test", null, new DefaultHttpTransport(2000, 2000), false);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        HttpsURLConnection.setDefaultSSLSocketFactory(defaultSocketFactory);
+        HttpsURLConnection.setDefaultHostnameVerifier(defaultHostnameVerifier);
+        server.close();
+    }
+
+    @Test
+    public void segmentsOfASessionShareOneHandshake() throws IOException {
+        HttpDataSource dataSource = dataSourceFactory.createDataSource();
+
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            assertEquals(SEGMENT_SIZE, readToEnd(dataSource, server.url("/segment-" + i + ".ts"), Integer.MAX_VALUE));
+        }
+
+        assertEquals(SEGMENT_COUNT, server.requests.get());
+        assertEquals(1, server.handshakes.get());
+    }
+
+    @Test
+    public void dataSourcesOfAPlayerShareTheConnection() throws IOException {
+        // The loaders of the player (e.g. video, audio and manifest) each create their data sources.
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            assertEquals(SEGMENT_SIZE, readToEnd(dataSourceFactory.createDataSource(), server.url("/segment-" + i + ".ts"), Integer.MAX_VALUE));
+        }
+
+        assertEquals(1, server.handshakes.get());
+    }
+
+    @Test
+    public void abandonedResponseIsNotReused() throws IOException {
+        HttpDataSource dataSource = dataSourceFactory.createDataSource();
+
+        // E.g. a segment load that was canceled by a quality switch.
+        readToEnd(dataSource, server.url("/large.ts"), 1024);
+        assertEquals(SEGMENT_SIZE, readToEnd(dataSource, server.url("/segment-1.ts"), Integer.MAX_VALUE));
+
+        assertEquals(2, server.requests.get());
+        assertEquals(2, server.handshakes.get());
+    }
+
+    private static int readToEnd(HttpDataSource dataSource, String url, int maxBytes) throws IOException {
+        Uri uri = mock(Uri.class);
+        when(uri.toString()).thenReturn(url);
+        byte[] buffer = new byte[4096];
+        int total = 0;
+        try {
+            dataSource.open(new DataSpec(uri));
+            int read;
+            while (total < maxBytes && (read = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                total += read;
+            }
+        } finally {
+            dataSource.close();
+        }
+        return total;
+    }
+
+    /**
+     * Minimal HTTPS/1.1 server that serves segments of a fixed size and keeps the connections alive.
+     */
+    private static class MockTlsServer {
+
+        final AtomicInteger handshakes = new AtomicInteger();
+        final AtomicInteger requests = new AtomicInteger();
+
+        private final SSLServerSocket serverSocket;
+
+        MockTlsServer(SSLContext sslContext) throws IOException {
+            serverSocket = (SSLServerSocket) sslContext.getServerSocketFactory().createServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+            Thread acceptThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            final Socket socket = serverSocket.accept();
+                            Thread connectionThread = new Thread(new Runnable() {
+                                @Override
+                                public void run() {
+                                    serve((SSLSocket) socket);
+                                }
+                            });
+                            connectionThread.setDaemon(true);
+                            connectionThread.start();
+                        }
+                    } catch (IOException e) {
+                        // Closed
+                    }
+                }
+            });
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }
+
+        String url(String path) {
+            return "https://127.0.0.1:" + serverSocket.getLocalPort() + path;
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        private void serve(SSLSocket socket) {
+            try {
+                socket.startHandshake();
+                handshakes.incrementAndGet();
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+                OutputStream out = socket.getOutputStream();
+                String requestLine;
+                while ((requestLine = reader.readLine()) != null) {
+                    String header;
+                    do {
+                        header = reader.readLine();
+                    } while (header != null && !header.isEmpty());
+                    requests.incrementAndGet();
+
+                    byte[] body = new byte[requestLine.contains("/large") ? LARGE_SEGMENT_SIZE : SEGMENT_SIZE];
+                    String headers = "HTTP/1.1 200 OK\r\n" +
+                            "Content-Type: video/mp2t\r\n" +
+                            "Content-Length: " + body.length + "\r\n" +
+                            "Connection: keep-alive\r\n\r\n";
+                    out.write(headers.getBytes("ISO-8859-1"));
+                    out.write(body);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Client went away
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+}
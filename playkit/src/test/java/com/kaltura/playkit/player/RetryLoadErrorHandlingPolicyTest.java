@@ -0,0 +1,78 @@
+package com.kaltura.playkit.player;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ParserException;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryLoadErrorHandlingPolicyTest {
+
+    private static IOException responseCode(int responseCode) {
+        return new HttpDataSource.InvalidResponseCodeException(responseCode, null, null);
+    }
+
+    @Test
+    public void backoffDoublesUpToMaxDelay() {
+        RetryLoadErrorHandlingPolicy policy = new RetryLoadErrorHandlingPolicy(new LoadErrorPolicy()
+                .setInitialRetryDelayMs(500).setMaxRetryDelayMs(3000).setRetryDelayJitter(0));
+        assertEquals(500, policy.getRetryDelayMs(1));
+        assertEquals(1000, policy.getRetryDelayMs(2));
+        assertEquals(2000, policy.getRetryDelayMs(3));
+        assertEquals(3000, policy.getRetryDelayMs(4));
+        assertEquals(3000, policy.getRetryDelayMs(40));
+    }
+
+    @Test
+    public void jitterStaysWithinFraction() {
+        RetryLoadErrorHandlingPolicy policy = new RetryLoadErrorHandlingPolicy(new LoadErrorPolicy()
+                .setInitialRetryDelayMs(1000).setRetryDelayJitter(0.25f));
+        for (int i = 0; i < 1000; i++) {
+            long delayMs = policy.getRetryDelayMs(1);
+            assertTrue(delayMs + "ms", delayMs >= 750 && delayMs <= 1250);
+        }
+    }
+
+    @Test
+    public void serverErrorsAndTimeoutsAreRetried() {
+        RetryLoadErrorHandlingPolicy policy = new RetryLoadErrorHandlingPolicy(new LoadErrorPolicy());
+        assertTrue(policy.getRetryDelayMsFor(C.DATA_TYPE_MEDIA, 0, responseCode(503), 1) != C.TIME_UNSET);
+        assertTrue(policy.getRetryDelayMsFor(C.DATA_TYPE_MEDIA, 0, new SocketTimeoutException(), 1) != C.TIME_UNSET);
+        assertEquals(2, policy.getSegmentRetryCount());
+        assertEquals(0, policy.getManifestRetryCount());
+    }
+
+    @Test
+    public void clientErrorsFailFast() {
+        RetryLoadErrorHandlingPolicy policy = new RetryLoadErrorHandlingPolicy(new LoadErrorPolicy());
+        assertEquals(C.TIME_UNSET, policy.getRetryDelayMsFor(C.DATA_TYPE_MANIFEST, 0, responseCode(403), 1));
+        assertEquals(C.TIME_UNSET, policy.getRetryDelayMsFor(C.DATA_TYPE_MANIFEST, 0, new ParserException(), 1));
+        assertEquals(0, policy.getManifestRetryCount());
+
+        policy = new RetryLoadErrorHandlingPolicy(new LoadErrorPolicy().setFailFastOnClientErrors(false));
+        assertTrue(policy.getRetryDelayMsFor(C.DATA_TYPE_MANIFEST, 0, responseCode(403), 1) != C.TIME_UNSET);
+    }
+
+    @Test
+    public void retriesStopAtRequestTypeCount() {
+        RetryLoadErrorHandlingPolicy policy = new RetryLoadErrorHandlingPolicy(new LoadErrorPolicy()
+                .setManifestRetryCount(1).setSegmentRetryCount(4));
+        assertEquals(1, policy.getMinimumLoadableRetryCount(C.DATA_TYPE_MANIFEST));
+        assertEquals(4, policy.getMinimumLoadableRetryCount(C.DATA_TYPE_MEDIA));
+        assertTrue(policy.getRetryDelayMsFor(C.DATA_TYPE_MANIFEST, 0, responseCode(500), 1) != C.TIME_UNSET);
+        assertEquals(C.TIME_UNSET, policy.getRetryDelayMsFor(C.DATA_TYPE_MANIFEST, 0, responseCode(500), 2));
+        assertTrue(policy.getRetryDelayMsFor(C.DATA_TYPE_MEDIA, 0, responseCode(500), 4) != C.TIME_UNSET);
+        assertEquals(C.TIME_UNSET, policy.getRetryDelayMsFor(C.DATA_TYPE_MEDIA, 0, responseCode(500), 5));
+
+        assertEquals(1, policy.getManifestRetryCount());
+        policy.resetRetryCounts();
+        assertEquals(0, policy.getManifestRetryCount());
+        assertEquals(0, policy.getSegmentRetryCount());
+    }
+}
@@ -0,0 +1,146 @@
+package com.kaltura.playkit.player;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the typed track index with the string parsing it replaced in TrackSelectionHelper,
+ * on an HLS like ladder: dozens of video renditions and several audio groups.
+ */
+public class TrackIdIndexTest {
+
+    private static final int TRACK_ADAPTIVE = -1;
+    private static final int VIDEO_TRACKS = 40;
+    private static final int AUDIO_GROUPS = 6;
+    private static final int AUDIO_TRACKS_PER_GROUP = 4;
+    private static final int TEXT_TRACKS = 10;
+
+    private final List<String> videoTrackIds = new ArrayList<>();
+    private final List<String> audioTrackIds = new ArrayList<>();
+    private final List<String> allTrackIds = new ArrayList<>();
+    private final TrackIdIndex trackIdIndex = new TrackIdIndex();
+
+    @Before
+    public void setUp() {
+        addTrack(videoTrackIds, "Video:", 0, 0, TRACK_ADAPTIVE);
+        for (int track = 0; track < VIDEO_TRACKS; track++) {
+            addTrack(videoTrackIds, "Video:", 0, 0, track);
+        }
+        for (int group = 0; group < AUDIO_GROUPS; group++) {
+            addTrack(audioTrackIds, "Audio:", 1, group, TRACK_ADAPTIVE);
+            for (int track = 0; track < AUDIO_TRACKS_PER_GROUP; track++) {
+                addTrack(audioTrackIds, "Audio:", 1, group, track);
+            }
+        }
+        for (int group = 0; group < TEXT_TRACKS; group++) {
+            addTrack(new ArrayList<String>(), "Text:", 2, group, 0);
+        }
+
+        List<Integer> videoTracks = legacyAdaptiveVideoTracks(0);
+        int[] adaptiveVideoTracks = new int[videoTracks.size()];
+        for (int i = 0; i < adaptiveVideoTracks.length; i++) {
+            adaptiveVideoTracks[i] = videoTracks.get(i);
+        }
+        trackIdIndex.setAdaptiveTracks(0, 0, adaptiveVideoTracks);
+    }
+
+    @Test
+    public void indexResolvesLikeParsing() {
+        for (String uniqueId : allTrackIds) {
+            assertTrue(trackIdIndex.contains(uniqueId));
+            assertArrayEquals(uniqueId, legacyParseUniqueId(uniqueId), trackIdIndex.get(uniqueId));
+        }
+        assertFalse(trackIdIndex.contains("Video:0,1,0"));
+        assertNull(trackIdIndex.get("Video:0,1,0"));
+        assertEquals(0, trackIdIndex.getAdaptiveTracks(0, 1).length);
+
+        int[] adaptiveVideoTracks = trackIdIndex.getAdaptiveTracks(0, 0);
+        List<Integer> legacyAdaptiveVideoTracks = legacyAdaptiveVideoTracks(0);
+        assertEquals(legacyAdaptiveVideoTracks.size(), adaptiveVideoTracks.length);
+        for (int i = 0; i < adaptiveVideoTracks.length; i++) {
+            assertEquals((int) legacyAdaptiveVideoTracks.get(i), adaptiveVideoTracks[i]);
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheIndex() {
+        trackIdIndex.clear();
+
+        assertFalse(trackIdIndex.contains(videoTrackIds.get(0)));
+        assertEquals(0, trackIdIndex.getAdaptiveTracks(0, 0).length);
+    }
+
+    @Test
+    public void changeTrackResolvesLikeParsing() {
+        // What a changeTrack() to the adaptive video track, then to each track of the ladder, resolves.
+        assertEquals(runLegacy(), runIndexed());
+    }
+
+    private long runLegacy() {
+        long sum = 0;
+        int[] adaptive = legacyParseUniqueId(videoTrackIds.get(0));
+        for (int track : legacyAdaptiveVideoTracks(adaptive[1])) {
+            sum += track;
+        }
+        for (String uniqueId : allTrackIds) {
+            sum += legacyParseUniqueId(uniqueId)[2];
+        }
+        return sum;
+    }
+
+    private long runIndexed() {
+        long sum = 0;
+        int[] adaptive = trackIdIndex.get(videoTrackIds.get(0));
+        for (int track : trackIdIndex.getAdaptiveTracks(adaptive[0], adaptive[1])) {
+            sum += track;
+        }
+        for (String uniqueId : allTrackIds) {
+            sum += trackIdIndex.get(uniqueId)[2];
+        }
+        return sum;
+    }
+
+    private void addTrack(List<String> trackIds, String prefix, int rendererIndex, int groupIndex, int trackIndex) {
+        String uniqueId = prefix + rendererIndex + "," + groupIndex + "," + trackIndex;
+        trackIds.add(uniqueId);
+        allTrackIds.add(uniqueId);
+        trackIdIndex.add(uniqueId, rendererIndex, groupIndex, trackIndex);
+    }
+
+    // The parsing TrackSelectionHelper did before the index, on every changeTrack().
+
+    private List<Integer> legacyAdaptiveVideoTracks(int groupIndex) {
+        List<Integer> adaptiveTrackIndexesList = new ArrayList<>();
+        for (String uniqueId : videoTrackIds) {
+            int videoGroupIndex = legacyGetIndexFromUniqueId(uniqueId, 1);
+            int videoTrackIndex = legacyGetIndexFromUniqueId(uniqueId, 2);
+            if (videoGroupIndex == groupIndex && videoTrackIndex != TRACK_ADAPTIVE) {
+                adaptiveTrackIndexesList.add(legacyGetIndexFromUniqueId(uniqueId, 2));
+            }
+        }
+        return adaptiveTrackIndexesList;
+    }
+
+    private static int[] legacyParseUniqueId(String uniqueId) {
+        int[] parsedUniqueId = new int[3];
+        String[] strArray = uniqueId.split(":")[1].split(",");
+        for (int i = 0; i < strArray.length; i++) {
+            parsedUniqueId[i] = Integer.parseInt(strArray[i]);
+        }
+        return parsedUniqueId;
+    }
+
+    private static int legacyGetIndexFromUniqueId(String uniqueId, int index) {
+        String[] strArray = uniqueId.split(":")[1].split(",");
+        return Integer.valueOf(strArray[index]);
+    }
+}
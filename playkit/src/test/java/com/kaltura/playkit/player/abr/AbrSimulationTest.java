@@ -0,0 +1,100 @@
+package com.kaltura.playkit.player.abr;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays throughput traces through the built-in strategies and checks the quality, stability and rebuffering of each.
+ */
+public class AbrSimulationTest {
+
+    private static final int[] LADDER = {8000000, 4500000, 2500000, 1200000, 750000, 300000};
+    private static final long SEGMENT_DURATION_MS = 4000;
+    private static final long MAX_BUFFER_MS = 50000;
+    private static final int SEGMENT_COUNT = 150; // 10 minutes
+    private static final int MAX_SWITCHES = SEGMENT_COUNT / 10; // No oscillation from one segment to the next
+
+    private static final long[] STABLE_TRACE = {20000000};
+
+    // Throughput of each second in kbps, shaped like a HSPA connection on the move.
+    private static final long[] MOBILE_TRACE = kbps(
+            3200, 2900, 3500, 4100, 3800, 2400, 1900, 2200, 2600, 3100,
+            3400, 2800, 1500, 900, 1200, 1800, 2500, 3300, 3900, 4400,
+            4200, 3600, 2700, 2100, 1600, 1400, 1900, 2800, 3700, 4100,
+            3800, 3000, 2300, 1700, 1100, 800, 1000, 1600, 2400, 3200,
+            3600, 3300, 2900, 2500, 2800, 3400, 3900, 3500, 2600, 2000,
+            1500, 1300, 1800, 2600, 3300, 3800, 4300, 4000, 3400, 2900);
+
+    // Throughput of each second in kbps, shaped like a LTE connection crossing a coverage hole.
+    private static final long[] OUTAGE_TRACE = kbps(
+            12000, 11500, 12500, 13000, 12200, 11800, 12400, 12900, 12100, 11600,
+            12300, 12800, 12000, 11700, 12500, 13100, 12600, 12000, 11900, 12400,
+            6000, 2500, 900, 400, 200, 200, 300, 200, 400, 600,
+            300, 200, 200, 500, 800, 1500, 3000, 6500, 9000, 11000,
+            12000, 12400, 11800, 12600, 13000, 12200, 11900, 12500, 12800, 12100,
+            11700, 12300, 12900, 12000, 11600, 12400, 12700, 12100, 11800, 12500);
+
+    private final AbrSimulator simulator = new AbrSimulator(LADDER, SEGMENT_DURATION_MS, MAX_BUFFER_MS);
+
+    @Test
+    public void simulationIsDeterministic() {
+        for (AbrStrategy strategy : strategies()) {
+            AbrSimulator.Result first = simulator.run(strategy, MOBILE_TRACE, SEGMENT_COUNT);
+            AbrSimulator.Result second = simulator.run(strategy, MOBILE_TRACE, SEGMENT_COUNT);
+            assertEquals(first.toString(), second.toString());
+        }
+    }
+
+    @Test
+    public void stableThroughputReachesTheTopRendition() {
+        for (AbrStrategy strategy : strategies()) {
+            AbrSimulator.Result result = simulator.run(strategy, STABLE_TRACE, SEGMENT_COUNT);
+            assertEquals(0, result.rebufferMs);
+            assertTrue(result.toString(), result.averageBitrate > LADDER[0] * 0.9);
+            // At most one climb through the ladder, and no switch down.
+            assertTrue(result.toString(), result.switchCount <= LADDER.length);
+        }
+    }
+
+    @Test
+    public void mobileThroughputPlaysWithoutRebuffering() {
+        for (AbrStrategy strategy : strategies()) {
+            AbrSimulator.Result result = simulator.run(strategy, MOBILE_TRACE, SEGMENT_COUNT);
+            assertEquals(0, result.rebufferMs);
+            assertTrue(result.toString(), result.averageBitrate >= LADDER[4]);
+            assertTrue(result.toString(), result.switchCount <= MAX_SWITCHES);
+        }
+    }
+
+    @Test
+    public void outageIsBridgedByTheBuffer() {
+        for (AbrStrategy strategy : strategies()) {
+            AbrSimulator.Result result = simulator.run(strategy, OUTAGE_TRACE, SEGMENT_COUNT);
+            assertTrue(result.toString(), result.rebufferMs < SEGMENT_DURATION_MS);
+            // Back to high renditions once the coverage returns.
+            assertTrue(result.toString(), result.averageBitrate >= LADDER[2]);
+            assertTrue(result.toString(), result.switchCount <= MAX_SWITCHES);
+        }
+    }
+
+    @Test
+    public void lowestRenditionWhenTheEstimateIsBelowTheLadder() {
+        for (AbrStrategy strategy : strategies()) {
+            assertEquals(LADDER.length - 1, strategy.selectRendition(LADDER, AbrStrategy.NO_SELECTION, 100000, 0));
+        }
+    }
+
+    private static AbrStrategy[] strategies() {
+        return new AbrStrategy[]{new ThroughputAbrStrategy(), new BolaAbrStrategy()};
+    }
+
+    private static long[] kbps(long... values) {
+        long[] bps = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bps[i] = values[i] * 1000;
+        }
+        return bps;
+    }
+}
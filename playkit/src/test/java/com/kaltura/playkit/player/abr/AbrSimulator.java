@@ -0,0 +1,112 @@
+package com.kaltura.playkit.player.abr;
+
+/**
+ * Deterministic playback simulation of an {@link AbrStrategy}: downloads fixed duration segments over a
+ * throughput trace, plays them out, and reports the average bitrate, switch count and rebuffer time.
+ */
+class AbrSimulator {
+
+    static final long INITIAL_BITRATE_ESTIMATE = 1000000; // Like ExoPlayer's DefaultBandwidthMeter
+    private static final double ESTIMATE_WEIGHT = 0.3;
+
+    static class Result {
+        final String strategyName;
+        final long averageBitrate;
+        final int switchCount;
+        final long rebufferMs;
+
+        Result(String strategyName, long averageBitrate, int switchCount, long rebufferMs) {
+            this.strategyName = strategyName;
+            this.averageBitrate = averageBitrate;
+            this.switchCount = switchCount;
+            this.rebufferMs = rebufferMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-22s avg %5d kbps, %3d switches, %6d ms rebuffering", strategyName, averageBitrate / 1000, switchCount, rebufferMs);
+        }
+    }
+
+    private final int[] bitrates;
+    private final long segmentDurationMs;
+    private final long maxBufferMs;
+
+    /**
+     * @param bitrates - the rendition bitrates, from highest to lowest.
+     */
+    AbrSimulator(int[] bitrates, long segmentDurationMs, long maxBufferMs) {
+        this.bitrates = bitrates;
+        this.segmentDurationMs = segmentDurationMs;
+        this.maxBufferMs = maxBufferMs;
+    }
+
+    /**
+     * @param throughputTrace - the throughput of each second, in bits per second. Replayed in a loop.
+     */
+    Result run(AbrStrategy strategy, long[] throughputTrace, int segmentCount) {
+        double timeMs = 0;
+        double bufferMs = 0;
+        double rebufferMs = 0;
+        double bitrateEstimate = INITIAL_BITRATE_ESTIMATE;
+        boolean playing = false;
+        long bitrateSum = 0;
+        int switchCount = 0;
+        int index = AbrStrategy.NO_SELECTION;
+
+        for (int segment = 0; segment < segmentCount; segment++) {
+            // Wait for room in the buffer, like the load control does.
+            if (bufferMs + segmentDurationMs > maxBufferMs) {
+                double waitMs = bufferMs + segmentDurationMs - maxBufferMs;
+                timeMs += waitMs;
+                bufferMs -= waitMs;
+            }
+
+            int newIndex = strategy.selectRendition(bitrates, index, (long) bitrateEstimate, (long) bufferMs);
+            if (index != AbrStrategy.NO_SELECTION && newIndex != index) {
+                switchCount++;
+            }
+            index = newIndex;
+            bitrateSum += bitrates[index];
+
+            double downloadMs = download(throughputTrace, timeMs, (double) bitrates[index] * segmentDurationMs / 1000);
+            timeMs += downloadMs;
+            if (playing) {
+                if (downloadMs > bufferMs) {
+                    rebufferMs += downloadMs - bufferMs;
+                    bufferMs = 0;
+                } else {
+                    bufferMs -= downloadMs;
+                }
+            }
+            bufferMs += segmentDurationMs;
+            playing = true;
+
+            double throughput = bitrates[index] * segmentDurationMs / Math.max(downloadMs, 1);
+            bitrateEstimate = ESTIMATE_WEIGHT * throughput + (1 - ESTIMATE_WEIGHT) * bitrateEstimate;
+        }
+        return new Result(strategy.getClass().getSimpleName(), bitrateSum / segmentCount, switchCount, Math.round(rebufferMs));
+    }
+
+    /**
+     * @return - the time it takes to download the bits from the start time.
+     */
+    private static double download(long[] throughputTrace, double startTimeMs, double bits) {
+        double timeMs = startTimeMs;
+        double remainingBits = bits;
+        while (remainingBits > 0) {
+            long second = (long) (timeMs / 1000);
+            long throughput = throughputTrace[(int) (second % throughputTrace.length)];
+            double secondLeftMs = (second + 1) * 1000 - timeMs;
+            double secondBits = throughput * secondLeftMs / 1000;
+            if (secondBits >= remainingBits) {
+                timeMs += remainingBits * 1000 / throughput;
+                remainingBits = 0;
+            } else {
+                remainingBits -= secondBits;
+                timeMs += secondLeftMs;
+            }
+        }
+        return timeMs - startTimeMs;
+    }
+}